@@ -0,0 +1,107 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+
+/**
+ * A progress report of a search, as published by GmkMCTS while it searches (see GmkMCTS.getAnalysisPublisher):
+ * the playouts of each move from the root (a heatmap of the board), the most visited moves, and the principal variation.
+ * <p>
+ * It is taken from the root and the most visited line only, so the work is proportional to the number of children, not to the tree.
+ *
+ * @param playouts           the playouts of all the moves from the root, i.e. the search effort on this position so far.
+ * @param cols               the number of columns of the board.
+ * @param visits             the playouts of the move to each cell (row * cols + col), 0 for cells which are not moves.
+ * @param top                the most visited moves, most visited first.
+ * @param principalVariation the line of most visited moves from the root.
+ */
+public record GmkAnalysis(int playouts, int cols, int[] visits, List<Candidate> top,
+                          List<GmkMove> principalVariation) {
+    public static final int TOP = 5;
+    public static final int PRINCIPAL_VARIATION_DEPTH = 8;
+
+    /**
+     * A move from the root with its statistics.
+     */
+    public record Candidate(GmkMove move, int playouts, double meanReward) {
+    }
+
+    /**
+     * @return the playouts of the move to (row, col).
+     */
+    public int visits(int row, int col) {
+        return visits[row * cols + col];
+    }
+
+    public int maxVisits() {
+        int result = 0;
+        for (int v : visits) result = Math.max(result, v);
+        return result;
+    }
+
+    /**
+     * @return the best move so far (the most visited), or null if there is none yet.
+     */
+    public GmkMove bestMove() {
+        return top.isEmpty() ? null : top.get(0).move();
+    }
+
+    /**
+     * Take a report from the root of a search.
+     * NOTE: this must be called by the thread which searches the tree (or while no search is running).
+     */
+    public static GmkAnalysis of(GmkNode root) {
+        GmkState state = (GmkState) root.state();
+        int cols = state.game().getCols();
+        int[] visits = new int[state.game().getRows() * cols];
+        List<Candidate> top = new ArrayList<>(TOP + 1);
+        int moveIndex = state.getMoveCount();
+        int total = 0;
+        for (Node<GmkGame> child : root.children()) {
+            GmkNode node = (GmkNode) child;
+            GmkMove move = ((GmkState) node.state()).getMoveHistory().get(moveIndex);
+            int playouts = node.playouts();
+            total += playouts;
+            visits[move.getRow() * cols + move.getCol()] = playouts;
+            if (top.size() == TOP && playouts <= top.get(TOP - 1).playouts()) continue;
+            int index = top.size();
+            while (index > 0 && top.get(index - 1).playouts() < playouts) index--;
+            top.add(index, new Candidate(move, playouts, node.meanReward()));
+            if (top.size() > TOP) top.remove(TOP);
+        }
+        return new GmkAnalysis(total, cols, visits, Collections.unmodifiableList(top), principalVariation(root));
+    }
+
+    private static List<GmkMove> principalVariation(GmkNode root) {
+        List<GmkMove> result = new ArrayList<>(PRINCIPAL_VARIATION_DEPTH);
+        GmkNode node = root;
+        while (result.size() < PRINCIPAL_VARIATION_DEPTH) {
+            GmkNode best = null;
+            for (Node<GmkGame> child : node.children())
+                if (best == null || child.playouts() > best.playouts()) best = (GmkNode) child;
+            if (best == null || best.playouts() == 0) break;
+            List<GmkMove> history = ((GmkState) best.state()).getMoveHistory();
+            result.add(history.get(history.size() - 1));
+            node = best;
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @return this report as one line of text, e.g. "playouts=1200 pv=7-7,6-8 top=7-7:420:0.561,6-8:300:0.532".
+     */
+    public String format() {
+        StringJoiner pv = new StringJoiner(",");
+        for (GmkMove move : principalVariation) pv.add(move.getRow() + "-" + move.getCol());
+        StringJoiner candidates = new StringJoiner(",");
+        for (Candidate candidate : top)
+            candidates.add(String.format(Locale.ROOT, "%d-%d:%d:%.3f", candidate.move().getRow(), candidate.move().getCol(),
+                    candidate.playouts(), candidate.meanReward()));
+        return "playouts=" + playouts + " pv=" + pv + " top=" + candidates;
+    }
+}
@@ -0,0 +1,227 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.RandomState;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+
+/**
+ * Batch analysis of a file of positions, e.g. a dump of positions from game logs.
+ * <p>
+ * Each line of the input is one position, given as the moves which lead to it from the empty board
+ * (e.g. "7-7 6-8 8-8", as in the records of GmkTournament; an empty line is the empty board).
+ * Each position is searched by a fresh tree, within the per-position budget of the engine, and the result is
+ * written as one line, in the order of the input:
+ * <pre>
+ * index move iterations=n [playouts=... pv=... top=...]
+ * </pre>
+ * where the analysis (see GmkAnalysis.format) is missing if the move needed no search, and a position which cannot
+ * be read, or whose search fails, gives "index ERR message" instead (so that one bad position does not stop the run).
+ * <p>
+ * The input is streamed and only a bounded window of positions is in flight, so the memory used does not depend
+ * on the size of the input. Since the output is in input order, an interrupted run can be resumed by running it again
+ * with the same output file: the complete lines already written are kept and their positions are skipped.
+ * <p>
+ * Usage:
+ * <pre>
+ * GmkBatchAnalyzer --in positions.txt --out analysis.txt [--engine name:iterations=1000] [--size 15]
+ *                  [--rows R --cols C] [--k 5] [--rule freestyle|exact|renju-lite] [--threads N] [--seed S]
+ * </pre>
+ */
+public class GmkBatchAnalyzer {
+    public static final int WINDOW_PER_THREAD = 8;  // the positions in flight for each worker thread
+
+    private final GmkGame game;
+    private final GmkTournament.Engine engine;
+    private final int threads;
+    private Long seed;  // the seed from which each position's search is seeded, or null for unseeded searches
+
+    public GmkBatchAnalyzer(GmkGame game, GmkTournament.Engine engine, int threads) {
+        this.game = game;
+        this.engine = engine;
+        this.threads = threads;
+    }
+
+    /**
+     * Seed the search of each position from the given seed and the index of the position, so that (for engines bounded
+     * by iterations) the results are the same in every run, whatever the number of threads.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Analyze the positions of the input, writing one line of output for each.
+     *
+     * @param input  the positions, one per line.
+     * @param output the destination of the results.
+     * @param skip   the number of positions at the start of the input which have already been analyzed.
+     * @return the number of positions analyzed.
+     */
+    public long run(BufferedReader input, Writer output, long skip) throws IOException, InterruptedException {
+        for (long i = 0; i < skip; i++)
+            if (input.readLine() == null) return 0;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ThreadLocal<GmkMCTS> engines = ThreadLocal.withInitial(engine::create);
+        Deque<Future<String>> pending = new ArrayDeque<>();
+        int window = threads * WINDOW_PER_THREAD;
+        long index = skip;
+        long written = skip;
+        try {
+            String line;
+            while ((line = input.readLine()) != null) {
+                final long position = index++;
+                final String record = line;
+                pending.add(executor.submit(() -> analyze(engines.get(), position, record)));
+                if (pending.size() >= window) output.write(result(pending.remove(), written++));
+            }
+            while (!pending.isEmpty()) output.write(result(pending.remove(), written++));
+            output.flush();
+        } finally {
+            executor.shutdownNow();
+        }
+        return index - skip;
+    }
+
+    /**
+     * Analyze the positions of the input file, appending to the output file:
+     * if the output already has results (from an interrupted run), their positions are skipped.
+     *
+     * @return the number of positions analyzed by this run.
+     */
+    public long run(Path input, Path output) throws IOException, InterruptedException {
+        long done = completedLines(output);
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            return run(reader, writer, done);
+        }
+    }
+
+    /**
+     * Count the complete lines of a file, first truncating any incomplete last line (as left by an interruption).
+     *
+     * @return the number of lines, 0 if there is no such file.
+     */
+    static long completedLines(Path file) throws IOException {
+        if (!Files.exists(file)) return 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            long lines = 0;
+            long end = 0;   // the end of the last complete line
+            long offset = 0;
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    offset++;
+                    if (buffer.get() == '\n') {
+                        lines++;
+                        end = offset;
+                    }
+                }
+                buffer.clear();
+            }
+            if (end < channel.size()) channel.truncate(end);
+            return lines;
+        }
+    }
+
+    private String analyze(GmkMCTS mcts, long index, String line) {
+        GmkState state;
+        try {
+            state = parse(game, line);
+        } catch (IllegalArgumentException e) {
+            return index + " ERR " + e.getMessage() + "\n";
+        }
+        if (state.isTerminal()) return index + " ERR game over\n";
+        // Each position is searched afresh, so that its result does not depend on which position the worker did before
+        mcts.resume(null);
+        if (seed != null) mcts.setSeed(new RandomState(1, seed + index).longValue());
+        GmkMove move = mcts.findBestMove(state);
+        StringBuilder result = new StringBuilder().append(index).append(' ')
+                .append(move.getRow()).append('-').append(move.getCol())
+                .append(" iterations=").append(mcts.getLastIterations());
+        if (mcts.getLastIterations() > 0) result.append(' ').append(GmkAnalysis.of(mcts.getCurrentRootNode()).format());
+        mcts.resume(null);
+        return result.append('\n').toString();
+    }
+
+    // The result line of the position with the given index: an ERR line if its analysis failed
+    private static String result(Future<String> future, long index) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            String message = cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+            return index + " ERR " + message.replace('\n', ' ') + "\n";
+        }
+    }
+
+    /**
+     * Play out a move list (e.g. "7-7 6-8 8-8") from the start of the game.
+     *
+     * @throws IllegalArgumentException if the line is not a legal sequence of moves.
+     */
+    static GmkState parse(GmkGame game, String line) {
+        GmkState state = game.start();
+        for (String move : line.trim().split("\\s+")) {
+            if (move.isEmpty()) continue;
+            String[] rowCol = move.split("-");
+            if (rowCol.length != 2) throw new IllegalArgumentException("bad move: " + move);
+            try {
+                state = (GmkState) state.next(new GmkMove(state.player(), Integer.parseInt(rowCol[0]), Integer.parseInt(rowCol[1])));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad move: " + move);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(e.getMessage() + ": " + move);
+            }
+        }
+        return state;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String in = null;
+        String out = null;
+        String engine = "batch:iterations=1000";
+        int size = GmkGame.DEFAUTL_SIZE;
+        Integer rows = null;
+        Integer cols = null;
+        int k = GmkGame.DEFAULT_WIN_LENGTH;
+        GmkGame.Rule rule = GmkGame.Rule.FREESTYLE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Long seed = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--in" -> in = args[++i];
+                case "--out" -> out = args[++i];
+                case "--engine" -> engine = args[++i];
+                case "--size" -> size = Integer.parseInt(args[++i]);
+                case "--rows" -> rows = Integer.parseInt(args[++i]);
+                case "--cols" -> cols = Integer.parseInt(args[++i]);
+                case "--k" -> k = Integer.parseInt(args[++i]);
+                case "--rule" -> rule = GmkGame.Rule.valueOf(args[++i].toUpperCase().replace('-', '_'));
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                default -> throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+        if (in == null || out == null) throw new IllegalArgumentException("usage: GmkBatchAnalyzer --in file --out file [options]");
+
+        GmkGame game = new GmkGame(rows == null ? size : rows, cols == null ? size : cols, k, rule, GmkGame.Opening.STANDARD);
+        GmkBatchAnalyzer analyzer = new GmkBatchAnalyzer(game, GmkTournament.Engine.parse(engine), threads);
+        if (seed != null) analyzer.setSeed(seed);
+        long start = System.currentTimeMillis();
+        long positions = analyzer.run(Paths.get(in), Paths.get(out));
+        long millis = Math.max(1, System.currentTimeMillis() - start);
+        System.out.println("Analyzed " + positions + " positions in " + millis + "ms (" + positions * 1000 / millis + " per second)");
+    }
+}
@@ -0,0 +1,72 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.RolloutPolicy;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Rollout policy which plays a few plies with another policy and then stops,
+ * valuing the position it has reached with a static evaluator instead of playing on to the end.
+ */
+public class GmkCutoffRollout implements RolloutPolicy<GmkGame> {
+    private final RolloutPolicy<GmkGame> policy;
+    private final int horizon;
+    private final ToDoubleFunction<GmkState> evaluator;
+
+    /**
+     * @param policy    the policy which chooses the moves.
+     * @param horizon   the number of plies after which the rollout stops.
+     * @param evaluator the estimated probability that the player to move in a (non-terminal) state wins.
+     */
+    public GmkCutoffRollout(RolloutPolicy<GmkGame> policy, int horizon, ToDoubleFunction<GmkState> evaluator) {
+        this.policy = policy;
+        this.horizon = horizon;
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Cut off after the given number of plies and value the position with GmkHeuristics.winProbability.
+     */
+    public GmkCutoffRollout(RolloutPolicy<GmkGame> policy, int horizon) {
+        this(policy, horizon, GmkHeuristics::winProbability);
+    }
+
+    @Override
+    public Move<GmkGame> choose(State<GmkGame> state, Random random) {
+        return policy.choose(state, random);
+    }
+
+    @Override
+    public int horizon() {
+        return horizon;
+    }
+
+    @Override
+    public double evaluate(State<GmkGame> state, int player) {
+        if (state.isTerminal()) return RolloutPolicy.super.evaluate(state, player);
+        double toMove = evaluator.applyAsDouble((GmkState) state);
+        return state.player() == player ? toMove : 1 - toMove;
+    }
+
+    /**
+     * An even quicker (and coarser) estimate than GmkHeuristics.winProbability, from the line masks: the player to move wins if they have a four;
+     * they (probably) lose if the opponent has two fours; otherwise the balance of threes decides.
+     *
+     * @return the estimated probability that the player to move wins.
+     */
+    public static double threatEstimate(GmkState state) {
+        GmkLines lines = state.getLines();
+        int player = state.player();
+        if (lines.fours(player) > 0) return 0.95;
+        if (lines.fours(1 - player) > 1) return 0.1;
+        int balance = lines.threes(player) - lines.threes(1 - player);
+        return 1 / (1 + Math.exp(-0.5 * balance));
+    }
+
+    public String toString() {
+        return "cutoff(" + policy + ", horizon=" + horizon + ")";
+    }
+}
@@ -0,0 +1,118 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import jdk.jfr.*;
+
+/**
+ * JDK Flight Recorder events for the phases of a GmkMCTS search, for analysing slow moves with standard JFR tooling
+ * (e.g. java -XX:StartFlightRecording:filename=gomoku.jfr ..., then jfr print --categories Gomoku gomoku.jfr).
+ * <p>
+ * When no recording is running, an event costs no more than the allocation of the (unused) event object,
+ * and the per-iteration events (TreeGrowth and Throughput) are not even created.
+ */
+public final class GmkEvents {
+    static final int CHECKPOINT_ITERATIONS = 1000;      // the interval between TreeGrowth events
+    static final long THROUGHPUT_SAMPLE_MILLIS = 100;   // the interval between Throughput events
+
+    private GmkEvents() {
+    }
+
+    @Name("com.phasmidsoftware.gomoku.Search")
+    @Label("MCTS Search")
+    @Description("A search for a move by GmkMCTS, from the shortcuts to the choice of move")
+    @Category({"Gomoku", "MCTS"})
+    public static class Search extends Event {
+        @Label("Move Number")
+        int moveNumber;
+
+        @Label("Board Size")
+        int boardSize;
+
+        @Label("Iterations")
+        int iterations;
+
+        @Label("Nodes Created")
+        int nodes;
+
+        @Label("Depth")
+        @Description("The greatest depth below the root reached by selection")
+        int depth;
+
+        @Label("Iteration Budget")
+        int maxIterations;
+
+        @Label("Time Budget")
+        @Timespan(Timespan.MILLISECONDS)
+        long maxMillis;
+
+        @Label("Budget Used")
+        @Description("The greater of the fractions of the iteration and time budgets used")
+        @Percentage
+        double budgetUsed;
+
+        @Label("Shortcut")
+        @Description("True if the move was chosen without searching the tree")
+        boolean shortcut;
+
+        @Label("Move")
+        String move;
+    }
+
+    @Name("com.phasmidsoftware.gomoku.Shortcut")
+    @Label("MCTS Shortcut")
+    @Description("The checks made before searching: the opening book, the first move and the blocking move")
+    @Category({"Gomoku", "MCTS"})
+    public static class Shortcut extends Event {
+        @Label("Kind")
+        @Description("book, first or block: the shortcut taken, or none")
+        String kind;
+
+        @Label("Move")
+        String move;
+
+        // Commit this event (if it is wanted) for the given kind of shortcut, and return the move
+        GmkMove taken(String kind, GmkMove move) {
+            if (shouldCommit()) {
+                this.kind = kind;
+                this.move = move == null ? null : move.getRow() + "," + move.getCol();
+                commit();
+            }
+            return move;
+        }
+    }
+
+    @Name("com.phasmidsoftware.gomoku.TreeGrowth")
+    @Label("MCTS Tree Growth")
+    @Description("A checkpoint of the size of the search tree, every " + CHECKPOINT_ITERATIONS + " iterations")
+    @Category({"Gomoku", "MCTS"})
+    @StackTrace(false)
+    public static class TreeGrowth extends Event {
+        @Label("Iterations")
+        int iterations;
+
+        @Label("Nodes Created")
+        int nodes;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Live Nodes")
+        @Description("The nodes in the tree, if it is bounded by a node pool (otherwise -1)")
+        int live;
+    }
+
+    @Name("com.phasmidsoftware.gomoku.Throughput")
+    @Label("MCTS Throughput")
+    @Description("The iterations run in a sample interval of a search")
+    @Category({"Gomoku", "MCTS"})
+    @StackTrace(false)
+    public static class Throughput extends Event {
+        @Label("Iterations")
+        int iterations;
+
+        @Label("Iterations per Second")
+        double rate;
+    }
+
+    static final EventType treeGrowthType = EventType.getEventType(TreeGrowth.class);
+    static final EventType throughputType = EventType.getEventType(Throughput.class);
+}
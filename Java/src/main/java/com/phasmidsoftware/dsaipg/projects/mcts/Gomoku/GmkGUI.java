@@ -2,7 +2,6 @@ package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
 
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
-import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
 
 import javax.swing.*;
 import java.awt.*;
@@ -12,15 +11,22 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
 
 public class GmkGUI extends JFrame{
     private final int CELL_SIZE = 40;
     private final int MARGIN = 30;
+    private static final long SNAPSHOT_INTERVAL_MILLIS = 200;
 
     private GmkGame game;
     private GmkState currentState;
     private final GmkMCTS ai;
 
+    private final ExecutorService aiExecutor;  // runs the AI searches off the EDT
+    private GmkSearch currentSearch;           // the AI search in progress, if any
+
     private final JLabel statusLabel;
     private final BoardPanel boardPanel;
     private boolean playerTurn; // true for player, false for AI
@@ -37,6 +43,16 @@ public class GmkGUI extends JFrame{
         game = new GmkGame();               // Default 15x15 board
         BOARD_SIZE = game.getSize();
         ai = new GmkMCTS(1000); // 1000 iterations for MCTS
+        // Bound the tree, which otherwise grows for as long as the player takes to move while the AI ponders
+        ai.setNodePool(GmkNodePool.forMemory(Runtime.getRuntime().maxMemory() / 4, BOARD_SIZE));
+        // The panel draws only from snapshots published by the search, never from the live tree
+        ai.setSnapshotListener(this::updateMCTSVisualization, SNAPSHOT_INTERVAL_MILLIS);
+        ai.getAnalysisPublisher().subscribe(new AnalysisSubscriber());
+        aiExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gomoku-ai");
+            thread.setDaemon(true);
+            return thread;
+        });
 
         // Setup GUI
         setTitle("Gomoku Game");
@@ -65,8 +81,14 @@ public class GmkGUI extends JFrame{
         JPanel controlPanel = new JPanel();
         JButton newGameBtn = new JButton("New Game");
         newGameBtn.addActionListener(e -> showNewGameDialog());
+        JButton moveNowBtn = new JButton("Move Now");
+        moveNowBtn.addActionListener(e -> {
+            // Ask the AI to play the best move it has found so far
+            if (currentSearch != null) currentSearch.stop();
+        });
 
         controlPanel.add(newGameBtn);
+        controlPanel.add(moveNowBtn);
 
         // Add components to the frame
         getContentPane().setLayout(new BorderLayout());
@@ -189,83 +211,13 @@ public class GmkGUI extends JFrame{
             // Update status
             statusLabel.setText("AI is thinking...");
 
-            // Use a new Thread for AI move to not block the UI
-            new Thread(() -> {
-                try {
-                    // Add a small delay so the UI can update
-                    Thread.sleep(100);
-
-                    // Make AI move
-                    GmkMove aiMove = null;
-                    try {
-                        // Find best move using MCTS - this will build the tree
-                        aiMove = ai.findBestMove(currentState);
-                        System.out.println("AI chose move: " + aiMove);
-
-                        // Get root node from AI for visualization
-                        GmkNode rootNode = ai.getCurrentRootNode();
-
-                        // Update MCTS visualization with the root node
-                        updateMCTSVisualization(rootNode);
-
-                    } catch (Exception e) {
-                        System.err.println("Error in AI move calculation: " + e.getMessage());
-                        e.printStackTrace();
-
-                        // Fallback: make a random move
-                        Collection<Move<GmkGame>> moves = currentState.moves(AI_PLAYER);
-                        ArrayList<Move<GmkGame>> moveList = new ArrayList<>(moves);
-                        if (!moveList.isEmpty()) {
-                            int randomIndex = (int) (Math.random() * moveList.size());
-                            Move<GmkGame> randomMove = moveList.get(randomIndex);
-                            if (randomMove instanceof GmkMove) {
-                                aiMove = (GmkMove) randomMove;
-                                System.out.println("Using random move instead: " + aiMove);
-                            }
-                        }
-                    }
-
-                    if (aiMove != null) {
-                        final GmkMove finalAiMove = aiMove;
-
-                        // Update UI on the EDT
-                        SwingUtilities.invokeLater(() -> {
-                            try {
-                                currentState = (GmkState) currentState.next(finalAiMove);
-                                boardPanel.repaint();
-
-                                // Check if the game is over after the AI move
-                                if (!checkGameOver()) {
-                                    String playerColor = (HUMAN_PLAYER == 0) ? "Black" : "White";
-                                    statusLabel.setText("Your turn (" + playerColor + ")");
-                                }
-                            } catch (Exception e) {
-                                System.err.println("Error applying AI move: " + e.getMessage());
-                                e.printStackTrace();
-                                statusLabel.setText("Error during AI move. Your turn.");
-                            }
-
-                            // Always set player turn to true to avoid deadlock
-                            playerTurn = true;
-                        });
-                    } else {
-                        // If AI couldn't make a move
-                        SwingUtilities.invokeLater(() -> {
-                            statusLabel.setText("AI couldn't find a valid move. Your turn.");
-                            playerTurn = true;
-                        });
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error in AI move thread: " + e.getMessage());
-                    e.printStackTrace();
-
-                    // Update UI on the EDT
-                    SwingUtilities.invokeLater(() -> {
-                        statusLabel.setText("Error during AI move. Your turn.");
-                        playerTurn = true;
-                    });
-                }
-            }).start();
+            // Search on the AI executor so as not to block the UI; the best move so far is shown while the AI thinks
+            GmkSearch search = ai.startSearch(currentState, aiExecutor, 500, move -> SwingUtilities.invokeLater(() -> {
+                if (!playerTurn)
+                    statusLabel.setText("AI is thinking... best so far (" + move.getRow() + "," + move.getCol() + ")");
+            }));
+            currentSearch = search;
+            search.result().whenComplete((aiMove, error) -> SwingUtilities.invokeLater(() -> applyAIMove(search, aiMove, error)));
 
         } catch (IllegalArgumentException e) {
             // Invalid move
@@ -273,10 +225,63 @@ public class GmkGUI extends JFrame{
         }
     }
 
-    private void updateMCTSVisualization(GmkNode rootNode) {
-        // Update the MCTS visualization panel with the root node
+    // Apply the result of an AI search (on the EDT)
+    private void applyAIMove(GmkSearch search, GmkMove aiMove, Throwable error) {
+        if (search != currentSearch) return; // the game was reset while the AI was thinking
+        currentSearch = null;
+        boardPanel.setAnalysis(null);
+
+        if (error != null) {
+            System.err.println("Error in AI move calculation: " + error.getMessage());
+            error.printStackTrace();
+
+            // Fallback: make a random move
+            aiMove = null;
+            Collection<Move<GmkGame>> moves = currentState.moves(AI_PLAYER);
+            ArrayList<Move<GmkGame>> moveList = new ArrayList<>(moves);
+            if (!moveList.isEmpty()) {
+                int randomIndex = (int) (Math.random() * moveList.size());
+                Move<GmkGame> randomMove = moveList.get(randomIndex);
+                if (randomMove instanceof GmkMove) {
+                    aiMove = (GmkMove) randomMove;
+                    System.out.println("Using random move instead: " + aiMove);
+                }
+            }
+        } else {
+            System.out.println("AI chose move: " + aiMove);
+        }
+
+        if (aiMove != null) {
+            try {
+                currentState = (GmkState) currentState.next(aiMove);
+                boardPanel.repaint();
+
+                // Check if the game is over after the AI move
+                if (!checkGameOver()) {
+                    String playerColor = (HUMAN_PLAYER == 0) ? "Black" : "White";
+                    statusLabel.setText("Your turn (" + playerColor + ")");
+
+                    // Keep thinking while the player decides on a reply
+                    ai.startPondering(currentState, aiExecutor);
+                }
+            } catch (Exception e) {
+                System.err.println("Error applying AI move: " + e.getMessage());
+                e.printStackTrace();
+                statusLabel.setText("Error during AI move. Your turn.");
+            }
+        } else {
+            // If AI couldn't make a move
+            statusLabel.setText("AI couldn't find a valid move. Your turn.");
+        }
+
+        // Always set player turn to true to avoid deadlock
+        playerTurn = true;
+    }
+
+    // Called on the search thread with each snapshot of the tree
+    private void updateMCTSVisualization(GmkTreeSnapshot snapshot) {
         SwingUtilities.invokeLater(() -> {
-            mctsPanel.setRootNode(rootNode);
+            mctsPanel.setSnapshot(snapshot);
             mctsPanel.repaint();
         });
     }
@@ -313,6 +318,12 @@ public class GmkGUI extends JFrame{
     }
 
     private void resetGame() {
+        if (currentSearch != null) {
+            currentSearch.cancel();
+            currentSearch = null;
+        }
+        ai.stopPondering();
+        boardPanel.setAnalysis(null);
         game = new GmkGame();
         currentState = new GmkState(game);
         playerTurn = (HUMAN_PLAYER == 0); // Player goes first if they are black
@@ -322,13 +333,45 @@ public class GmkGUI extends JFrame{
 
         // Reset MCTS visualization
         if (mctsPanel != null) {
-            mctsPanel.setRootNode(null);
+            mctsPanel.setSnapshot(null);
             mctsPanel.repaint();
         }
     }
 
+    // Receives the analysis updates of the AI's searches, and shows them on the board while the AI is thinking
+    private class AnalysisSubscriber implements Flow.Subscriber<GmkAnalysis> {
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(GmkAnalysis analysis) {
+            SwingUtilities.invokeLater(() -> {
+                if (currentSearch == null) return;  // e.g. pondering
+                boardPanel.setAnalysis(analysis);
+                boardPanel.repaint();
+            });
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            System.err.println("Analysis updates failed: " + throwable.getMessage());
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
     // Panel for drawing the board
     private class BoardPanel extends JPanel {
+        private GmkAnalysis analysis;   // the latest analysis of the AI's search, if it is thinking (accessed only on the EDT)
+
+        void setAnalysis(GmkAnalysis analysis) {
+            this.analysis = analysis;
+        }
+
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
@@ -372,6 +415,20 @@ public class GmkGUI extends JFrame{
                 }
             }
 
+            // Shade each candidate move by its share of the AI's playouts so far
+            if (analysis != null) {
+                int max = Math.max(1, analysis.maxVisits());
+                for (int row = 0; row < BOARD_SIZE; row++) {
+                    for (int col = 0; col < BOARD_SIZE; col++) {
+                        int visits = analysis.visits(row, col);
+                        if (visits == 0) continue;
+                        g2.setColor(new Color(255, 0, 0, 40 + 180 * visits / max));
+                        g2.fillRect(MARGIN + col * CELL_SIZE - CELL_SIZE / 2 + 2, MARGIN + row * CELL_SIZE - CELL_SIZE / 2 + 2,
+                                CELL_SIZE - 4, CELL_SIZE - 4);
+                    }
+                }
+            }
+
             // Draw stones at intersection points (not cell centers)
             int[][] board = currentState.getBoard();
             for (int row = 0; row < BOARD_SIZE; row++) {
@@ -411,6 +468,19 @@ public class GmkGUI extends JFrame{
                 }
             }
 
+            // Number the moves of the principal variation
+            if (analysis != null) {
+                g2.setFont(new Font("Arial", Font.BOLD, 14));
+                List<GmkMove> line = analysis.principalVariation();
+                for (int i = 0; i < line.size(); i++) {
+                    GmkMove move = line.get(i);
+                    String label = Integer.toString(i + 1);
+                    g2.setColor(move.player() == 0 ? Color.BLACK : Color.WHITE);
+                    g2.drawString(label, MARGIN + move.getCol() * CELL_SIZE - g2.getFontMetrics().stringWidth(label) / 2,
+                            MARGIN + move.getRow() * CELL_SIZE + 5);
+                }
+            }
+
             // Highlight the last move if there's any
             if (!currentState.getMoveHistory().isEmpty()) {
                 GmkMove lastMove = currentState.getMoveHistory().get(currentState.getMoveHistory().size() - 1);
@@ -432,7 +502,7 @@ public class GmkGUI extends JFrame{
 
     // Panel for visualizing the MCTS tree
     private class MCTSVisualizationPanel extends JPanel {
-        private GmkNode rootNode;
+        private GmkTreeSnapshot snapshot;   // the latest snapshot of the tree (accessed only on the EDT)
         private final int NODE_SIZE = 30;
         private final int LEVEL_HEIGHT = 80;
         private final int HORIZONTAL_GAP = 50;
@@ -441,8 +511,8 @@ public class GmkGUI extends JFrame{
             setBackground(Color.WHITE);
         }
 
-        public void setRootNode(GmkNode node) {
-            this.rootNode = node;
+        public void setSnapshot(GmkTreeSnapshot snapshot) {
+            this.snapshot = snapshot;
         }
 
         @Override
@@ -451,7 +521,7 @@ public class GmkGUI extends JFrame{
             Graphics2D g2 = (Graphics2D) g;
             g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-            if (rootNode == null) {
+            if (snapshot == null) {
                 g2.setColor(Color.BLACK);
                 g2.setFont(new Font("Arial", Font.BOLD, 16));
                 g2.drawString("No MCTS tree available yet", 20, 30);
@@ -459,18 +529,18 @@ public class GmkGUI extends JFrame{
             }
 
             // Draw the tree structure
-            drawNode(g2, rootNode, getWidth() / 2, 50, 0);
+            drawNode(g2, snapshot, getWidth() / 2, 50, 0);
 
             // Draw legend and information
             drawLegend(g2);
         }
 
-        private void drawNode(Graphics2D g2, GmkNode node, int x, int y, int level) {
+        private void drawNode(Graphics2D g2, GmkTreeSnapshot node, int x, int y, int level) {
             // Only draw up to 5 levels (level 0-4)
             if (level > 4) return;
 
             // Node appearance based on visits and win rate
-            double winRate = node.playouts() > 0 ? (double) node.wins() / node.playouts() : 0;
+            double winRate = node.meanReward();
             Color nodeColor;
 
             if (level == 0) {
@@ -490,41 +560,26 @@ public class GmkGUI extends JFrame{
 
             // Draw node information
             g2.setFont(new Font("Arial", Font.PLAIN, 10));
-            String nodeInfo = node.playouts() + "/" + node.wins();
+            String nodeInfo = node.playouts() + "/" + Math.round(winRate * node.playouts());
             int textWidth = g2.getFontMetrics().stringWidth(nodeInfo);
             g2.drawString(nodeInfo, x - textWidth/2, y + 4);
 
             // Draw move information if not root
-            if (level > 0) {
-                GmkState state = (GmkState) node.state();
-                if (!state.getMoveHistory().isEmpty()) {
-                    GmkMove lastMove = state.getMoveHistory().get(state.getMoveHistory().size() - 1);
-                    String moveStr = "(" + lastMove.getRow() + "," + lastMove.getCol() + ")";
-                    g2.drawString(moveStr, x - textWidth/2, y - NODE_SIZE/2 - 5);
-                }
+            if (level > 0 && node.move() != null) {
+                GmkMove lastMove = node.move();
+                String moveStr = "(" + lastMove.getRow() + "," + lastMove.getCol() + ")";
+                g2.drawString(moveStr, x - textWidth/2, y - NODE_SIZE/2 - 5);
             }
 
-            // Draw children
-            List<Node<GmkGame>> children = node.children();
+            // Draw children (the snapshot holds the most visited, in order, at most 5 per node for clarity)
+            List<GmkTreeSnapshot> children = node.children();
             if (!children.isEmpty() && level < 4) {
-                // Sort children by playouts
-                List<GmkNode> sortedChildren = new ArrayList<>();
-                for (Node<GmkGame> child : children) {
-                    if (child instanceof GmkNode) {
-                        sortedChildren.add((GmkNode) child);
-                    }
-                }
-
-                // Sort by playouts in descending order
-                sortedChildren.sort((a, b) -> Integer.compare(b.playouts(), a.playouts()));
-
-                // Limit to max 5 children per node for clarity
-                int maxChildren = Math.min(5, sortedChildren.size());
+                int maxChildren = children.size();
                 int totalWidth = (maxChildren - 1) * HORIZONTAL_GAP;
                 int startX = x - totalWidth / 2;
 
                 for (int i = 0; i < maxChildren; i++) {
-                    GmkNode child = sortedChildren.get(i);
+                    GmkTreeSnapshot child = children.get(i);
                     int childX = startX + i * HORIZONTAL_GAP;
                     int childY = y + LEVEL_HEIGHT;
 
@@ -537,9 +592,9 @@ public class GmkGUI extends JFrame{
                 }
 
                 // Indicate if there are more children
-                if (sortedChildren.size() > maxChildren) {
+                if (node.hiddenChildren() > 0) {
                     g2.setColor(Color.BLACK);
-                    g2.drawString("+" + (sortedChildren.size() - maxChildren) + " more",
+                    g2.drawString("+" + node.hiddenChildren() + " more",
                             x + totalWidth/2 + 10, y + LEVEL_HEIGHT/2);
                 }
             }
@@ -2,20 +2,114 @@ package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
 
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Game;
 
+import java.util.Random;
+
 public class GmkGame implements Game<GmkGame>{
-    private final int size;     // game board size
+    private final int rows;     // game board size (rows x cols)
+    private final int cols;
+    private final int winLength;    // the number in a row which wins
+    private final Rule rule;
+    private final Opening opening;
+    private final GmkGeometry geometry; // line tables for this board and rule, shared by all states
+    private final long[] zobrist;   // random keys for each (player, cell), used to hash positions
     public static final int DEFAUTL_SIZE = 15;
+    public static final int DEFAULT_WIN_LENGTH = 5;
+    public static final int MAX_SIZE = 32;
+    private static final long ZOBRIST_SEED = 0x5EEDB0A2DL;
+
+    /**
+     * Which lines of winLength stones win.
+     */
+    public enum Rule {
+        /** winLength or more in a row wins. */
+        FREESTYLE,
+        /** Exactly winLength in a row wins, for both players: overlines do not. */
+        EXACT,
+        /** Renju-lite: overlines do not win for black (player 0) but do win for white. */
+        RENJU_LITE
+    }
+
+    /**
+     * How the game opens.
+     */
+    public enum Opening {
+        /** Black moves first and the players alternate. */
+        STANDARD,
+        /**
+         * Swap2: the opener places the first three stones (black, white, black); the other player then chooses a colour,
+         * or places two more stones and leaves the choice to the opener. See GmkState.isColourChoice.
+         */
+        SWAP2
+    }
+
+    /**
+     * @param rows      the number of rows of the board (at most MAX_SIZE).
+     * @param cols      the number of columns of the board (at most MAX_SIZE).
+     * @param winLength the number in a row which wins.
+     * @param rule      which lines of winLength stones win.
+     * @param opening   how the game opens.
+     */
+    public GmkGame(int rows, int cols, int winLength, Rule rule, Opening opening) {
+        if (rows < 1 || rows > MAX_SIZE || cols < 1 || cols > MAX_SIZE)
+            throw new IllegalArgumentException("board must be between 1x1 and " + MAX_SIZE + "x" + MAX_SIZE + ": " + rows + "x" + cols);
+        if (winLength < 2 || winLength > MAX_SIZE)
+            throw new IllegalArgumentException("win length must be between 2 and " + MAX_SIZE + ": " + winLength);
+        this.rows = rows;
+        this.cols = cols;
+        this.winLength = winLength;
+        this.rule = rule;
+        this.opening = opening;
+        this.geometry = new GmkGeometry(rows, cols, winLength, rule);
+        // The keys depend only on the board shape, so position hashes are stable across runs (e.g. for opening books)
+        Random random = new Random(ZOBRIST_SEED + (rows == cols ? rows : MAX_SIZE * MAX_SIZE * rows + cols));
+        this.zobrist = new long[2 * rows * cols];
+        for (int i = 0; i < zobrist.length; i++) zobrist[i] = random.nextLong();
+    }
 
     public GmkGame(int size) {
-        this.size = size;
+        this(size, size, DEFAULT_WIN_LENGTH, Rule.FREESTYLE, Opening.STANDARD);
     }
 
     public GmkGame() {
         this(DEFAUTL_SIZE);
     }
 
+    /**
+     * @return the number of rows (for a square board, its size).
+     */
     public int getSize() {
-        return this.size;
+        return this.rows;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public Rule getRule() {
+        return rule;
+    }
+
+    public Opening getOpening() {
+        return opening;
+    }
+
+    public GmkGeometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * @return the Zobrist key of a stone of the given player (0 or 1) at (row, col).
+     */
+    public long zobrist(int player, int row, int col) {
+        return zobrist[(player * rows + row) * cols + col];
     }
 
     @Override
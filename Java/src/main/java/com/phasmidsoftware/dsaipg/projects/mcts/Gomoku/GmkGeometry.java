@@ -0,0 +1,182 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+/**
+ * The shape of a Gomoku board and its winning rule, specialized once per GmkGame so that
+ * the checks made during rollouts need no further configuration lookups.
+ * <p>
+ * Cells are numbered row * cols + col. The lines of the board are numbered: rows (bit = column),
+ * then columns (bit = row), then diagonals with col - row = i - (rows - 1) (bit = row),
+ * then anti-diagonals with row + col = i (bit = row).
+ * <p>
+ * For walks over the board, each cell also has its neighbour in each of the eight DIRECTIONS. A neighbour off the board
+ * is the sentinel cell (index getCells()), whose value in a state's flat cell array is BORDER and whose neighbours are itself,
+ * so a walk stops at the edge without bounds checks.
+ */
+public class GmkGeometry {
+    public static final int HORIZONTAL = 0;
+    public static final int VERTICAL = 1;
+    public static final int DIAGONAL = 2;
+    public static final int ANTI_DIAGONAL = 3;
+
+    /**
+     * The (row, col) steps of the eight directions: the four line directions above, then their opposites (direction + 4).
+     */
+    public static final int[][] DIRECTIONS = {
+            {0, 1}, {1, 0}, {1, 1}, {1, -1},
+            {0, -1}, {-1, 0}, {-1, -1}, {-1, 1}
+    };
+
+    /**
+     * The value of the sentinel cell, which matches no player.
+     */
+    public static final int BORDER = -1;
+
+    private final int rows;
+    private final int cols;
+    private final int winLength;
+    private final boolean[] exact;      // for each player, whether an overline (longer than winLength) fails to win
+    private final int lineCount;
+    private final int[] firstLine;      // the first line of each direction
+    private final long[] valid;         // the bits of each line which correspond to cells of the board
+    private final int[][] lineOf;       // for each direction and cell, the line through the cell
+    private final int[][] bitOf;        // for each direction and cell, the bit of the cell in that line
+    private final int[][] neighbor;     // for each of the eight directions and each cell (and the sentinel), the next cell
+    private final int[] positionScore;  // for each cell, the bonus for closeness to the centre, less the edge penalty
+
+    GmkGeometry(int rows, int cols, int winLength, GmkGame.Rule rule) {
+        this.rows = rows;
+        this.cols = cols;
+        this.winLength = winLength;
+        this.exact = new boolean[]{rule != GmkGame.Rule.FREESTYLE, rule == GmkGame.Rule.EXACT};
+        int diagonals = rows + cols - 1;
+        this.firstLine = new int[]{0, rows, rows + cols, rows + cols + diagonals};
+        this.lineCount = rows + cols + 2 * diagonals;
+        this.valid = new long[lineCount];
+        for (int row = 0; row < rows; row++) valid[row] = bits(0, cols - 1);
+        for (int col = 0; col < cols; col++) valid[rows + col] = bits(0, rows - 1);
+        for (int i = 0; i < diagonals; i++) {
+            int k = i - (rows - 1);     // col - row
+            valid[firstLine[DIAGONAL] + i] = bits(Math.max(0, -k), Math.min(rows - 1, cols - 1 - k));
+            valid[firstLine[ANTI_DIAGONAL] + i] = bits(Math.max(0, i - (cols - 1)), Math.min(rows - 1, i));
+        }
+        this.lineOf = new int[4][rows * cols];
+        this.bitOf = new int[4][rows * cols];
+        for (int row = 0; row < rows; row++)
+            for (int col = 0; col < cols; col++) {
+                int cell = row * cols + col;
+                lineOf[HORIZONTAL][cell] = row;
+                bitOf[HORIZONTAL][cell] = col;
+                lineOf[VERTICAL][cell] = rows + col;
+                bitOf[VERTICAL][cell] = row;
+                lineOf[DIAGONAL][cell] = firstLine[DIAGONAL] + col - row + rows - 1;
+                bitOf[DIAGONAL][cell] = row;
+                lineOf[ANTI_DIAGONAL][cell] = firstLine[ANTI_DIAGONAL] + row + col;
+                bitOf[ANTI_DIAGONAL][cell] = row;
+            }
+
+        int sentinel = rows * cols;
+        this.neighbor = new int[DIRECTIONS.length][sentinel + 1];
+        for (int direction = 0; direction < DIRECTIONS.length; direction++) {
+            for (int cell = 0; cell < sentinel; cell++) {
+                int row = cell / cols + DIRECTIONS[direction][0];
+                int col = cell % cols + DIRECTIONS[direction][1];
+                neighbor[direction][cell] = row >= 0 && row < rows && col >= 0 && col < cols ? row * cols + col : sentinel;
+            }
+            neighbor[direction][sentinel] = sentinel;
+        }
+
+        this.positionScore = new int[sentinel];
+        for (int cell = 0; cell < sentinel; cell++) {
+            int row = cell / cols, col = cell % cols;
+            int score = 0;
+            // Penalize corner and edge positions; corners are worst
+            boolean rowEdge = row == 0 || row == rows - 1;
+            boolean colEdge = col == 0 || col == cols - 1;
+            if (rowEdge && colEdge) score -= 20;
+            else if (rowEdge || colEdge) score -= 10;
+            // Bonus for center proximity (better board control)
+            int distanceToCenter = Math.abs(row - rows / 2) + Math.abs(col - cols / 2);
+            positionScore[cell] = score + Math.max(0, 15 - distanceToCenter * 2);
+        }
+    }
+
+    // A mask with bits from..to (inclusive) set
+    private static long bits(int from, int to) {
+        return ((1L << (to + 1)) - 1) & -(1L << from);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getCells() {
+        return rows * cols;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * @return true if a line longer than the win length does not win for the given player.
+     */
+    public boolean isExact(int player) {
+        return exact[player];
+    }
+
+    /**
+     * @return the index of the sentinel cell, which lies beyond every edge of the board.
+     */
+    public int getSentinel() {
+        return rows * cols;
+    }
+
+    public int cell(int row, int col) {
+        return row * cols + col;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return the first line of the given direction (HORIZONTAL, VERTICAL, DIAGONAL or ANTI_DIAGONAL).
+     */
+    public int firstLine(int direction) {
+        return firstLine[direction];
+    }
+
+    /**
+     * @return the mask of the bits of the given line which are cells of the board.
+     */
+    public long valid(int line) {
+        return valid[line];
+    }
+
+    public int lineOf(int direction, int cell) {
+        return lineOf[direction][cell];
+    }
+
+    public int bitOf(int direction, int cell) {
+        return bitOf[direction][cell];
+    }
+
+    /**
+     * @return the table of the next cell in the given direction (one of DIRECTIONS), indexed by cell.
+     * NOTE: the table is shared and must not be modified.
+     */
+    public int[] neighbors(int direction) {
+        return neighbor[direction];
+    }
+
+    /**
+     * @return the positional part of a move's score: closeness to the centre less a penalty for edges and corners.
+     */
+    public int positionScore(int cell) {
+        return positionScore[cell];
+    }
+}
@@ -0,0 +1,316 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * GmkMCTS as a "brain" for the Gomocup protocol (as spoken by Piskvork and other tournament managers) over stdin/stdout.
+ * <p>
+ * Supported commands: START, RECTSTART, RESTART, BEGIN, TURN, BOARD ... DONE, TAKEBACK, INFO, ABOUT and END.
+ * Coordinates in the protocol are x,y, i.e. column then row.
+ * <p>
+ * Each move is searched within a budget derived from the turn and match clocks (see budgetMillis), measured from the
+ * moment the command was read. The position is updated one move at a time, so the engine keeps its search tree
+ * between moves (see GmkMCTS.findBestMove).
+ * <p>
+ * To run under a tournament manager, wrap the main program in an executable (e.g. pbrain-gmkmcts) which runs
+ * java -cp ... com.phasmidsoftware.dsaipg.projects.mcts.Gomoku.GmkGomocup
+ */
+public class GmkGomocup {
+    static final long DEFAULT_TIMEOUT_TURN = 5000;
+    static final long MIN_BUDGET_MILLIS = 10;      // the least time spent on a move, even when playing as fast as possible
+    static final long SAFETY_MILLIS = 30;          // kept back from each budget for the reply and the manager's overhead
+    static final int MIN_MOVES_TO_PLAN = 15;       // the match clock is shared between at least this many more moves
+
+    private final int iterations;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gomocup-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private GmkGame game;
+    private GmkState state;
+    private GmkMCTS mcts;
+    private GmkGame.Rule rule = GmkGame.Rule.FREESTYLE;
+    private long timeoutTurn = DEFAULT_TIMEOUT_TURN;   // 0 means play as fast as possible
+    private long timeoutMatch;                          // 0 means no limit
+    private long timeLeft = Long.MAX_VALUE;
+    private long maxMemory;                             // 0 means no limit
+    private List<int[]> boardStones;                    // the stones of a BOARD command, until DONE
+    private boolean ended;
+
+    /**
+     * @param iterations the maximum number of iterations per move (Integer.MAX_VALUE to be bounded by the clock alone).
+     */
+    public GmkGomocup(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public GmkGomocup() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Handle one line of input.
+     *
+     * @param line     the line.
+     * @param received the System.nanoTime() at which the line was read, from which the time for a move is measured.
+     * @return the lines to send in reply (possibly none).
+     */
+    public List<String> process(String line, long received) {
+        List<String> output = new ArrayList<>(2);
+        String trimmed = line.trim();
+        if (trimmed.isEmpty()) return output;
+        if (boardStones != null) {
+            if (trimmed.equalsIgnoreCase("DONE")) setUpBoard(output, received);
+            else {
+                int[] stone = coordinates(trimmed, 3);
+                if (stone == null) output.add("ERROR bad stone: " + trimmed);
+                else boardStones.add(stone);
+            }
+            return output;
+        }
+        int space = trimmed.indexOf(' ');
+        String command = (space < 0 ? trimmed : trimmed.substring(0, space)).toUpperCase();
+        String arguments = space < 0 ? "" : trimmed.substring(space + 1).trim();
+        switch (command) {
+            case "START" -> {
+                int size = parseInt(arguments, -1);
+                output.add(newGame(size, size));
+            }
+            case "RECTSTART" -> {
+                int[] size = coordinates(arguments, 2);
+                output.add(size == null ? "ERROR bad size: " + arguments : newGame(size[0], size[1]));
+            }
+            case "RESTART" -> output.add(game == null ? "ERROR no game" : newGame(game.getCols(), game.getRows()));
+            case "BEGIN" -> {
+                if (state == null) output.add("ERROR no game");
+                else move(output, received);
+            }
+            case "TURN" -> {
+                int[] xy = coordinates(arguments, 2);
+                if (state == null) output.add("ERROR no game");
+                else if (xy == null || !isEmpty(xy[0], xy[1])) output.add("ERROR bad move: " + arguments);
+                else {
+                    play(xy[0], xy[1]);
+                    move(output, received);
+                }
+            }
+            case "BOARD" -> {
+                if (state == null) output.add("ERROR no game");
+                else boardStones = new ArrayList<>();
+            }
+            case "TAKEBACK" -> output.add(takeBack(coordinates(arguments, 2)));
+            case "INFO" -> info(arguments);
+            case "ABOUT" -> output.add("name=\"GmkMCTS\", version=\"1.0\", description=\"Monte Carlo tree search\"");
+            case "END" -> ended = true;
+            default -> output.add("UNKNOWN " + command);
+        }
+        return output;
+    }
+
+    /**
+     * @return true once END has been received.
+     */
+    public boolean isEnded() {
+        return ended;
+    }
+
+    public GmkState getState() {
+        return state;
+    }
+
+    /**
+     * @return the engine of the current game (null before START).
+     */
+    public GmkMCTS getEngine() {
+        return mcts;
+    }
+
+    /**
+     * The time to spend on the next move: the turn limit, or the engine's share of what is left on the match clock
+     * (spread over the moves which may remain, but at least MIN_MOVES_TO_PLAN), whichever is less, less a safety margin.
+     *
+     * @return the budget in milliseconds (at least MIN_BUDGET_MILLIS).
+     */
+    long budgetMillis() {
+        long budget = timeoutTurn;
+        if (timeoutMatch > 0 && state != null) {
+            int empty = game.getRows() * game.getCols() - state.getMoveCount();
+            budget = Math.min(budget, timeLeft / Math.max(MIN_MOVES_TO_PLAN, empty / 2));
+        }
+        return Math.max(MIN_BUDGET_MILLIS, budget - Math.max(SAFETY_MILLIS, budget / 20));
+    }
+
+    private String newGame(int cols, int rows) {
+        if (cols < GmkGame.DEFAULT_WIN_LENGTH || rows < GmkGame.DEFAULT_WIN_LENGTH || cols > GmkGame.MAX_SIZE || rows > GmkGame.MAX_SIZE)
+            return "ERROR unsupported size: " + cols + "x" + rows;
+        game = new GmkGame(rows, cols, GmkGame.DEFAULT_WIN_LENGTH, rule, GmkGame.Opening.STANDARD);
+        state = game.start();
+        mcts = new GmkMCTS(iterations);
+        mcts.setVerbose(false);
+        limitMemory();
+        return "OK";
+    }
+
+    // Bound the engine's tree by the memory limit, keeping half of it for everything else
+    private void limitMemory() {
+        if (mcts != null)
+            mcts.setNodePool(maxMemory > 0 ? GmkNodePool.forMemory(maxMemory / 2, Math.max(game.getRows(), game.getCols())) : null);
+    }
+
+    private void info(String arguments) {
+        String[] words = arguments.split("\\s+", 2);
+        if (words.length < 2) return;
+        long value = parseLong(words[1]);
+        if (value < 0) return; // e.g. "folder" or a value we cannot read: ignored, as the protocol requires
+        switch (words[0].toLowerCase()) {
+            case "timeout_turn" -> timeoutTurn = value;
+            case "timeout_match" -> {
+                timeoutMatch = value;
+                if (timeLeft == Long.MAX_VALUE) timeLeft = value;
+            }
+            case "time_left" -> timeLeft = value;
+            case "max_memory" -> {
+                maxMemory = value;
+                limitMemory();
+            }
+            // Bit 0 of the rule is exactly five, bit 2 is renju (bit 1, a continuous game, does not affect the engine)
+            case "rule" -> {
+                rule = (value & 4) != 0 ? GmkGame.Rule.RENJU_LITE : (value & 1) != 0 ? GmkGame.Rule.EXACT : GmkGame.Rule.FREESTYLE;
+                // Managers send the rule after START: it applies to the new game as long as no stone has been played
+                if (game != null && game.getRule() != rule && state.getMoveCount() == 0) newGame(game.getCols(), game.getRows());
+            }
+            default -> {
+            }
+        }
+    }
+
+    // The stones of a BOARD command are marked 1 for our own and 2 (or 3) for the opponent's;
+    // they are replayed alternately, beginning with black's
+    private void setUpBoard(List<String> output, long received) {
+        List<int[]> stones = boardStones;
+        boardStones = null;
+        List<int[]> own = new ArrayList<>(), other = new ArrayList<>();
+        for (int[] stone : stones) (stone[2] == 1 ? own : other).add(stone);
+        if (own.size() != other.size() && own.size() + 1 != other.size()) {
+            output.add("ERROR the stones do not alternate: " + own.size() + " own, " + other.size() + " opponent's");
+            return;
+        }
+        // We are to move: if the counts are equal, we are black, otherwise the opponent is
+        List<int[]> first = own.size() == other.size() ? own : other;
+        List<int[]> second = first == own ? other : own;
+        state = game.start();
+        try {
+            for (int i = 0; i < first.size(); i++) {
+                play(first.get(i)[0], first.get(i)[1]);
+                if (i < second.size()) play(second.get(i)[0], second.get(i)[1]);
+            }
+        } catch (IllegalArgumentException e) {
+            output.add("ERROR bad board: " + e.getMessage());
+            return;
+        }
+        move(output, received);
+    }
+
+    private String takeBack(int[] xy) {
+        if (state == null || xy == null) return "ERROR bad takeback";
+        List<GmkMove> history = state.getMoveHistory();
+        if (history.isEmpty()) return "ERROR nothing to take back";
+        GmkMove last = history.get(history.size() - 1);
+        if (last.getCol() != xy[0] || last.getRow() != xy[1]) return "ERROR the last move was " + last.getCol() + "," + last.getRow();
+        GmkState previous = game.start();
+        for (GmkMove move : history.subList(0, history.size() - 1)) previous = (GmkState) previous.next(move);
+        state = previous;
+        return "OK";
+    }
+
+    // Search within the budget and play the chosen move
+    private void move(List<String> output, long received) {
+        if (state.isTerminal()) {
+            output.add("ERROR the game is over");
+            return;
+        }
+        long deadline = received + budgetMillis() * 1_000_000;
+        GmkSearch search = mcts.startSearch(state, executor, 0, null);
+        GmkMove move;
+        try {
+            move = search.result().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            search.stop();
+            move = search.result().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            search.cancel();
+            output.add("ERROR interrupted");
+            return;
+        } catch (ExecutionException e) {
+            output.add("ERROR search failed: " + e.getCause());
+            return;
+        }
+        long elapsedMillis = (System.nanoTime() - received) / 1_000_000;
+        if (timeoutMatch > 0) timeLeft -= elapsedMillis; // until the manager tells us otherwise
+        output.add("MESSAGE " + mcts.getLastIterations() + " iterations in " + elapsedMillis + "ms");
+        state = (GmkState) state.next(move);
+        output.add(move.getCol() + "," + move.getRow());
+    }
+
+    private void play(int x, int y) {
+        state = (GmkState) state.next(new GmkMove(state.player(), y, x));
+    }
+
+    private boolean isEmpty(int x, int y) {
+        return x >= 0 && x < game.getCols() && y >= 0 && y < game.getRows() && state.getBoard()[y][x] == 0;
+    }
+
+    // Comma-separated integers: the first n of them, or null if there are fewer or any is not a number
+    private static int[] coordinates(String text, int n) {
+        String[] parts = text.split(",");
+        if (parts.length < n) return null;
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = parseInt(parts[i], Integer.MIN_VALUE);
+            if (result[i] == Integer.MIN_VALUE) return null;
+        }
+        return result;
+    }
+
+    private static int parseInt(String text, int otherwise) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            return otherwise;
+        }
+    }
+
+    private static long parseLong(String text) {
+        try {
+            return Long.parseLong(text.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Speak the protocol on stdin/stdout until END (or the end of the input).
+     * Anything else written to System.out (e.g. by the engine) is diverted to stderr, so as not to corrupt the protocol.
+     * Usage: GmkGomocup [iterations per move]
+     */
+    public static void main(String[] args) throws IOException {
+        PrintStream protocol = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+        GmkGomocup brain = new GmkGomocup(args.length > 0 ? Integer.parseInt(args[0]) : Integer.MAX_VALUE);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while (!brain.isEnded() && (line = in.readLine()) != null) {
+            for (String reply : brain.process(line, System.nanoTime())) protocol.println(reply);
+            protocol.flush();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.RolloutPolicy;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+
+import java.util.Random;
+
+/**
+ * Epsilon-greedy rollout policy: usually one of the best moves by GmkHeuristics.evaluateMove
+ * (see GmkHeuristics.selectSmartMove), otherwise a uniformly random move for exploration.
+ * With the defaults (epsilon 0.2, horizon 100) this is the policy which GmkMCTS has always used.
+ */
+public class GmkHeuristicRollout implements RolloutPolicy<GmkGame> {
+    public static final double DEFAULT_EPSILON = 0.2;
+    public static final int DEFAULT_HORIZON = 100;  // prevents overly long rollouts
+
+    private final double epsilon;
+    private final int horizon;
+
+    /**
+     * @param epsilon the probability of a random move.
+     * @param horizon the maximum number of plies in a rollout.
+     */
+    public GmkHeuristicRollout(double epsilon, int horizon) {
+        this.epsilon = epsilon;
+        this.horizon = horizon;
+    }
+
+    public GmkHeuristicRollout() {
+        this(DEFAULT_EPSILON, DEFAULT_HORIZON);
+    }
+
+    @Override
+    public Move<GmkGame> choose(State<GmkGame> state, Random random) {
+        GmkState gmkState = (GmkState) state;
+        if (random.nextDouble() < epsilon) return GmkHeuristics.randomMove(gmkState, random);
+        return GmkHeuristics.selectSmartMove(gmkState, random);
+    }
+
+    @Override
+    public int horizon() {
+        return horizon;
+    }
+
+    public String toString() {
+        return "heuristic(epsilon=" + epsilon + ", horizon=" + horizon + ")";
+    }
+}
@@ -0,0 +1,233 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import java.util.Random;
+
+/**
+ * The hand-tuned move heuristics of GmkMCTS, shared by its rollout policies and its final move choice.
+ * All methods work on the flat cells of a GmkState and the lookup tables of its GmkGeometry.
+ */
+public final class GmkHeuristics {
+    private static final int SMART_MOVES = 3;   // the number of best-scored moves from which selectSmartMove chooses
+    private static final double EVALUATION_SCALE = 60;  // the score difference which shifts the win probability by about 1/4
+    private static final double OPPONENT_WEIGHT = 0.7;  // the player to move gets to use their threats first
+    private static final double CERTAIN = 0.97;         // the probability given to a win on the next move (a static estimate is never sure)
+
+    // Pattern values of the cell values BORDER, empty, black and white, as seen by each player
+    private static final int[] VIEW_OF_BLACK = {3, 0, 1, 2};
+    private static final int[] VIEW_OF_WHITE = {3, 0, 2, 1};
+
+    private GmkHeuristics() {
+    }
+
+    /**
+     * Evaluate a potential move at an empty cell by the lines it would make (or block) through that cell,
+     * plus a bonus for closeness to the centre.
+     */
+    public static int evaluateMove(GmkState state, int cell, int player) {
+        GmkGeometry geometry = state.game().getGeometry();
+        int[] cells = state.getCells();
+        int winLength = geometry.getWinLength();
+        int playerValue = player + 1; // Board uses 1-indexed values
+        int opponentValue = 2 - player;
+
+        int score = 0;
+        for (int direction = 0; direction < 4; direction++) {
+            int[] forward = geometry.neighbors(direction);
+            int[] backward = geometry.neighbors(direction + 4);
+
+            // Count consecutive pieces through the cell, as if the player (or the opponent) moved there
+            int count = 1 + run(cells, forward, cell, playerValue) + run(cells, backward, cell, playerValue);
+            int blockingCount = 1 + run(cells, forward, cell, opponentValue) + run(cells, backward, cell, opponentValue);
+
+            // Award points based on pattern, and for blocking the opponent's pattern:
+            // each line is scored from both of its directions
+            score += 2 * (scorePattern(winLength - count) + scoreBlockingPattern(winLength - blockingCount));
+        }
+
+        // Center proximity bonus and edge/corner penalty
+        return score + geometry.positionScore(cell);
+    }
+
+    // The number of consecutive cells with the given value, starting from the neighbour of cell (the border sentinel stops the walk)
+    static int run(int[] cells, int[] next, int cell, int value) {
+        int count = 0;
+        for (int c = next[cell]; cells[c] == value; c = next[c]) count++;
+        return count;
+    }
+
+    /**
+     * The attacking part of evaluateMove: the pattern scores of the lines the player would make through an empty cell.
+     */
+    public static int lineScore(GmkState state, int cell, int player) {
+        GmkGeometry geometry = state.game().getGeometry();
+        int[] cells = state.getCells();
+        int winLength = geometry.getWinLength();
+        int playerValue = player + 1;
+        int score = 0;
+        for (int direction = 0; direction < 4; direction++) {
+            int count = 1 + run(cells, geometry.neighbors(direction), cell, playerValue) +
+                    run(cells, geometry.neighbors(direction + 4), cell, playerValue);
+            score += scorePattern(winLength - count);
+        }
+        return score;
+    }
+
+    /**
+     * A fast static evaluation of a position, for rollouts which stop before the end of the game.
+     * Each player's prospects are the best two lineScores over the empty cells next to a stone;
+     * the difference (discounting the opponent's, since the player to move acts first) is mapped to a probability by a logistic curve.
+     * A win on the next move, or two wins for the opponent which cannot both be blocked, are (nearly) decisive.
+     *
+     * @param state a non-terminal state.
+     * @return the estimated probability that the player to move wins.
+     */
+    public static double winProbability(GmkState state) {
+        GmkGeometry geometry = state.game().getGeometry();
+        int[] cells = state.getCells();
+        int player = state.player();
+        int win = scorePattern(0);
+        int best = 0, second = 0, opponentBest = 0, opponentSecond = 0;
+        int opponentWins = 0;
+        for (int cell = 0; cell < cells.length - 1; cell++) {
+            if (cells[cell] != 0 || !nextToStone(cells, geometry, cell)) continue;
+            int own = lineScore(state, cell, player);
+            if (own >= win) return CERTAIN;
+            if (own > best) {
+                second = best;
+                best = own;
+            } else if (own > second) second = own;
+            int opponent = lineScore(state, cell, 1 - player);
+            if (opponent >= win) opponentWins++;
+            if (opponent > opponentBest) {
+                opponentSecond = opponentBest;
+                opponentBest = opponent;
+            } else if (opponent > opponentSecond) opponentSecond = opponent;
+        }
+        if (opponentWins > 1) return 1 - CERTAIN;
+        double balance = best + second - OPPONENT_WEIGHT * (opponentBest + opponentSecond);
+        return 1 / (1 + Math.exp(-balance / EVALUATION_SCALE));
+    }
+
+    private static boolean nextToStone(int[] cells, GmkGeometry geometry, int cell) {
+        for (int direction = 0; direction < GmkGeometry.DIRECTIONS.length; direction++)
+            if (cells[geometry.neighbors(direction)[cell]] > 0) return true;
+        return false;
+    }
+
+    // Score patterns based on how many consecutive pieces are missing from a win
+    static int scorePattern(int missing) {
+        return switch (missing) {
+            case 0 -> 1000; // Win
+            case 1 -> 100;  // One move from win
+            case 2 -> 10;   // Two moves from win
+            case 3 -> 3;    // Early pattern
+            default -> 1;   // Single piece
+        };
+    }
+
+    // Score for blocking opponent's patterns
+    static int scoreBlockingPattern(int missing) {
+        return switch (missing) {
+            case 0 -> 900;  // Block win
+            case 1 -> 90;   // Block one from win
+            case 2 -> 9;    // Block two from win
+            default -> 0;   // Not significant
+        };
+    }
+
+    /**
+     * Choose among the three best-scored empty cells for the player to move, with probability proportional to score.
+     *
+     * @return the move, or null if the board is full.
+     */
+    public static GmkMove selectSmartMove(GmkState state, Random random) {
+        int[] cells = state.getCells();
+        int player = state.player();
+
+        // Keep the three best cells (the first found, among equal scores)
+        int[] best = new int[SMART_MOVES];
+        int[] bestScore = new int[SMART_MOVES];
+        int found = 0;
+        for (int cell = 0; cell < cells.length - 1; cell++) {
+            if (cells[cell] != 0) continue;
+            int score = evaluateMove(state, cell, player);
+            int i = Math.min(found, SMART_MOVES);
+            while (i > 0 && score > bestScore[i - 1]) i--;
+            if (i == SMART_MOVES) continue;
+            for (int j = Math.min(found, SMART_MOVES - 1); j > i; j--) {
+                best[j] = best[j - 1];
+                bestScore[j] = bestScore[j - 1];
+            }
+            best[i] = cell;
+            bestScore[i] = score;
+            found++;
+        }
+        if (found == 0) return null;
+
+        // Select from the top moves with probability proportional to score
+        int selectionRange = Math.min(SMART_MOVES, found);
+        double totalScore = 0;
+        for (int i = 0; i < selectionRange; i++) totalScore += bestScore[i];
+
+        int chosen = 0;
+        if (totalScore == 0) {
+            // If all scores are 0, select randomly from the top moves
+            chosen = random.nextInt(selectionRange);
+        } else {
+            double r = random.nextDouble() * totalScore;
+            double cumulativeScore = 0;
+            for (int i = 0; i < selectionRange; i++) {
+                cumulativeScore += bestScore[i];
+                if (r < cumulativeScore) {
+                    chosen = i;
+                    break;
+                }
+            }
+        }
+        return move(state, best[chosen]);
+    }
+
+    /**
+     * Choose an empty cell uniformly at random for the player to move.
+     *
+     * @return the move, or null if the board is full.
+     */
+    public static GmkMove randomMove(GmkState state, Random random) {
+        int[] cells = state.getCells();
+        int empty = cells.length - 1 - state.getMoveCount();
+        if (empty <= 0) return null;
+
+        // On a sparse board, a few random probes find an empty cell faster than counting them
+        if (2 * empty >= cells.length) {
+            while (true) {
+                int cell = random.nextInt(cells.length - 1);
+                if (cells[cell] == 0) return move(state, cell);
+            }
+        }
+        int n = random.nextInt(empty);
+        for (int cell = 0; cell < cells.length - 1; cell++)
+            if (cells[cell] == 0 && n-- == 0) return move(state, cell);
+        return null;
+    }
+
+    /**
+     * The 3x3 pattern around a cell, seen by the given player: two bits for each of the eight neighbours
+     * (in the order of GmkGeometry.DIRECTIONS): 0 empty, 1 own stone, 2 opponent's stone, 3 off the board.
+     *
+     * @return a code between 0 and 65535.
+     */
+    public static int patternCode(GmkState state, int cell, int player) {
+        GmkGeometry geometry = state.game().getGeometry();
+        int[] cells = state.getCells();
+        int[] view = player == 0 ? VIEW_OF_BLACK : VIEW_OF_WHITE;
+        int code = 0;
+        for (int direction = 0; direction < GmkGeometry.DIRECTIONS.length; direction++)
+            code |= view[cells[geometry.neighbors(direction)[cell]] + 1] << (2 * direction);
+        return code;
+    }
+
+    static GmkMove move(GmkState state, int cell) {
+        int cols = state.game().getCols();
+        return new GmkMove(state.player(), cell / cols, cell % cols);
+    }
+}
@@ -0,0 +1,193 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+/**
+ * Line-oriented encoding of a Gomoku board: for each player, every row, column, diagonal and anti-diagonal
+ * is held as a bit mask, so that patterns along a line are found with a few shifts and ANDs per line.
+ * <p>
+ * The numbering of lines and cells is given by the game's GmkGeometry.
+ * Instances are immutable; with() returns an updated copy.
+ */
+public class GmkLines {
+    private final GmkGeometry geometry;
+    private final int lineCount;
+    private final long[] masks;     // player 0's lines followed by player 1's lines
+    private int winner = -1;        // the player with a winning line, or -1 (set by with(), from the lines through the new stone)
+
+    /**
+     * Create the lines of an empty board.
+     *
+     * @param geometry the shape of the board and its winning rule.
+     */
+    public GmkLines(GmkGeometry geometry) {
+        this.geometry = geometry;
+        this.lineCount = geometry.getLineCount();
+        this.masks = new long[2 * lineCount];
+    }
+
+    private GmkLines(GmkLines lines) {
+        this.geometry = lines.geometry;
+        this.lineCount = lines.lineCount;
+        this.masks = lines.masks.clone();
+        this.winner = lines.winner;
+    }
+
+    /**
+     * @return a copy of these lines with a stone of the given player at (row, col).
+     */
+    public GmkLines with(int player, int row, int col) {
+        GmkLines result = new GmkLines(this);
+        int base = player * lineCount;
+        int cell = geometry.cell(row, col);
+        int k = geometry.getWinLength();
+        boolean exact = geometry.isExact(player);
+        for (int direction = 0; direction < 4; direction++) {
+            int line = base + geometry.lineOf(direction, cell);
+            result.masks[line] |= 1L << geometry.bitOf(direction, cell);
+            // Only a line through the new stone can have become a winning line
+            if (result.winner < 0 && isWin(result.masks[line], k, exact)) result.winner = player;
+        }
+        return result;
+    }
+
+    /**
+     * @return the winner (a player with a winning line), or -1 if there is none.
+     */
+    public int winner() {
+        return winner;
+    }
+
+    // Whether the line mask m holds k in a row (exactly k, if exact)
+    private static boolean isWin(long m, int k, boolean exact) {
+        long run = m;
+        for (int i = 1; i < k && run != 0; i++) run &= m >>> i;
+        // An exact line must not be extended by a stone either side
+        if (exact) run &= ~(m << 1) & ~(m >>> k);
+        return run != 0;
+    }
+
+    /**
+     * Count the open fours (more generally, win length - 1 in a row) of the given player,
+     * with an empty cell at both ends.
+     */
+    public int openFours(int player) {
+        int k = geometry.getWinLength();
+        int base = player * lineCount;
+        int result = 0;
+        for (int line = 0; line < lineCount; line++) {
+            long p = masks[base + line];
+            long e = empty(line);
+            long run = e & e >>> k;
+            for (int i = 1; i < k && run != 0; i++) run &= p >>> i;
+            result += Long.bitCount(run);
+        }
+        return result;
+    }
+
+    /**
+     * Count the fours (more generally, windows of win length cells holding the player's stones and one empty cell)
+     * of the given player: each is a win on the player's next move.
+     */
+    public int fours(int player) {
+        return countWindows(player, geometry.getWinLength());
+    }
+
+    /**
+     * Count the threes (more generally, windows of win length - 1 cells holding the player's stones and one empty cell)
+     * of the given player: the threats which blockingCell finds.
+     */
+    public int threes(int player) {
+        return countWindows(player, geometry.getWinLength() - 1);
+    }
+
+    private int countWindows(int player, int window) {
+        int base = player * lineCount;
+        int result = 0;
+        for (int line = 0; line < lineCount; line++) {
+            long p = masks[base + line];
+            if (p != 0) result += Long.bitCount(windows(p, empty(line), window));
+        }
+        return result;
+    }
+
+    /**
+     * Find a cell which blocks a threat of the given player: a window of (win length - 1) cells on a line
+     * which holds the player's stones and one empty cell (three and one, for five-in-a-row). Windows are considered in the order
+     * rows, columns, diagonals, anti-diagonals and, for each direction, by the (row, col) of the window's first cell.
+     *
+     * @param player the player whose threat is to be blocked.
+     * @return the empty cell of the first such window (as numbered by the geometry), or -1 if there is none.
+     */
+    public int blockingCell(int player) {
+        int base = player * lineCount;
+        int rows = geometry.getRows();
+        int cols = geometry.getCols();
+
+        // Rows: bit = column, so the first window is the lowest bit of the first row which has one
+        for (int row = 0; row < rows; row++) {
+            long windows = threatWindows(masks[base + row], empty(row));
+            if (windows != 0) return geometry.cell(row, firstEmpty(row, Long.numberOfTrailingZeros(windows)));
+        }
+
+        // Columns: bit = row, so take the lowest row over all columns (then the lowest column)
+        int bestRow = Integer.MAX_VALUE;
+        int bestCol = 0;
+        for (int col = 0; col < cols; col++) {
+            long windows = threatWindows(masks[base + rows + col], empty(rows + col));
+            if (windows != 0 && Long.numberOfTrailingZeros(windows) < bestRow) {
+                bestRow = Long.numberOfTrailingZeros(windows);
+                bestCol = col;
+            }
+        }
+        if (bestRow != Integer.MAX_VALUE) return geometry.cell(firstEmpty(rows + bestCol, bestRow), bestCol);
+
+        // Diagonals and anti-diagonals: bit = row
+        for (int direction = GmkGeometry.DIAGONAL; direction <= GmkGeometry.ANTI_DIAGONAL; direction++) {
+            int first = geometry.firstLine(direction);
+            int bestLine = -1;
+            bestRow = Integer.MAX_VALUE;
+            bestCol = Integer.MAX_VALUE;
+            for (int i = 0; i < rows + cols - 1; i++) {
+                long windows = threatWindows(masks[base + first + i], empty(first + i));
+                if (windows == 0) continue;
+                int row = Long.numberOfTrailingZeros(windows);
+                int col = direction == GmkGeometry.DIAGONAL ? row + i - (rows - 1) : i - row;
+                if (row < bestRow || row == bestRow && col < bestCol) {
+                    bestRow = row;
+                    bestCol = col;
+                    bestLine = first + i;
+                }
+            }
+            if (bestLine >= 0) {
+                int row = firstEmpty(bestLine, bestRow);
+                int col = direction == GmkGeometry.DIAGONAL ? bestCol + (row - bestRow) : bestCol - (row - bestRow);
+                return geometry.cell(row, col);
+            }
+        }
+        return -1;
+    }
+
+    // The start bits of the windows of (win length - 1) cells which hold one of e and the rest of p
+    private long threatWindows(long p, long e) {
+        return windows(p, e, geometry.getWinLength() - 1);
+    }
+
+    // The start bits of the windows of the given length which hold one of e and the rest of p
+    private static long windows(long p, long e, int window) {
+        long result = 0;
+        for (int j = 0; j < window; j++) {
+            long w = e >>> j;
+            for (int i = 0; i < window && w != 0; i++) if (i != j) w &= p >>> i;
+            result |= w;
+        }
+        return result;
+    }
+
+    // The bit of the first empty cell of the window starting at the given bit of the line
+    private int firstEmpty(int line, int start) {
+        return start + Long.numberOfTrailingZeros(empty(line) >>> start);
+    }
+
+    private long empty(int line) {
+        return geometry.valid(line) & ~(masks[line] | masks[lineCount + line]);
+    }
+}
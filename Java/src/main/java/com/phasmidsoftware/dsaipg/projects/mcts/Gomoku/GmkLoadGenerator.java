@@ -0,0 +1,164 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load generator for GmkServer: many concurrent clients, each of which plays whole games of random moves against the server.
+ * Reports the throughput and the latency of the server's replies.
+ */
+public class GmkLoadGenerator {
+
+    /**
+     * The outcome of a run.
+     *
+     * @param games     the number of games played to the end.
+     * @param moves     the number of moves answered by the server.
+     * @param errors    the number of ERR responses (including "busy") and failed connections.
+     * @param nanos     the duration of the run.
+     * @param latencies the sorted response times of the moves, in nanoseconds.
+     */
+    public record Report(int games, int moves, int errors, long nanos, long[] latencies) {
+        public long percentile(double p) {
+            return latencies.length == 0 ? 0 : latencies[Math.min(latencies.length - 1, (int) (p * latencies.length))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games, %d moves in %.1fs (%.0f moves/s), %d errors; latency p50 %.1fms, p99 %.1fms, max %.1fms",
+                    games, moves, nanos / 1e9, moves * 1e9 / Math.max(1, nanos), errors,
+                    percentile(0.5) / 1e6, percentile(0.99) / 1e6, percentile(1) / 1e6);
+        }
+    }
+
+    /**
+     * Run the given number of clients against a server, each playing the given number of games.
+     *
+     * @param host    the server's host.
+     * @param port    the server's port.
+     * @param clients the number of concurrent clients (each with its own connection).
+     * @param games   the number of games per client.
+     * @param size    the size of the board.
+     * @param seed    the seed of the clients' random moves.
+     */
+    public static Report run(String host, int port, int clients, int games, int size, long seed) throws InterruptedException {
+        AtomicInteger gamesPlayed = new AtomicInteger();
+        AtomicInteger moves = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        List<List<Long>> latencies = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        ExecutorService executor = GmkServer.newThreadPerTaskExecutor("gomoku-client");
+        try {
+            for (int i = 0; i < clients; i++) {
+                List<Long> times = new ArrayList<>();
+                latencies.add(times);
+                Random random = new Random(seed + i);
+                futures.add(executor.submit(() -> {
+                    try (Socket socket = new Socket(host, port);
+                         BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                         PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+                        for (int g = 0; g < games; g++)
+                            if (play(in, out, size, random, times, errors)) gamesPlayed.incrementAndGet();
+                        out.println("QUIT");
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    }
+                    moves.addAndGet(times.size());
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long nanos = System.nanoTime() - start;
+        long[] sorted = latencies.stream().flatMap(List::stream).mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return new Report(gamesPlayed.get(), moves.get(), errors.get(), nanos, sorted);
+    }
+
+    // One game as black, with random moves: true if it was played to the end
+    private static boolean play(BufferedReader in, PrintWriter out, int size, Random random, List<Long> times, AtomicInteger errors) throws IOException {
+        String[] created = request(in, out, "NEW " + size).split(" ");
+        if (!created[0].equals("OK")) {
+            errors.incrementAndGet();
+            return false;
+        }
+        String id = created[1];
+        boolean[] occupied = new boolean[size * size];
+        int free = size * size;
+        while (free > 0) {
+            int cell = random.nextInt(size * size);
+            while (occupied[cell]) cell = (cell + 1) % (size * size);
+            long start = System.nanoTime();
+            String[] reply = request(in, out, "MOVE " + id + " " + cell / size + " " + cell % size).split(" ");
+            times.add(System.nanoTime() - start);
+            switch (reply[0]) {
+                case "OVER" -> {
+                    return true;
+                }
+                case "MOVE" -> {
+                    occupied[cell] = true;
+                    occupied[Integer.parseInt(reply[1]) * size + Integer.parseInt(reply[2])] = true;
+                    free -= 2;
+                    if (reply.length > 3) return true;
+                }
+                default -> {
+                    errors.incrementAndGet();
+                    request(in, out, "END " + id);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static String request(BufferedReader in, PrintWriter out, String command) throws IOException {
+        out.println(command);
+        String line = in.readLine();
+        if (line == null) throw new EOFException("server closed the connection");
+        return line;
+    }
+
+    /**
+     * Run clients against a server on this machine.
+     * If no port is given, a server is started in this process (with 200 iterations per move).
+     * Usage: GmkLoadGenerator [--port n] [--clients n] [--games n] [--size n]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = 0;
+        int clients = 100;
+        int games = 2;
+        int size = 9;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--clients" -> clients = Integer.parseInt(args[++i]);
+                case "--games" -> games = Integer.parseInt(args[++i]);
+                case "--size" -> size = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+        GmkServer server = port == 0 ? new GmkServer(0, 200, Runtime.getRuntime().availableProcessors(), clients, GmkServer.DEFAULT_IDLE_MILLIS).start() : null;
+        try {
+            System.out.println(run(InetAddress.getLoopbackAddress().getHostAddress(), server == null ? port : server.getPort(), clients, games, size, 0));
+        } finally {
+            if (server != null) server.close();
+        }
+    }
+}
@@ -3,22 +3,227 @@ package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
 
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.RolloutPolicy;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 public class GmkMCTS {
     private static final double EXPLORATION_PARAMETER = Math.sqrt(2);
+    private static final double PUCT_PARAMETER = 1.5;      // the weight of the prior term in PUCT selection
+    private static final double FIRST_PLAY_VALUE = 0.5;    // the value assumed for an unvisited child in PUCT selection
     private static final int DEFAULT_ITERATIONS = 1000;
+    private static final int SNAPSHOT_DEPTH = 4;           // the levels below the root in a published snapshot
+    private static final int SNAPSHOT_BREADTH = 5;         // the most children of a node in a published snapshot
+    private static final long DEFAULT_ANALYSIS_INTERVAL_MILLIS = 250;
+    public static final int DEFAULT_PONDER_NODES = 50_000; // the most nodes a pondering search creates, if the tree is unbounded
 
     private final int iterations;
+    private final long timeLimitMillis; // 0 means the search is bounded by iterations only
     private GmkNode currentRootNode; // To store the current root node for visualization
+    private boolean verbose = true;
+    private GmkOpeningBook openingBook;  // consulted before searching, if present
+    private volatile GmkSearch ponderSearch; // the search running on the opponent's time, if any
+    private int ponderNodes = DEFAULT_PONDER_NODES;
+    private GmkNodePool nodePool;            // bounds the size of the tree, if present
+    private RolloutPolicy<GmkGame> rolloutPolicy = new GmkHeuristicRollout();
+    private GmkPriors priors;                // if present, selection is PUCT with these move priors instead of UCT
+    private Random random;                   // the source of all randomness of the search if seeded, otherwise ThreadLocalRandom
+    private volatile Consumer<GmkTreeSnapshot> snapshotListener; // receives snapshots of the tree during searches, if present
+    private volatile long snapshotIntervalMillis;
+    private volatile SubmissionPublisher<GmkAnalysis> analysisPublisher; // created when first asked for
+    private volatile long analysisIntervalMillis = DEFAULT_ANALYSIS_INTERVAL_MILLIS;
+    private long nextAnalysis;              // System.nanoTime() at which the next analysis is due, kept across searches
+    private long nextSnapshot;              // System.nanoTime() at which the next snapshot is due, kept across the slices of a move
+    private GmkEvents.Throughput throughput; // the throughput sample in progress, if Flight Recorder is recording throughput
+    private int sampleIterations;           // lastIterations at the start of the sample
+    private long sampleStart;
+
+    // A search run in slices (see beginSlices)
+    private GmkEvents.Search sliceEvent;
+    private long sliceStart;
+    private long sliceBudgetMillis;
+
+    // Statistics of the most recent call to findBestMove
+    private int lastIterations;
+    private int lastNodes;
+    private int lastDepth;
 
     public GmkMCTS() {
         this(DEFAULT_ITERATIONS);
     }
 
     public GmkMCTS(int iterations) {
+        this(iterations, 0);
+    }
+
+    /**
+     * @param iterations      the maximum number of MCTS iterations per move
+     * @param timeLimitMillis the maximum thinking time per move, or 0 for no time limit
+     */
+    public GmkMCTS(int iterations, long timeLimitMillis) {
         this.iterations = iterations;
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    /**
+     * Continue a previous analysis: the next call of findBestMove for the position of the given root
+     * (e.g. a tree restored by GmkTreeSerializer) searches on from this tree instead of starting afresh.
+     *
+     * @param root the root of the tree to resume.
+     */
+    public void resume(GmkNode root) {
+        this.currentRootNode = root;
+    }
+
+    /**
+     * Bound the number of nodes in the search tree: when the pool is full, the least-visited frontier subtrees are recycled.
+     *
+     * @param nodePool the pool, or null for an unbounded tree.
+     */
+    public void setNodePool(GmkNodePool nodePool) {
+        this.nodePool = nodePool;
+    }
+
+    /**
+     * @return the node pool (whose metrics give the occupancy and evictions), or null if the tree is unbounded.
+     */
+    public GmkNodePool getNodePool() {
+        return nodePool;
+    }
+
+    /**
+     * Bound pondering (see startPondering) when there is no node pool: a pondering search stops by itself
+     * once it has added this many nodes to the tree. With a node pool, the pool bounds the tree instead.
+     *
+     * @param maxNodes the most nodes added by one pondering search.
+     */
+    public void setPonderNodes(int maxNodes) {
+        if (maxNodes <= 0) throw new IllegalArgumentException("maxNodes must be positive: " + maxNodes);
+        this.ponderNodes = maxNodes;
+    }
+
+    /**
+     * Make this engine deterministic: all the random choices of its searches (selection of new children, rollouts
+     * and random moves) are drawn from one generator with the given seed, so that a sequence of searches bounded by
+     * iterations (not by time) chooses the same moves in every run.
+     *
+     * @param seed the seed.
+     */
+    public void setSeed(long seed) {
+        this.random = new Random(seed);
+    }
+
+    // The generator for the random choices of a search
+    private Random random() {
+        return random == null ? ThreadLocalRandom.current() : random;
+    }
+
+    /**
+     * Use the given rollout policy for the simulations (by default, GmkHeuristicRollout).
+     */
+    public void setRolloutPolicy(RolloutPolicy<GmkGame> rolloutPolicy) {
+        this.rolloutPolicy = rolloutPolicy;
+    }
+
+    public RolloutPolicy<GmkGame> getRolloutPolicy() {
+        return rolloutPolicy;
+    }
+
+    /**
+     * Select by PUCT with the given move priors, which are assigned to the children of each node as it is expanded.
+     *
+     * @param priors the priors, or null for plain UCT selection.
+     */
+    public void setPriors(GmkPriors priors) {
+        this.priors = priors;
+    }
+
+    public GmkPriors getPriors() {
+        return priors;
+    }
+
+    /**
+     * Use the given opening book: positions found in the book are answered without searching.
+     *
+     * @param openingBook the book, or null to search every position.
+     */
+    public void setOpeningBook(GmkOpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * Publish snapshots of the top of the tree (see GmkTreeSnapshot) while searching: at most once per interval,
+     * and at the end of each search. The snapshots are taken and delivered on the search thread,
+     * so the listener should hand them on (e.g. to the event dispatch thread) rather than do any work itself.
+     *
+     * @param listener       the listener, or null for no snapshots.
+     * @param intervalMillis the least interval between snapshots.
+     */
+    public void setSnapshotListener(Consumer<GmkTreeSnapshot> listener, long intervalMillis) {
+        this.snapshotIntervalMillis = intervalMillis;
+        this.snapshotListener = listener;
+    }
+
+    /**
+     * The stream of analysis updates (see GmkAnalysis) published while this engine searches, at the analysis interval.
+     * Updates are only computed while there are subscribers, and are dropped for a subscriber which falls behind,
+     * so that subscribers never slow the search.
+     *
+     * @return the publisher.
+     */
+    public synchronized Flow.Publisher<GmkAnalysis> getAnalysisPublisher() {
+        if (analysisPublisher == null) analysisPublisher = new SubmissionPublisher<>();
+        return analysisPublisher;
+    }
+
+    /**
+     * @param intervalMillis the least interval between analysis updates (by default, 250ms).
+     */
+    public void setAnalysisInterval(long intervalMillis) {
+        this.analysisIntervalMillis = intervalMillis;
+    }
+
+    /**
+     * Turn the diagnostic console output on or off (e.g. for headless batch runs).
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * @return the number of MCTS iterations run by the last call to findBestMove (0 if no search was needed)
+     */
+    public int getLastIterations() {
+        return lastIterations;
+    }
+
+    /**
+     * @return the number of tree nodes created by the last call to findBestMove (0 if no search was needed)
+     */
+    public int getLastNodes() {
+        return lastNodes;
+    }
+
+    /**
+     * @return the greatest depth below the root reached by the last call to findBestMove (0 if no search was needed)
+     */
+    public int getLastDepth() {
+        return lastDepth;
     }
 
     /**
@@ -42,23 +247,40 @@ public class GmkMCTS {
 
         Collection<Move<GmkGame>> moves = state.moves(player);
         if (moves == null || moves.isEmpty()) return;
+        if (nodePool != null && !nodePool.reserve(moves.size(), currentRootNode, node)) return;
 
+        float[] movePriors = priors == null ? null : new float[moves.size()];
+        int added = 0;
         for (Move<GmkGame> move : moves) {
             if (move == null) continue;
             try {
                 State<GmkGame> nextState = state.next(move);
                 if (nextState != null) {
                     node.addChild(nextState);
+                    if (movePriors != null) movePriors[added] = priors.prior(state, (GmkMove) move);
+                    added++;
+                    lastNodes++;
                 }
             } catch (Exception e) {
                 System.err.println("Error creating next state for move: " + move);
                 e.printStackTrace();
             }
         }
+        if (movePriors != null) {
+            // Normalize the priors over the children
+            float total = 0;
+            for (int i = 0; i < added; i++) total += movePriors[i];
+            List<Node<GmkGame>> children = node.children();
+            for (int i = 0; i < added; i++)
+                ((GmkNode) children.get(i)).setPrior(total > 0 ? movePriors[i] / total : 1f / added);
+        }
     }
 
-    private GmkNode select(GmkNode node) {
+    // Descend from node to the node from which to simulate, expanding the leaf reached: every node on the way
+    // (from node itself to the node returned) is added to path, for backPropagation
+    private GmkNode select(GmkNode node, List<GmkNode> path) {
         if (node == null) return null;
+        path.add(node);
 
         if (node.isLeaf()) {
             if (node.state() == null || node.state().isTerminal()) {
@@ -66,37 +288,34 @@ public class GmkMCTS {
             }
             expand(node);
 
-            List<Node<GmkGame>> children = new ArrayList<>(node.children());
-            if (!children.isEmpty()) {
-                int randomIndex = (int) (Math.random() * children.size());
-                Node<GmkGame> childNode = children.get(randomIndex);
-                if (childNode instanceof GmkNode) {
-                    return (GmkNode) childNode;
-                }
-            }
-            return node;
+            List<Node<GmkGame>> children = node.children();
+            if (children.isEmpty()) return node;
+            GmkNode child = priors != null ? selectByPrior(node) : (GmkNode) children.get(random().nextInt(children.size()));
+            path.add(child);
+            return child;
         }
 
-        GmkNode bestNode = null;
-        double bestValue = Double.NEGATIVE_INFINITY;
-
         List<Node<GmkGame>> children = node.children();
         if (children == null || children.isEmpty()) {
             return node;
         }
+        if (priors != null) return select(selectByPrior(node), path);
+
+        GmkNode bestNode = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
 
         for (Node<GmkGame> child : children) {
             if (!(child instanceof GmkNode gmkNode)) continue;
 
-            double wins = gmkNode.wins();
             double playouts = gmkNode.playouts();
             double parentPlayouts = node.playouts();
 
             if (playouts == 0) {
+                path.add(gmkNode);
                 return gmkNode;
             }
 
-            double uct = (wins / playouts) + EXPLORATION_PARAMETER * Math.sqrt(Math.log(parentPlayouts) / playouts);
+            double uct = gmkNode.meanReward() + EXPLORATION_PARAMETER * Math.sqrt(Math.log(parentPlayouts) / playouts);
             if (uct > bestValue) {
                 bestValue = uct;
                 bestNode = gmkNode;
@@ -107,130 +326,48 @@ public class GmkMCTS {
             return node; // Return the current node if no best child found
         }
 
-        GmkNode selectedNode = select(bestNode);
-        return selectedNode != null ? selectedNode : bestNode;
+        return select(bestNode, path);
     }
 
-    private boolean simulate(GmkNode node) {
-        if (node == null || node.state() == null) return false;
+    // The child of node with the greatest PUCT value: the mean reward plus an exploration term in proportion to the prior
+    private GmkNode selectByPrior(GmkNode node) {
+        double scale = PUCT_PARAMETER * Math.sqrt(Math.max(1, node.playouts()));
+        GmkNode bestNode = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Node<GmkGame> child : node.children()) {
+            GmkNode gmkNode = (GmkNode) child;
+            int playouts = gmkNode.playouts();
+            double value = (playouts == 0 ? FIRST_PLAY_VALUE : gmkNode.meanReward()) + scale * gmkNode.getPrior() / (1 + playouts);
+            if (value > bestValue) {
+                bestValue = value;
+                bestNode = gmkNode;
+            }
+        }
+        return bestNode;
+    }
+
+    // The reward of a simulation from node for the player who moved to it: 1 for a win, 0 for a loss, 1/2 for a draw,
+    // or the rollout policy's estimate if it stops early
+    private double simulate(GmkNode node) {
+        if (node == null || node.state() == null) return 0;
 
         GmkState currentState = (GmkState) node.state();
 
         if (currentState.isTerminal()) {
             Optional<Integer> winner = currentState.winner();
-            return winner.isPresent() &&
-                    winner.get() == (currentState.player() == 0 ? 1 : 0);
+            if (winner.isEmpty()) return 0.5;
+            return winner.get() == (currentState.player() == 0 ? 1 : 0) ? 1 : 0;
         }
 
-        // Run a simulation from this state with improved strategy
+        // Play out the game with the rollout policy
         try {
-            GmkState simulationState = currentState; // Start from the current state
-
-            int maxMoves = 100; // Prevent infinite loops
-            int moveCount = 0;
-
-            while (!simulationState.isTerminal() && moveCount < maxMoves) {
-                int player = simulationState.player();
-
-                // Get all possible moves
-                Collection<Move<GmkGame>> possibleMoves = simulationState.moves(player);
-                List<Move<GmkGame>> movesList = new ArrayList<>(possibleMoves);
-
-                if (movesList.isEmpty()) {
-                    break;
-                }
-
-                // Improved move selection for simulation
-                Move<GmkGame> selectedMove;
-
-                // With 80% probability, choose a "smart" move
-                if (Math.random() < 0.8) {
-                    selectedMove = selectSmartMove(simulationState, movesList, player);
-                } else {
-                    // With 20% probability, choose a completely random move for exploration
-                    int randomIndex = (int)(Math.random() * movesList.size());
-                    selectedMove = movesList.get(randomIndex);
-                }
-
-                if (selectedMove == null) continue;
-
-                State<GmkGame> nextState = simulationState.next(selectedMove);
-                if (!(nextState instanceof GmkState)) break;
-
-                simulationState = (GmkState) nextState;
-                moveCount++;
-            }
-
-            Optional<Integer> winner = simulationState.winner();
-            if (winner.isPresent()) {
-                int initPlayer = node.white() ? 0 : 1;
-                return winner.get() == initPlayer;
-            }
+            return rolloutPolicy.playout(currentState, 1 - currentState.player(), random());
         } catch (Exception e) {
             System.err.println("Error during simulation: " + e.getMessage());
             e.printStackTrace();
         }
 
-        return false;
-    }
-
-    // Select a smart move for simulation
-    private Move<GmkGame> selectSmartMove(GmkState state, List<Move<GmkGame>> movesList, int player) {
-        int[][] board = state.getBoard();
-        int size = state.game().getSize();
-
-        // Create a score for each possible move
-        List<ScoredMove> scoredMoves = new ArrayList<>();
-
-        for (Move<GmkGame> move : movesList) {
-            if (!(move instanceof GmkMove)) continue;
-
-            GmkMove gmkMove = (GmkMove) move;
-            int row = gmkMove.getRow();
-            int col = gmkMove.getCol();
-
-            // Skip if position is already occupied
-            if (board[row][col] != 0) continue;
-
-            // Calculate score for this move
-            int score = evaluateMove(board, row, col, player, size);
-            scoredMoves.add(new ScoredMove(gmkMove, score));
-        }
-
-        if (scoredMoves.isEmpty()) {
-            // If no scored moves, return a random move
-            int randomIndex = (int)(Math.random() * movesList.size());
-            return movesList.get(randomIndex);
-        }
-
-        // Sort moves by score in descending order
-        scoredMoves.sort((a, b) -> Integer.compare(b.score, a.score));
-
-        // Select from top 3 moves with probability proportional to score
-        int selectionRange = Math.min(3, scoredMoves.size());
-        double totalScore = 0;
-        for (int i = 0; i < selectionRange; i++) {
-            totalScore += scoredMoves.get(i).score;
-        }
-
-        // If all scores are 0, select randomly from top 3
-        if (totalScore == 0) {
-            int randomIndex = (int)(Math.random() * selectionRange);
-            return scoredMoves.get(randomIndex).move;
-        }
-
-        // Otherwise, select based on score probability
-        double random = Math.random() * totalScore;
-        double cumulativeScore = 0;
-        for (int i = 0; i < selectionRange; i++) {
-            cumulativeScore += scoredMoves.get(i).score;
-            if (random < cumulativeScore) {
-                return scoredMoves.get(i).move;
-            }
-        }
-
-        // Fallback to the top-scored move
-        return scoredMoves.get(0).move;
+        return 0;
     }
 
     // Helper class for scored moves
@@ -244,309 +381,336 @@ public class GmkMCTS {
         }
     }
 
-    // Evaluate a potential move
-    private int evaluateMove(int[][] board, int row, int col, int player, int size) {
-        // We'll evaluate this position by temporarily placing a piece and counting patterns
-        int playerValue = player + 1; // Board uses 1-indexed values
-
-        // Create a copy of the board with the move applied
-        int[][] tempBoard = new int[size][size];
-        for (int i = 0; i < size; i++) {
-            System.arraycopy(board[i], 0, tempBoard[i], 0, size);
-        }
-        tempBoard[row][col] = playerValue;
-
-        int score = 0;
-
-        // Check patterns in all 8 directions
-        int[][] directions = {
-                {0, 1}, {1, 0}, {1, 1}, {1, -1},  // horizontal, vertical, diagonal
-                {0, -1}, {-1, 0}, {-1, -1}, {-1, 1}  // reverse directions
-        };
-
-        for (int[] dir : directions) {
-            int dx = dir[0];
-            int dy = dir[1];
-
-            // Count consecutive pieces and open ends
-            int count = countConsecutive(tempBoard, row, col, dx, dy, playerValue, size);
-
-            // Award points based on pattern
-            score += scorePattern(count);
-
-            // Check if this move blocks opponent's patterns
-            int opponentValue = (player == 0) ? 2 : 1;
-            tempBoard[row][col] = opponentValue;
-            int blockingCount = countConsecutive(tempBoard, row, col, dx, dy, opponentValue, size);
-            score += scoreBlockingPattern(blockingCount);
-
-            // Reset for next direction
-            tempBoard[row][col] = playerValue;
-        }
-
-        // Give bonus for center proximity (better board control)
-        int center = size / 2;
-        int distanceToCenter = Math.abs(row - center) + Math.abs(col - center);
-
-        // Penalize corner and edge positions more heavily
-        if (row == 0 || row == size-1 || col == 0 || col == size-1) {
-            // Corner positions are worst
-            if ((row == 0 && col == 0) || (row == 0 && col == size-1) ||
-                    (row == size-1 && col == 0) || (row == size-1 && col == size-1)) {
-                score -= 20; // Strong penalty for corners
-            } else {
-                score -= 10; // Penalty for edges
-            }
+    // Record the result of a simulation from the last node of path in every node of the path:
+    // each node's reward is from the point of view of the player who moved to it, so it alternates up the path
+    private void backPropagation(List<GmkNode> path, double result) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            path.get(i).update(result);
+            result = 1 - result;
         }
-
-        // Greater bonus for center proximity
-        score += Math.max(0, 15 - (distanceToCenter * 2));
-
-        return score;
     }
 
-    private int countConsecutive(int[][] board, int row, int col, int dx, int dy, int playerValue, int size) {
-        int count = 1; // Start with 1 for the current position
+    // Check for blocking moves: a window of four cells holding three of the opponent's stones and one empty cell
+    private GmkMove findBlockingMove(GmkState state, int playerToBlock) {
+        int cell = state.getLines().blockingCell(playerToBlock);
+        if (cell < 0) return null;
+        int cols = state.game().getCols();
+        return new GmkMove(state.player(), cell / cols, cell % cols);
+    }
 
-        // Count in positive direction
-        int r = row + dx;
-        int c = col + dy;
-        while (r >= 0 && r < size && c >= 0 && c < size && board[r][c] == playerValue) {
-            count++;
-            r += dx;
-            c += dy;
-        }
+    /**
+     * Choose a colour at a swap2 decision point (see GmkState.isColourChoice),
+     * by estimating with playouts (within this engine's iteration and time budget) how often the player to move goes on to win.
+     *
+     * @param state the position after the opening stones.
+     * @return the colour to take: 0 for black, 1 for white.
+     */
+    public int chooseColour(GmkState state) {
+        if (state.isTerminal()) return state.winner().orElse(state.player());
+        GmkNode node = new GmkNode(state);
+        long deadline = timeLimitMillis > 0 ? System.nanoTime() + timeLimitMillis * 1_000_000 : 0;
+        double wins = 0;
+        int playouts = 0;
+        while (playouts < iterations && (deadline == 0 || System.nanoTime() - deadline < 0)) {
+            // A playout is valued for the player who moved to the node, i.e. not the player to move
+            wins += 1 - simulate(node);
+            playouts++;
+        }
+        return 2 * wins >= playouts ? state.player() : 1 - state.player();
+    }
 
-        // Count in negative direction
-        r = row - dx;
-        c = col - dy;
-        while (r >= 0 && r < size && c >= 0 && c < size && board[r][c] == playerValue) {
-            count++;
-            r -= dx;
-            c -= dy;
+    public GmkMove findBestMove(GmkState state) {
+        if (state == null) {
+            throw new IllegalArgumentException("State cannot be null");
         }
-
-        return count;
+        stopPondering();
+        return search(state, true, iterations, timeLimitMillis, 0, null, 0, null);
     }
 
-    // Score patterns based on how many consecutive pieces
-    private int scorePattern(int count) {
-        return switch (count) {
-            case 5 -> 1000; // Win
-            case 4 -> 100;  // One move from win
-            case 3 -> 10;   // Two moves from win
-            case 2 -> 3;    // Early pattern
-            default -> 1;   // Single piece
-        };
+    /**
+     * Begin a search which is run in slices (see GmkScheduler): this does the work which is done once per move
+     * (the shortcuts and the set-up of the tree), so that the cost of each slice does not grow with the tree.
+     * Unless the move is answered at once, call searchSlice until the move is finished and then endSlices.
+     *
+     * @param state        the position to search.
+     * @param budgetMillis the time allowed for the move (recorded in the Search event).
+     * @return the move if it needs no search (e.g. from the opening book), otherwise null.
+     */
+    GmkMove beginSlices(GmkState state, long budgetMillis) {
+        stopPondering();
+        sliceEvent = new GmkEvents.Search();
+        sliceEvent.begin();
+        sliceStart = System.nanoTime();
+        sliceBudgetMillis = budgetMillis;
+        GmkMove move = prepare(state, true);
+        if (move != null) endSearch(sliceEvent, state, move, iterations, budgetMillis, sliceStart);
+        return move;
     }
 
-    // Score for blocking opponent's patterns
-    private int scoreBlockingPattern(int count) {
-        return switch (count) {
-            case 5 -> 900;  // Block win
-            case 4 -> 90;   // Block one from win
-            case 3 -> 9;    // Block two from win
-            default -> 0;   // Not significant
-        };
+    /**
+     * Run one slice of a search begun by beginSlices, searching on from the tree left by the previous slice.
+     * getLastIterations then gives the iterations of all the slices so far.
+     *
+     * @param maxIterations the most iterations to run in this slice.
+     * @param maxMillis     the most time to spend on this slice.
+     */
+    void searchSlice(int maxIterations, long maxMillis) {
+        iterate(maxIterations, maxMillis, 0, null, 0, null);
     }
 
-
-    private void backPropagation(GmkNode node, boolean res) {
-        if (node == null) return;
-        node.update(res);
+    /**
+     * Finish a search run in slices: publish the final snapshot and analysis, and record the Search event.
+     *
+     * @return the best move.
+     */
+    GmkMove endSlices() {
+        GmkMove move = conclude();
+        endSearch(sliceEvent, (GmkState) currentRootNode.state(), move, iterations, sliceBudgetMillis, sliceStart);
+        sliceEvent = null;
+        return move;
     }
 
-    // Check for blocking moves
-    private GmkMove findBlockingMove(GmkState state, int playerToBlock) {
-        int[][] board = state.getBoard();
-        int size = state.game().getSize();
-        int aiPlayer = state.player();
-
-        // Check for three in a row that can be blocked
-
-        // Horizontal check
-        for (int row = 0; row < size; row++) {
-            for (int col = 0; col <= size - 4; col++) {
-                int count = 0;
-                for (int i = 0; i < 4; i++) {
-                    if (board[row][col + i] == playerToBlock + 1) {
-                        count++;
-                    }
-                }
-
-                // If three in a row and one empty space
-                if (count >= 3) {
-                    for (int i = 0; i < 4; i++) {
-                        if (board[row][col + i] == 0) {
-                            return new GmkMove(aiPlayer, row, col + i);
-                        }
-                    }
-                }
-            }
-        }
-
-        // Vertical check
-        for (int row = 0; row <= size - 4; row++) {
-            for (int col = 0; col < size; col++) {
-                int count = 0;
-                for (int i = 0; i < 4; i++) {
-                    if (board[row + i][col] == playerToBlock + 1) {
-                        count++;
-                    }
-                }
-
-                // If three in a row and one empty space
-                if (count >= 3) {
-                    for (int i = 0; i < 4; i++) {
-                        if (board[row + i][col] == 0) {
-                            return new GmkMove(aiPlayer, row + i, col);
-                        }
-                    }
-                }
-            }
-        }
-
-        // Diagonal check (top-left to bottom-right)
-        for (int row = 0; row <= size - 4; row++) {
-            for (int col = 0; col <= size - 4; col++) {
-                int count = 0;
-                for (int i = 0; i < 4; i++) {
-                    if (board[row + i][col + i] == playerToBlock + 1) {
-                        count++;
-                    }
-                }
+    /**
+     * Start a search for the best move on the given executor, within this engine's iteration and time budget.
+     * The search can be stopped early (yielding the best move so far) or cancelled through the returned GmkSearch.
+     * NOTE: an engine runs one search at a time.
+     *
+     * @param state                the position to search.
+     * @param executor             the executor which runs the search.
+     * @param updateIntervalMillis the interval at which the best move so far is published (0 for no updates).
+     * @param listener             receives the intermediate best moves on the search thread (may be null).
+     * @return the running search.
+     */
+    public GmkSearch startSearch(GmkState state, Executor executor, long updateIntervalMillis, Consumer<GmkMove> listener) {
+        return start(state, true, iterations, timeLimitMillis, 0, executor, updateIntervalMillis, listener);
+    }
 
-                // If three in a row and one empty space
-                if (count >= 3) {
-                    for (int i = 0; i < 4; i++) {
-                        if (board[row + i][col + i] == 0) {
-                            return new GmkMove(aiPlayer, row + i, col + i);
-                        }
-                    }
-                }
-            }
-        }
+    /**
+     * Start an open-ended analysis of the given position, which runs until it is stopped (e.g. to think on the opponent's time).
+     * Parameters and result are as for startSearch.
+     */
+    public GmkSearch startAnalysis(GmkState state, Executor executor, long updateIntervalMillis, Consumer<GmkMove> listener) {
+        return start(state, true, Integer.MAX_VALUE, 0, 0, executor, updateIntervalMillis, listener);
+    }
 
-        // Diagonal check (top-right to bottom-left)
-        for (int row = 0; row <= size - 4; row++) {
-            for (int col = 3; col < size; col++) {
-                int count = 0;
-                for (int i = 0; i < 4; i++) {
-                    if (board[row + i][col - i] == playerToBlock + 1) {
-                        count++;
-                    }
-                }
+    /**
+     * Think on the opponent's time: search the position after our move in the background until the opponent replies.
+     * The next call of findBestMove (or startSearch) stops pondering and reuses the subtree of the actual reply.
+     * Pondering is bounded by the node pool, if there is one, and otherwise stops after adding the ponder limit of nodes
+     * (see setPonderNodes), so that a slow opponent cannot make the tree outgrow the heap.
+     *
+     * @param state    the position after our move, with the opponent to move.
+     * @param executor the executor which runs the pondering search.
+     */
+    public void startPondering(GmkState state, Executor executor) {
+        stopPondering();
+        if (state == null || state.isTerminal()) return;
+        ponderSearch = start(state, false, Integer.MAX_VALUE, 0, nodePool == null ? ponderNodes : 0, executor, 0, null);
+    }
 
-                // If three in a row and one empty space
-                if (count >= 3) {
-                    for (int i = 0; i < 4; i++) {
-                        if (board[row + i][col - i] == 0) {
-                            return new GmkMove(aiPlayer, row + i, col - i);
-                        }
-                    }
-                }
-            }
+    /**
+     * Stop pondering, if it is in progress, and wait for the pondering search to wind down.
+     */
+    public void stopPondering() {
+        GmkSearch search = ponderSearch;
+        if (search == null) return;
+        ponderSearch = null;
+        if (search.abandonIfNotStarted()) return;
+        search.stop();
+        try {
+            search.result().join();
+        } catch (CancellationException | CompletionException e) {
+            // Nothing to do: the tree built so far is what matters
         }
+    }
 
-        return null;
+    public boolean isPondering() {
+        return ponderSearch != null && !ponderSearch.isDone();
     }
 
-    public GmkMove findBestMove(GmkState state) {
+    // maxNodes, if positive, stops the search once it has created that many nodes
+    private GmkSearch start(GmkState state, boolean shortcuts, int maxIterations, long maxMillis, int maxNodes, Executor executor,
+                            long updateIntervalMillis, Consumer<GmkMove> listener) {
         if (state == null) {
             throw new IllegalArgumentException("State cannot be null");
         }
-
-        int aiPlayer = state.player();
-        int humanPlayer = (aiPlayer == 0) ? 1 : 0;
-
-        // Check if this is the first AI move
-        int[][] board = state.getBoard();
-        int totalPieces = 0;
-        for (int[] row : board) {
-            for (int cell : row) {
-                if (cell != 0) {
-                    totalPieces++;
-                }
+        if (shortcuts) stopPondering();
+        GmkSearch search = new GmkSearch();
+        executor.execute(() -> {
+            if (!search.begin()) {
+                search.result().cancel(false);
+                return;
             }
-        }
-
-        if (totalPieces <= 1) {
-            // AI first move
-            int center = board.length / 2;
+            try {
+                search.result().complete(search(state, shortcuts, maxIterations, maxMillis, maxNodes, search, updateIntervalMillis, listener));
+            } catch (Throwable t) {
+                search.result().completeExceptionally(t);
+            }
+        });
+        return search;
+    }
 
-            // Check if center is occupied
-            if (board[center][center] == 0) {
-                // If center is free, then take it
-                return new GmkMove(aiPlayer, center, center);
-            } else {
-                // Center is occupied, choose a random adjacent position
-                List<int[]> adjacentPositions = new ArrayList<>();
-                for (int i = -1; i <= 1; i++) {
-                    for (int j = -1; j <= 1; j++) {
-                        if (i == 0 && j == 0) continue; // Skip the center
-
-                        int newRow = center + i;
-                        int newCol = center + j;
-
-                        if (newRow >= 0 && newRow < board.length &&
-                                newCol >= 0 && newCol < board.length &&
-                                board[newRow][newCol] == 0) {
-                            adjacentPositions.add(new int[]{newRow, newCol});
-                        }
-                    }
-                }
+    // A search, recorded as a GmkEvents.Search event if Flight Recorder is recording it
+    private GmkMove search(GmkState state, boolean shortcuts, int maxIterations, long maxMillis, int maxNodes, GmkSearch control,
+                           long updateIntervalMillis, Consumer<GmkMove> listener) {
+        GmkEvents.Search event = new GmkEvents.Search();
+        event.begin();
+        long start = System.nanoTime();
+        GmkMove move = prepare(state, shortcuts);
+        if (move == null) {
+            iterate(maxIterations, maxMillis, maxNodes, control, updateIntervalMillis, listener);
+            move = conclude();
+        }
+        endSearch(event, state, move, maxIterations, maxMillis, start);
+        return move;
+    }
 
-                if (!adjacentPositions.isEmpty()) {
-                    // Randomly select an adjacent position
-                    int randomIndex = (int)(Math.random() * adjacentPositions.size());
-                    int[] selected = adjacentPositions.get(randomIndex);
-                    return new GmkMove(aiPlayer, selected[0], selected[1]);
-                }
-            }
+    // Commit the Search event of a search which began at start (System.nanoTime()), if it is wanted
+    private void endSearch(GmkEvents.Search event, GmkState state, GmkMove move, int maxIterations, long maxMillis, long start) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.moveNumber = state.getMoveCount() + 1;
+            event.boardSize = state.game().getRows();
+            event.iterations = lastIterations;
+            event.nodes = lastNodes;
+            event.depth = lastDepth;
+            event.maxIterations = maxIterations;
+            event.maxMillis = maxMillis;
+            double used = maxIterations > 0 ? (double) lastIterations / maxIterations : 0;
+            if (maxMillis > 0) used = Math.max(used, (System.nanoTime() - start) / (maxMillis * 1e6));
+            event.budgetUsed = Math.min(used, 1);
+            event.shortcut = lastIterations == 0;
+            event.move = move == null ? null : move.getRow() + "," + move.getCol();
+            event.commit();
         }
+    }
 
-        // Check if we need to block player's three in a row
-        GmkMove blockingMove = findBlockingMove(state, humanPlayer);
-        if (blockingMove != null) {
-            System.out.println("AI is making a blocking move: " + blockingMove);
-            return blockingMove;
+    // The work done once per move before searching: the shortcuts (if enabled), which answer the move if it needs no search,
+    // or else the set-up of the tree in currentRootNode (returning null)
+    private GmkMove prepare(GmkState state, boolean shortcuts) {
+        lastIterations = 0;
+        lastNodes = 0;
+        lastDepth = 0;
+
+        if (shortcuts) {
+            GmkMove shortcut = shortcutMove(state);
+            if (shortcut != null) return shortcut;
         }
 
         // Otherwise, use MCTS to find the best move
-        // Create the root node
-        GmkNode rootNode = new GmkNode(state);
+        // Reuse the subtree for this position if the previous search (or pondering) has already built one
+        GmkNode rootNode = currentRootNode == null ? null : findSubtree(currentRootNode, state, 2);
+        if (rootNode == null) {
+            rootNode = new GmkNode(state);
+            lastNodes = 1;
+        }
         this.currentRootNode = rootNode; // Store root node for visualization
+        if (nodePool != null) nodePool.reset(rootNode);
 
         // Expand the root node first
-        expand(rootNode);
+        if (rootNode.children().isEmpty()) expand(rootNode);
 
         if (rootNode.children().isEmpty()) {
-            System.out.println("No valid moves available from root node");
+            if (verbose) System.out.println("No valid moves available from root node");
             return findRandomMove(state);
         }
 
-        // Run the MCTS algorithm for the specified number of iterations
-        for (int i = 0; i < iterations; i++) {
+        nextSnapshot = System.nanoTime() + snapshotIntervalMillis * 1_000_000;
+        if (GmkEvents.throughputType.isEnabled()) {
+            throughput = new GmkEvents.Throughput();
+            throughput.begin();
+            sampleIterations = 0;
+            sampleStart = System.nanoTime();
+        }
+        return null;
+    }
+
+    // Run MCTS from currentRootNode until the budget is used up or the search is stopped
+    private void iterate(int maxIterations, long maxMillis, int maxNodes, GmkSearch control,
+                         long updateIntervalMillis, Consumer<GmkMove> listener) {
+        GmkNode rootNode = currentRootNode;
+        // Run the MCTS algorithm for the specified number of iterations (or until the time limit expires)
+        long deadline = maxMillis > 0 ? System.nanoTime() + maxMillis * 1_000_000 : 0;
+        long updateInterval = updateIntervalMillis * 1_000_000;
+        long nextUpdate = System.nanoTime() + updateInterval;
+        Consumer<GmkTreeSnapshot> snapshots = snapshotListener;
+        SubmissionPublisher<GmkAnalysis> analyses = analysisPublisher;
+        boolean analysing = analyses != null && analyses.hasSubscribers();
+        // The per-iteration events are looked at only if Flight Recorder is recording them
+        int rootDepth = ((GmkState) rootNode.state()).getMoveCount();
+        boolean recordingGrowth = GmkEvents.treeGrowthType.isEnabled();
+        List<GmkNode> path = new ArrayList<>();
+        for (int i = 0; i < maxIterations; i++) {
+            if (deadline != 0 && System.nanoTime() - deadline >= 0) break;
+            if (maxNodes > 0 && lastNodes >= maxNodes) break;
+            if (snapshots != null && System.nanoTime() - nextSnapshot >= 0) {
+                snapshots.accept(GmkTreeSnapshot.of(rootNode, SNAPSHOT_DEPTH, SNAPSHOT_BREADTH));
+                nextSnapshot = System.nanoTime() + snapshotIntervalMillis * 1_000_000;
+            }
+            if (analysing && System.nanoTime() - nextAnalysis >= 0) {
+                analyses.offer(GmkAnalysis.of(rootNode), null);
+                nextAnalysis = System.nanoTime() + analysisIntervalMillis * 1_000_000;
+            }
+            if (throughput != null && System.nanoTime() - sampleStart >= GmkEvents.THROUGHPUT_SAMPLE_MILLIS * 1_000_000) {
+                throughput = sampleThroughput(throughput, lastIterations - sampleIterations, System.nanoTime() - sampleStart);
+                sampleIterations = lastIterations;
+                sampleStart = System.nanoTime();
+            }
+            if (recordingGrowth && lastIterations > 0 && lastIterations % GmkEvents.CHECKPOINT_ITERATIONS == 0) {
+                GmkEvents.TreeGrowth growth = new GmkEvents.TreeGrowth();
+                growth.iterations = lastIterations;
+                growth.nodes = lastNodes;
+                growth.depth = lastDepth;
+                growth.live = nodePool == null ? -1 : nodePool.getLive();
+                growth.commit();
+            }
+            if (control != null) {
+                if (control.isStopRequested()) break;
+                if (updateInterval > 0 && System.nanoTime() - nextUpdate >= 0) {
+                    GmkMove best = findBestMoveFromChildren(rootNode);
+                    control.publish(best, lastIterations);
+                    if (listener != null) listener.accept(best);
+                    nextUpdate += updateInterval;
+                }
+            }
+            lastIterations++;
             try {
                 // Selection and expansion
-                GmkNode selectedNode = select(rootNode);
+                path.clear();
+                GmkNode selectedNode = select(rootNode, path);
 
                 if (selectedNode == null) {
                     System.err.println("Selected node is null at iteration " + i);
                     continue;
                 }
+                lastDepth = Math.max(lastDepth, ((GmkState) selectedNode.state()).getMoveCount() - rootDepth);
 
                 // Simulation
-                boolean result = simulate(selectedNode);
+                double result = simulate(selectedNode);
 
                 // Backpropagation
-                backPropagation(selectedNode, result);
+                backPropagation(path, result);
 
             } catch (Exception e) {
                 System.err.println("Error during MCTS iteration " + i + ": " + e.getMessage());
                 e.printStackTrace();
             }
         }
+    }
+
+    // The work done once per move after searching: the last throughput sample, the final snapshot and analysis,
+    // and the choice of move
+    private GmkMove conclude() {
+        GmkNode rootNode = currentRootNode;
+        GmkState state = (GmkState) rootNode.state();
+        if (throughput != null) {
+            sampleThroughput(throughput, lastIterations - sampleIterations, System.nanoTime() - sampleStart);
+            throughput = null;
+        }
+        Consumer<GmkTreeSnapshot> snapshots = snapshotListener;
+        if (snapshots != null) snapshots.accept(GmkTreeSnapshot.of(rootNode, SNAPSHOT_DEPTH, SNAPSHOT_BREADTH));
+        SubmissionPublisher<GmkAnalysis> analyses = analysisPublisher;
+        if (analyses != null && analyses.hasSubscribers()) analyses.offer(GmkAnalysis.of(rootNode), null);
 
         // Choose the best move based on the most visited child
         GmkMove selectedMove;
@@ -554,7 +718,7 @@ public class GmkMCTS {
             selectedMove = findBestMoveFromChildren(rootNode);
 
             // Debug why position (0,0) might be selected
-            if (selectedMove.getRow() == 0 && selectedMove.getCol() == 0) {
+            if (verbose && selectedMove.getRow() == 0 && selectedMove.getCol() == 0) {
                 System.out.println("WARNING: AI selected (0,0) position");
 
                 // Debug the top 5 moves considered by MCTS
@@ -581,7 +745,7 @@ public class GmkMCTS {
                     if (childMoves.size() > rootMoves.size()) {
                         GmkMove move = childMoves.get(rootMoves.size());
                         System.out.println("Move " + (i+1) + ": (" + move.getRow() + "," + move.getCol() +
-                                ") - Playouts: " + child.playouts() + ", Wins: " + child.wins());
+                                ") - Playouts: " + child.playouts() + ", Mean reward: " + String.format("%.3f", child.meanReward()));
                     }
                 }
 
@@ -589,7 +753,8 @@ public class GmkMCTS {
                 System.out.println("\nEvaluating sample positions:");
                 int[][] positions = {{7, 7}, {0, 0}, {0, 7}, {7, 0}, {3, 3}, {3, 7}, {7, 3}};
                 for (int[] pos : positions) {
-                    int score = evaluateMove(state.getBoard(), pos[0], pos[1], state.player(), state.game().getSize());
+                    if (pos[0] >= state.game().getRows() || pos[1] >= state.game().getCols()) continue;
+                    int score = GmkHeuristics.evaluateMove(state, state.game().getGeometry().cell(pos[0], pos[1]), state.player());
                     System.out.println("Position (" + pos[0] + "," + pos[1] + ") score: " + score);
                 }
             }
@@ -602,6 +767,87 @@ public class GmkMCTS {
         return selectedMove;
     }
 
+    // Commit a throughput sample of the given number of iterations in the given time and begin the next one
+    private static GmkEvents.Throughput sampleThroughput(GmkEvents.Throughput sample, int iterations, long nanos) {
+        sample.end();
+        if (sample.shouldCommit()) {
+            sample.iterations = iterations;
+            sample.rate = nanos > 0 ? iterations * 1e9 / nanos : 0;
+            sample.commit();
+        }
+        GmkEvents.Throughput result = new GmkEvents.Throughput();
+        result.begin();
+        return result;
+    }
+
+    // Moves which need no search: the opening book, the first move and blocking moves
+    private GmkMove shortcutMove(GmkState state) {
+        GmkEvents.Shortcut event = new GmkEvents.Shortcut();
+        event.begin();
+        int aiPlayer = state.player();
+        int humanPlayer = (aiPlayer == 0) ? 1 : 0;
+
+        if (openingBook != null) {
+            GmkMove bookMove = openingBook.lookup(state);
+            if (bookMove != null) return event.taken("book", bookMove);
+        }
+
+        // Check if this is the first AI move
+        if (state.getMoveHistory().size() <= 1) {
+            // AI first move
+            GmkGeometry geometry = state.game().getGeometry();
+            int[] cells = state.getCells();
+            int center = geometry.cell(geometry.getRows() / 2, geometry.getCols() / 2);
+
+            // Check if center is occupied
+            if (cells[center] == 0) {
+                // If center is free, then take it
+                return event.taken("first", new GmkMove(aiPlayer, center / geometry.getCols(), center % geometry.getCols()));
+            } else {
+                // Center is occupied, choose a random adjacent position
+                List<Integer> adjacentPositions = new ArrayList<>();
+                for (int direction = 0; direction < GmkGeometry.DIRECTIONS.length; direction++) {
+                    int cell = geometry.neighbors(direction)[center];
+                    if (cells[cell] == 0) adjacentPositions.add(cell);
+                }
+
+                if (!adjacentPositions.isEmpty()) {
+                    // Randomly select an adjacent position
+                    int randomIndex = random().nextInt(adjacentPositions.size());
+                    int selected = adjacentPositions.get(randomIndex);
+                    return event.taken("first", new GmkMove(aiPlayer, selected / geometry.getCols(), selected % geometry.getCols()));
+                }
+            }
+        }
+
+        // Check if we need to block player's three in a row
+        GmkMove blockingMove = findBlockingMove(state, humanPlayer);
+        if (blockingMove != null) {
+            if (verbose) System.out.println("AI is making a blocking move: " + blockingMove);
+            return event.taken("block", blockingMove);
+        }
+        return event.taken("none", null);
+
+    }
+
+    // Find the node for the given state among node and its descendants, down to the given depth
+    private static GmkNode findSubtree(GmkNode node, GmkState state, int depth) {
+        GmkState nodeState = (GmkState) node.state();
+        if (samePosition(nodeState, state)) return node;
+        if (depth == 0 || nodeState.getMoveHistory().size() >= state.getMoveHistory().size()) return null;
+        for (Node<GmkGame> child : node.children()) {
+            GmkNode found = findSubtree((GmkNode) child, state, depth - 1);
+            if (found != null) return found;
+        }
+        return null;
+    }
+
+    private static boolean samePosition(GmkState a, GmkState b) {
+        return a.game().getRows() == b.game().getRows() && a.game().getCols() == b.game().getCols() &&
+                a.getZobristKey() == b.getZobristKey() &&
+                a.player() == b.player() && Arrays.equals(a.getCells(), b.getCells());
+    }
+
     private GmkMove findRandomMove(GmkState state) {
         Collection<Move<GmkGame>> moves = state.moves(state.player());
         List<Move<GmkGame>> movesList = new ArrayList<>(moves);
@@ -610,7 +856,7 @@ public class GmkMCTS {
             throw new IllegalStateException("No valid moves available");
         }
 
-        int randomIndex = (int) (Math.random() * movesList.size());
+        int randomIndex = random().nextInt(movesList.size());
         Move<GmkGame> randomMove = movesList.get(randomIndex);
 
         if (randomMove instanceof GmkMove) {
@@ -622,13 +868,14 @@ public class GmkMCTS {
 
     private GmkMove findBestMoveFromChildren(GmkNode rootNode) {
         if (rootNode.children().isEmpty()) {
-            System.out.println("Warning: Root has no children");
+            if (verbose) System.out.println("Warning: Root has no children");
             return findRandomMove((GmkState) rootNode.state());
         }
 
         List<ScoredMove> scoredMoves = new ArrayList<>();
         GmkState rootState = (GmkState) rootNode.state();
-        int size = rootState.game().getSize();
+        int lastRow = rootState.game().getRows() - 1;
+        int lastCol = rootState.game().getCols() - 1;
         int player = rootState.player();
 
         // Consider both playouts and position evaluation
@@ -636,7 +883,7 @@ public class GmkMCTS {
             if (!(child instanceof GmkNode gomokuChild)) continue;
 
             int playouts = gomokuChild.playouts();
-            double winRate = playouts > 0 ? (double)gomokuChild.wins() / playouts : 0;
+            double winRate = gomokuChild.meanReward();
 
             GmkState childState = (GmkState) gomokuChild.state();
             List<GmkMove> childMoves = childState.getMoveHistory();
@@ -647,16 +894,16 @@ public class GmkMCTS {
             GmkMove move = childMoves.get(rootMoves.size());
 
             // Calculate position score
-            int positionScore = evaluateMove(rootState.getBoard(), move.getRow(), move.getCol(), player, size);
+            int positionScore = GmkHeuristics.evaluateMove(rootState, rootState.game().getGeometry().cell(move.getRow(), move.getCol()), player);
 
             // Combined score based on MCTS results and position evaluation
             double combinedScore = (winRate * playouts) + (positionScore * 0.1);
 
             // Heavily penalize (0,0) and other corners
             if ((move.getRow() == 0 && move.getCol() == 0) ||
-                    (move.getRow() == 0 && move.getCol() == size-1) ||
-                    (move.getRow() == size-1 && move.getCol() == 0) ||
-                    (move.getRow() == size-1 && move.getCol() == size-1)) {
+                    (move.getRow() == 0 && move.getCol() == lastCol) ||
+                    (move.getRow() == lastRow && move.getCol() == 0) ||
+                    (move.getRow() == lastRow && move.getCol() == lastCol)) {
                 combinedScore *= 0.5; // 50% penalty for corners
             }
 
@@ -664,7 +911,7 @@ public class GmkMCTS {
         }
 
         if (scoredMoves.isEmpty()) {
-            System.out.println("Warning: No valid scored moves");
+            if (verbose) System.out.println("Warning: No valid scored moves");
             return findRandomMove(rootState);
         }
 
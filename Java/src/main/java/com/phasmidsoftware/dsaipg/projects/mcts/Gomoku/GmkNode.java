@@ -4,20 +4,43 @@ import com.phasmidsoftware.dsaipg.projects.mcts.core.Game;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
+/**
+ * A node of the Gomoku search tree. Its statistics are the number of playouts and the sum of their rewards,
+ * each reward between 0 (a loss) and 1 (a win), with 1/2 for a draw and anything between for an estimate.
+ * The sum is held in fixed point (REWARD_SCALE units to a win), so that updates are exact, compact and lock-free.
+ */
 public class GmkNode implements Node<GmkGame> {
+    /**
+     * The fixed-point value of a reward of 1.
+     */
+    public static final long REWARD_SCALE = 1L << 16;
+
+    private static final AtomicLongFieldUpdater<GmkNode> REWARD = AtomicLongFieldUpdater.newUpdater(GmkNode.class, "reward");
+    private static final AtomicIntegerFieldUpdater<GmkNode> PLAYOUTS = AtomicIntegerFieldUpdater.newUpdater(GmkNode.class, "playouts");
+
     private final GmkState state;
     private final List<Node<GmkGame>> children;
-    private int wins;
-    private int playouts;
+    private volatile long reward;   // the sum of the rewards, in units of 1/REWARD_SCALE
+    private volatile int playouts;
+    private float prior;            // the prior probability of the move to this node (see GmkPriors), or 0 if there is none
 
     public GmkNode(GmkState state) {
         this.state = state;
         this.children = new ArrayList<>();
-        this.wins = 0;
+        this.reward = 0;
         this.playouts = 0;
     }
 
+    // Used to restore a node with its statistics (see GmkTreeSerializer)
+    GmkNode(GmkState state, long reward, int playouts) {
+        this(state);
+        this.reward = reward;
+        this.playouts = playouts;
+    }
+
     @Override
     public boolean isLeaf() {
         return state.isTerminal() || children.isEmpty();
@@ -32,18 +55,37 @@ public class GmkNode implements Node<GmkGame> {
     @Override
     public boolean white() { return state.player() == state.game().opener(); }
 
+    /**
+     * @return the score of this node on the scale of Node.wins(): 2 points for a win, 1 for a draw (rounded down).
+     */
     @Override
-    public int wins() { return wins; }
+    public int wins() { return (int) (2 * reward / REWARD_SCALE); }
+
+    /**
+     * @return the sum of the rewards of this node's playouts, in units of 1/REWARD_SCALE.
+     */
+    public long getReward() { return reward; }
+
+    /**
+     * @return the mean reward of this node's playouts, between 0 and 1 (0 if there are none).
+     */
+    public double meanReward() {
+        int n = playouts;
+        return n > 0 ? (double) reward / REWARD_SCALE / n : 0;
+    }
 
     @Override
     public void backPropagate() {
         if(isLeaf()) return;
-        playouts = 0;
-        wins = 0;
+        int playouts = 0;
+        long reward = 0;
         for (Node<GmkGame> child : children) {
-            wins += child.wins();
+            if (child instanceof GmkNode gmkChild) reward += gmkChild.reward;
+            else reward += child.wins() * REWARD_SCALE / 2;
             playouts += child.playouts();
         }
+        this.playouts = playouts;
+        this.reward = reward;
     }
 
     @Override
@@ -55,11 +97,48 @@ public class GmkNode implements Node<GmkGame> {
         children.add(child);
     }
 
+    void addChild(GmkNode child) {
+        children.add(child);
+    }
+
+    // Turn this node back into a leaf, keeping its statistics (see GmkNodePool): returns the number of children removed
+    int clearChildren() {
+        int removed = children.size();
+        children.clear();
+        return removed;
+    }
+
     @Override
     public int playouts() { return playouts; }
 
+    /**
+     * @return the prior probability of the move to this node, among its siblings (0 if the search uses no priors).
+     */
+    public float getPrior() { return prior; }
+
+    void setPrior(float prior) { this.prior = prior; }
+
     public void update(boolean win) {
-        if (win) wins++;
-        playouts++;
+        update(win ? 1 : 0);
+    }
+
+    /**
+     * Record one playout with the given reward.
+     *
+     * @param reward the value of the playout, between 0 and 1.
+     */
+    public void update(double reward) {
+        update(Math.round(reward * REWARD_SCALE), 1);
+    }
+
+    /**
+     * Record a batch of playouts at once.
+     *
+     * @param reward   the sum of their rewards, in units of 1/REWARD_SCALE.
+     * @param playouts the number of playouts.
+     */
+    public void update(long reward, int playouts) {
+        REWARD.addAndGet(this, reward);
+        PLAYOUTS.addAndGet(this, playouts);
     }
 }
@@ -0,0 +1,168 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Bounds the number of live nodes in a GmkMCTS search tree, so that long searches run in a fixed footprint.
+ * <p>
+ * Every expansion reserves room for its children. When the cap would be exceeded, the least-visited subtrees
+ * at the frontier of the tree (expanded nodes whose children are all leaves) are collapsed back into leaves,
+ * keeping their statistics, until occupancy drops to the low-water mark. A collapsed node is expanded again
+ * if the search comes back to it. If nothing can be collapsed, or the only candidate is the parent of the node being
+ * expanded, the expansion is refused and the node stays a leaf.
+ */
+public class GmkNodePool {
+    private static final double LOW_WATER_MARK = 0.75;  // fraction of the capacity to which an eviction frees the tree
+
+    private final int capacity;
+
+    // Metrics (written by the search thread only)
+    private volatile int live;
+    private volatile int peak;
+    private volatile long evictions;
+    private volatile long recycled;
+    private volatile long refused;
+
+    /**
+     * @param capacity the maximum number of nodes in the tree.
+     */
+    public GmkNodePool(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Create a pool whose nodes fit (approximately) in the given amount of memory.
+     *
+     * @param bytes     the memory budget of the tree.
+     * @param boardSize the size of the board (the state held by each node dominates its footprint).
+     */
+    public static GmkNodePool forMemory(long bytes, int boardSize) {
+        return new GmkNodePool((int) Math.max(1, Math.min(Integer.MAX_VALUE, bytes / bytesPerNode(boardSize))));
+    }
+
+    /**
+     * Rough estimate of the heap used by one node: the node and its child list, the state, its cells, line masks and move history.
+     */
+    static long bytesPerNode(int boardSize) {
+        long cells = 16 + 4L * (boardSize * boardSize + 1);
+        long lines = 24 + 16 + 2 * 8L * (6 * boardSize - 2);
+        long history = 40 + 4L * boardSize * boardSize / 2;
+        return 40 + 40 + 56 + cells + lines + history;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of nodes currently in the tree.
+     */
+    public int getLive() {
+        return live;
+    }
+
+    /**
+     * @return the largest number of nodes held at any one time.
+     */
+    public int getPeak() {
+        return peak;
+    }
+
+    /**
+     * @return the number of subtrees collapsed to make room.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of nodes released by evictions.
+     */
+    public long getRecycled() {
+        return recycled;
+    }
+
+    /**
+     * @return the number of expansions refused because nothing could be evicted.
+     */
+    public long getRefused() {
+        return refused;
+    }
+
+    public String toString() {
+        return "GmkNodePool{live=" + live + "/" + capacity + ", peak=" + peak + ", evictions=" + evictions +
+                ", recycled=" + recycled + ", refused=" + refused + "}";
+    }
+
+    // Start accounting for a (possibly reused) tree
+    void reset(GmkNode root) {
+        live = count(root);
+        peak = Math.max(peak, live);
+    }
+
+    /**
+     * Reserve room for the children of expanding, evicting frontier subtrees of root if necessary.
+     * The expansion of the root itself is never refused.
+     *
+     * @return true if the expansion may go ahead.
+     */
+    boolean reserve(int children, GmkNode root, GmkNode expanding) {
+        boolean detached = false;
+        if (live + children > capacity) detached = evict(root, expanding, (int) (capacity * LOW_WATER_MARK) - children);
+        if (detached || live + children > capacity && expanding != root) {
+            refused++;
+            return false;
+        }
+        live += children;
+        peak = Math.max(peak, live);
+        return true;
+    }
+
+    // Evict frontier subtrees until live is at most target: returns true if the node being expanded was itself cut off
+    private boolean evict(GmkNode root, GmkNode expanding, int target) {
+        boolean detached = false;
+        while (live > target) {
+            List<GmkNode> frontier = new ArrayList<>();
+            collectFrontier(root, root, expanding, frontier);
+            if (frontier.isEmpty()) {
+                // Last resort: the parent of the node being expanded (whose expansion must then be refused)
+                collectFrontier(root, root, null, frontier);
+                if (frontier.isEmpty()) return detached;
+            }
+            frontier.sort(Comparator.comparingInt(GmkNode::playouts));
+            for (GmkNode node : frontier) {
+                if (live <= target) return detached;
+                if (node.children().contains(expanding)) detached = true;
+                int freed = node.clearChildren();
+                live -= freed;
+                recycled += freed;
+                evictions++;
+            }
+        }
+        return detached;
+    }
+
+    // Collect the expanded nodes whose children are all leaves, except the root and the parent of the node being expanded (if any)
+    private static void collectFrontier(GmkNode node, GmkNode root, GmkNode expanding, List<GmkNode> frontier) {
+        boolean allLeaves = true;
+        for (Node<GmkGame> child : node.children()) {
+            if (!child.children().isEmpty()) {
+                allLeaves = false;
+                collectFrontier((GmkNode) child, root, expanding, frontier);
+            }
+        }
+        if (allLeaves && node != root && !node.children().isEmpty() && !node.children().contains(expanding))
+            frontier.add(node);
+    }
+
+    private static int count(GmkNode node) {
+        int result = 1;
+        for (Node<GmkGame> child : node.children()) result += count((GmkNode) child);
+        return result;
+    }
+}
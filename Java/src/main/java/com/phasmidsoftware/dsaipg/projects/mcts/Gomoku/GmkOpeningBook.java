@@ -0,0 +1,217 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Opening book for Gomoku, built offline from deep MCTS searches.
+ * <p>
+ * The book is a binary file of fixed-size entries sorted by the Zobrist key of the position:
+ * <pre>
+ * header: int magic, int version, int rows, int columns, int win length, int rule (GmkGame.Rule ordinal), int entry count
+ * entry:  long zobrist key, int move (row * columns + col), int weight (playouts of the chosen move)
+ * </pre>
+ * The file is memory-mapped when opened and each lookup is a binary search over the mapped entries,
+ * so nothing is parsed onto the heap at startup.
+ * A book only answers positions of the game it was built for: the same board, win length and rule.
+ */
+public class GmkOpeningBook {
+    private static final int MAGIC = 0x474D4B42;    // "GMKB"
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 28;
+    private static final int ENTRY_BYTES = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int rows;
+    private final int cols;
+    private final int winLength;
+    private final GmkGame.Rule rule;
+    private final int count;
+
+    private GmkOpeningBook(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC)
+            throw new IllegalArgumentException("not a Gomoku opening book");
+        if (buffer.getInt(4) != VERSION)
+            throw new IllegalArgumentException("unsupported opening book version: " + buffer.getInt(4));
+        this.rows = buffer.getInt(8);
+        this.cols = buffer.getInt(12);
+        this.winLength = buffer.getInt(16);
+        int rule = buffer.getInt(20);
+        if (rule < 0 || rule >= GmkGame.Rule.values().length)
+            throw new IllegalArgumentException("unknown rule in opening book: " + rule);
+        this.rule = GmkGame.Rule.values()[rule];
+        this.count = buffer.getInt(24);
+        if (buffer.capacity() != HEADER_BYTES + (long) count * ENTRY_BYTES)
+            throw new IllegalArgumentException("opening book is truncated");
+    }
+
+    /**
+     * Memory-map an opening book file.
+     *
+     * @param path the book file.
+     * @return the book.
+     */
+    public static GmkOpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping remains valid after the channel is closed
+            return new GmkOpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return the number of rows of the board (for a square board, its size).
+     */
+    public int getSize() {
+        return rows;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public GmkGame.Rule getRule() {
+        return rule;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Look up the book move for the given state.
+     *
+     * @param state the current state.
+     * @return the move for the player to move, or null if the position is not in the book (or the book is for another game).
+     */
+    public GmkMove lookup(GmkState state) {
+        GmkGame game = state.game();
+        if (game.getRows() != rows || game.getCols() != cols || game.getWinLength() != winLength || game.getRule() != rule)
+            return null;
+        int index = find(state.getZobristKey());
+        if (index < 0) return null;
+        int cell = buffer.getInt(HEADER_BYTES + index * ENTRY_BYTES + 8);
+        int row = cell / cols;
+        int col = cell % cols;
+        // Guard against a (very unlikely) key collision
+        if (state.getBoard()[row][col] != 0) return null;
+        return new GmkMove(state.player(), row, col);
+    }
+
+    // Binary search for the entry with the given key
+    private int find(long key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = buffer.getLong(HEADER_BYTES + mid * ENTRY_BYTES);
+            if (midKey < key) low = mid + 1;
+            else if (midKey > key) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Build an opening book by searching every position reachable from the empty board within the given number of plies,
+     * following the most visited moves of each search.
+     *
+     * @param game       the game (board shape and rules).
+     * @param plies      the depth of the book.
+     * @param branching  the number of moves followed from each position.
+     * @param iterations the MCTS iterations per position.
+     * @param path       the book file to write.
+     * @return the number of positions in the book.
+     */
+    public static int build(GmkGame game, int plies, int branching, int iterations, Path path) throws IOException {
+        GmkMCTS mcts = new GmkMCTS(iterations);
+        mcts.setVerbose(false);
+        int cols = game.getCols();
+
+        // Keyed by Zobrist key so that transpositions are searched once; the map also yields the sorted file order
+        SortedMap<Long, int[]> entries = new TreeMap<>();
+        List<GmkState> frontier = List.of(game.start());
+        for (int ply = 0; ply < plies && !frontier.isEmpty(); ply++) {
+            List<GmkState> next = new ArrayList<>();
+            for (GmkState state : frontier) {
+                if (state.isTerminal() || entries.containsKey(state.getZobristKey())) continue;
+                GmkMove best = mcts.findBestMove(state);
+                GmkNode root = mcts.getLastNodes() > 0 ? mcts.getCurrentRootNode() : null;
+                List<GmkMove> followed = new ArrayList<>();
+                followed.add(best);
+                int weight = 0;
+                if (root != null) {
+                    List<GmkNode> children = new ArrayList<>();
+                    for (Node<GmkGame> child : root.children()) children.add((GmkNode) child);
+                    children.sort((a, b) -> Integer.compare(b.playouts(), a.playouts()));
+                    for (GmkNode child : children) {
+                        GmkMove move = lastMove(child);
+                        if (move.getRow() == best.getRow() && move.getCol() == best.getCol()) weight = child.playouts();
+                        else if (followed.size() < branching) followed.add(move);
+                    }
+                }
+                entries.put(state.getZobristKey(), new int[]{best.getRow() * cols + best.getCol(), weight});
+                for (GmkMove move : followed) next.add((GmkState) state.next(move));
+            }
+            frontier = next;
+        }
+
+        write(game, entries, path);
+        return entries.size();
+    }
+
+    private static GmkMove lastMove(GmkNode node) {
+        List<GmkMove> history = ((GmkState) node.state()).getMoveHistory();
+        return history.get(history.size() - 1);
+    }
+
+    private static void write(GmkGame game, SortedMap<Long, int[]> entries, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + entries.size() * ENTRY_BYTES);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(game.getRows()).putInt(game.getCols())
+                    .putInt(game.getWinLength()).putInt(game.getRule().ordinal()).putInt(entries.size());
+            for (Map.Entry<Long, int[]> entry : entries.entrySet())
+                buffer.putLong(entry.getKey()).putInt(entry.getValue()[0]).putInt(entry.getValue()[1]);
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    /**
+     * Build an opening book offline.
+     * Usage: GmkOpeningBook [--size 15] [--k 5] [--rule freestyle|exact|renju-lite] [--plies 4] [--branching 3]
+     *                       [--iterations 20000] [--out opening.book]
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        int size = Integer.parseInt(options.getOrDefault("size", Integer.toString(GmkGame.DEFAUTL_SIZE)));
+        int k = Integer.parseInt(options.getOrDefault("k", Integer.toString(GmkGame.DEFAULT_WIN_LENGTH)));
+        GmkGame.Rule rule = GmkGame.Rule.valueOf(options.getOrDefault("rule", "freestyle").toUpperCase().replace('-', '_'));
+        int plies = Integer.parseInt(options.getOrDefault("plies", "4"));
+        int branching = Integer.parseInt(options.getOrDefault("branching", "3"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "20000"));
+        Path out = Paths.get(options.getOrDefault("out", "opening.book"));
+
+        long start = System.currentTimeMillis();
+        int positions = build(new GmkGame(size, size, k, rule, GmkGame.Opening.STANDARD), plies, branching, iterations, out);
+        System.out.println("Wrote " + positions + " positions to " + out + " in " + (System.currentTimeMillis() - start) + "ms");
+    }
+}
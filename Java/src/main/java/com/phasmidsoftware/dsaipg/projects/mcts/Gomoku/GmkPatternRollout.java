@@ -0,0 +1,78 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.RolloutPolicy;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+
+import java.util.Random;
+
+/**
+ * Rollout policy which weights each empty cell by a table lookup on its 3x3 pattern (see GmkHeuristics.patternCode)
+ * and chooses a cell with probability proportional to its weight.
+ * Much cheaper per ply than the heuristic policy, while still playing near the stones already on the board.
+ */
+public class GmkPatternRollout implements RolloutPolicy<GmkGame> {
+    private static final int[] DEFAULT_WEIGHTS = defaultWeights();
+
+    private final int[] weights;
+    private final int horizon;
+
+    /**
+     * @param weights the weight of each pattern code (65536 entries, each at least 0).
+     * @param horizon the maximum number of plies in a rollout.
+     */
+    public GmkPatternRollout(int[] weights, int horizon) {
+        if (weights.length != 1 << 16) throw new IllegalArgumentException("pattern table must have 65536 entries: " + weights.length);
+        this.weights = weights;
+        this.horizon = horizon;
+    }
+
+    public GmkPatternRollout() {
+        this(DEFAULT_WEIGHTS, GmkHeuristicRollout.DEFAULT_HORIZON);
+    }
+
+    @Override
+    public Move<GmkGame> choose(State<GmkGame> state, Random random) {
+        GmkState gmkState = (GmkState) state;
+        int[] cells = gmkState.getCells();
+        int player = gmkState.player();
+
+        // One pass to weigh the empty cells, then a roulette-wheel choice among them
+        int[] cellWeights = new int[cells.length - 1];
+        long total = 0;
+        for (int cell = 0; cell < cellWeights.length; cell++)
+            if (cells[cell] == 0) total += cellWeights[cell] = weights[GmkHeuristics.patternCode(gmkState, cell, player)];
+        if (total == 0) return GmkHeuristics.randomMove(gmkState, random);
+
+        long r = (long) (random.nextDouble() * total);
+        for (int cell = 0; cell < cellWeights.length; cell++) {
+            r -= cellWeights[cell];
+            if (r < 0) return GmkHeuristics.move(gmkState, cell);
+        }
+        return GmkHeuristics.randomMove(gmkState, random);
+    }
+
+    @Override
+    public int horizon() {
+        return horizon;
+    }
+
+    // Cells next to stones are much more likely than isolated cells; own stones count a little more than the opponent's
+    private static int[] defaultWeights() {
+        int[] result = new int[1 << 16];
+        for (int code = 0; code < result.length; code++) {
+            int own = 0, opponent = 0;
+            for (int direction = 0; direction < 8; direction++) {
+                int v = code >>> (2 * direction) & 3;
+                if (v == 1) own++;
+                else if (v == 2) opponent++;
+            }
+            result[code] = own + opponent == 0 ? 1 : 20 + 10 * own + 8 * opponent;
+        }
+        return result;
+    }
+
+    public String toString() {
+        return "pattern(horizon=" + horizon + ")";
+    }
+}
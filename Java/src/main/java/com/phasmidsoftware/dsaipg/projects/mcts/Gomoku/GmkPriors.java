@@ -0,0 +1,208 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Move priors for PUCT selection in GmkMCTS, learned offline from game records instead of hand-tuned.
+ * <p>
+ * The prior of a move depends only on the 3x3 pattern around its cell, seen by the player to move (see GmkHeuristics.patternCode),
+ * and is the smoothed fraction of the times that an empty cell with that pattern was the one played in the training games.
+ * The table is a flat array of 65536 floats, so a lookup costs the same as computing the pattern code.
+ * <p>
+ * The table file is:
+ * <pre>
+ * header: int magic, int version, int entry count
+ * entry:  float prior (one per pattern code, in order)
+ * </pre>
+ * The main method trains a table from the records written by GmkTournament (CSV or JSONL), or from fresh self-play games.
+ */
+public class GmkPriors {
+    private static final int MAGIC = 0x474D4B50;    // "GMKP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int PATTERNS = 1 << 16;
+    private static final double SMOOTHING = 10;     // the weight (in observations) of the average rate in each pattern's prior
+
+    private static final Pattern JSON_MOVES = Pattern.compile("\"moves\":\\[((?:\\[\\d+,\\d+],?)*)]");
+    private static final Pattern JSON_MOVE = Pattern.compile("\\[(\\d+),(\\d+)");
+
+    private final float[] table;
+
+    /**
+     * @param table the prior of each pattern code (65536 entries, each greater than 0).
+     */
+    public GmkPriors(float[] table) {
+        if (table.length != PATTERNS) throw new IllegalArgumentException("prior table must have 65536 entries: " + table.length);
+        this.table = table;
+    }
+
+    /**
+     * @return the (unnormalized) prior of the given move in the given state.
+     */
+    public float prior(GmkState state, GmkMove move) {
+        int cell = state.game().getGeometry().cell(move.getRow(), move.getCol());
+        return table[GmkHeuristics.patternCode(state, cell, move.player())];
+    }
+
+    /**
+     * @return the prior of the given pattern code.
+     */
+    public float prior(int code) {
+        return table[code];
+    }
+
+    /**
+     * Learn priors from a collection of games: for each position of each game, every empty cell is an observation of its pattern,
+     * and the cell which was played is a success. Rarely seen patterns are pulled towards the average rate.
+     *
+     * @param game  the game (board shape and rules) of the records.
+     * @param games the move sequences of the games.
+     * @return the priors.
+     */
+    public static GmkPriors train(GmkGame game, Iterable<List<GmkMove>> games) {
+        long[] seen = new long[PATTERNS];
+        long[] played = new long[PATTERNS];
+        for (List<GmkMove> moves : games) {
+            GmkState state = game.start();
+            for (GmkMove move : moves) {
+                if (state.isTerminal()) break;
+                int[] cells = state.getCells();
+                int player = state.player();
+                for (int cell = 0; cell < cells.length - 1; cell++)
+                    if (cells[cell] == 0) seen[GmkHeuristics.patternCode(state, cell, player)]++;
+                played[GmkHeuristics.patternCode(state, game.getGeometry().cell(move.getRow(), move.getCol()), player)]++;
+                state = (GmkState) state.next(new GmkMove(player, move.getRow(), move.getCol()));
+            }
+        }
+
+        long totalSeen = 0, totalPlayed = 0;
+        for (int code = 0; code < PATTERNS; code++) {
+            totalSeen += seen[code];
+            totalPlayed += played[code];
+        }
+        double average = totalSeen > 0 ? (double) totalPlayed / totalSeen : 1;
+        float[] table = new float[PATTERNS];
+        for (int code = 0; code < PATTERNS; code++)
+            table[code] = (float) ((played[code] + SMOOTHING * average) / (seen[code] + SMOOTHING));
+        return new GmkPriors(table);
+    }
+
+    /**
+     * Read a prior table file into memory.
+     */
+    public static GmkPriors load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), HEADER_BYTES + 4L * PATTERNS));
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) < 0) break;
+            buffer.flip();
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) throw new IOException("not a Gomoku prior table");
+            int version = buffer.getInt();
+            if (version != VERSION) throw new IOException("unsupported prior table version: " + version);
+            if (buffer.getInt() != PATTERNS || buffer.remaining() != 4 * PATTERNS || channel.size() != HEADER_BYTES + 4L * PATTERNS)
+                throw new IOException("prior table is truncated");
+            float[] table = new float[PATTERNS];
+            buffer.asFloatBuffer().get(table);
+            return new GmkPriors(table);
+        }
+    }
+
+    /**
+     * Write this table to a file.
+     */
+    public void write(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 4 * PATTERNS);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(PATTERNS);
+        buffer.asFloatBuffer().put(table);
+        buffer.rewind();    // the float view does not move the buffer's position
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    /**
+     * Read the move sequences from a file of GmkTournament records (CSV rows or JSONL).
+     */
+    public static List<List<GmkMove>> readGames(Path path) throws IOException {
+        List<List<GmkMove>> result = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                List<GmkMove> moves = parseGame(line);
+                if (moves != null) result.add(moves);
+            }
+        }
+        return result;
+    }
+
+    // The moves of one record, or null for a header or blank line (the player of each move is filled in by train)
+    static List<GmkMove> parseGame(String line) {
+        List<GmkMove> moves = new ArrayList<>();
+        if (line.startsWith("{")) {
+            Matcher matcher = JSON_MOVES.matcher(line);
+            if (!matcher.find()) return null;
+            Matcher move = JSON_MOVE.matcher(matcher.group(1));
+            while (move.find()) moves.add(new GmkMove(moves.size() % 2, Integer.parseInt(move.group(1)), Integer.parseInt(move.group(2))));
+            return moves;
+        }
+        String[] fields = line.split(",");
+        if (fields.length < 5 || fields[0].equals("game")) return null;
+        for (String move : fields[4].trim().split(" ")) {
+            if (move.isEmpty()) continue;
+            String[] rowCol = move.split("-");
+            moves.add(new GmkMove(moves.size() % 2, Integer.parseInt(rowCol[0]), Integer.parseInt(rowCol[1])));
+        }
+        return moves;
+    }
+
+    /**
+     * Train a prior table.
+     * Usage: GmkPriors [--size n] [--selfplay games] [--iterations n] [--out file] [record files...]
+     */
+    public static void main(String[] args) throws IOException {
+        int size = GmkGame.DEFAUTL_SIZE;
+        int selfPlay = 0;
+        int iterations = 200;
+        Path out = Paths.get("gomoku.priors");
+        List<Path> logs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--size" -> size = Integer.parseInt(args[++i]);
+                case "--selfplay" -> selfPlay = Integer.parseInt(args[++i]);
+                case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+                case "--out" -> out = Paths.get(args[++i]);
+                default -> logs.add(Paths.get(args[i]));
+            }
+        }
+
+        GmkGame game = new GmkGame(size);
+        List<List<GmkMove>> games = new ArrayList<>();
+        for (Path log : logs) games.addAll(readGames(log));
+        if (selfPlay > 0) {
+            GmkTournament.Engine engine = new GmkTournament.Engine("self", iterations, 0, GmkTournament.Engine.Options.DEFAULT);
+            GmkTournament tournament = new GmkTournament(game, engine, engine, 1);
+            for (int i = 0; i < selfPlay; i++) games.add(tournament.playGame(i).moves);
+        }
+        if (games.isEmpty()) {
+            System.err.println("No games: give record files or --selfplay");
+            return;
+        }
+
+        long start = System.nanoTime();
+        GmkPriors priors = train(game, games);
+        priors.write(out);
+        System.out.println("Trained " + out + " from " + games.size() + " games in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+}
@@ -0,0 +1,110 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.RolloutPolicy;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+
+import java.util.*;
+
+/**
+ * The rollout policies available to GmkMCTS, by name, and a benchmark which measures each of them
+ * for rollouts per second and for the win rate of an engine using it against the default (heuristic) policy.
+ * <p>
+ * Usage:
+ * <pre>
+ * GmkRollouts [--size 15] [--millis 2000] [--games 20] [--iterations 500] [--threads N] [--policies uniform,pattern,cutoff]
+ * </pre>
+ */
+public final class GmkRollouts {
+    public static final List<String> NAMES = List.of("uniform", "heuristic", "pattern", "cutoff");
+    public static final int DEFAULT_CUTOFF = 10;    // plies before the cutoff policy evaluates the position
+
+    private static volatile double sink;    // the values of the last measured rollouts, so that they are not optimized away
+
+    private GmkRollouts() {
+    }
+
+    /**
+     * @param name one of NAMES.
+     * @return a new policy of that name, with its default parameters.
+     */
+    public static RolloutPolicy<GmkGame> forName(String name) {
+        return switch (name) {
+            case "uniform" -> new GmkUniformRollout();
+            case "heuristic" -> new GmkHeuristicRollout();
+            case "pattern" -> new GmkPatternRollout();
+            case "cutoff" -> new GmkCutoffRollout(new GmkPatternRollout(), DEFAULT_CUTOFF);
+            default -> throw new IllegalArgumentException("unknown rollout policy: " + name + " (expected one of " + NAMES + ")");
+        };
+    }
+
+    /**
+     * Measure the throughput of a policy: rollouts are played from the given positions in turn until the time is up.
+     *
+     * @return the number of rollouts per second.
+     */
+    public static double rolloutsPerSecond(RolloutPolicy<GmkGame> policy, List<GmkState> positions, long millis, Random random) {
+        long start = System.nanoTime();
+        long end = start + millis * 1_000_000;
+        long rollouts = 0;
+        double total = 0;
+        while (System.nanoTime() - end < 0) {
+            State<GmkGame> state = positions.get((int) (rollouts % positions.size()));
+            total += policy.playout(state, state.player(), random);
+            rollouts++;
+        }
+        sink = total;
+        return rollouts * 1e9 / (System.nanoTime() - start);
+    }
+
+    /**
+     * Positions a few plies into the game, with stones near the centre, from which to measure rollouts.
+     */
+    public static List<GmkState> samplePositions(GmkGame game, int count, int plies, Random random) {
+        List<GmkState> result = new ArrayList<>();
+        int rows = game.getRows(), cols = game.getCols();
+        while (result.size() < count) {
+            GmkState state = game.start();
+            for (int ply = 0; ply < plies && !state.isTerminal(); ply++) {
+                int row, col;
+                do {
+                    row = rows / 2 + random.nextInt(5) - 2;
+                    col = cols / 2 + random.nextInt(5) - 2;
+                } while (row < 0 || row >= rows || col < 0 || col >= cols || state.getBoard()[row][col] != 0);
+                state = (GmkState) state.next(new GmkMove(state.player(), row, col));
+            }
+            if (!state.isTerminal()) result.add(state);
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        int size = Integer.parseInt(options.getOrDefault("size", Integer.toString(GmkGame.DEFAUTL_SIZE)));
+        long millis = Long.parseLong(options.getOrDefault("millis", "2000"));
+        int games = Integer.parseInt(options.getOrDefault("games", "20"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "500"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+        List<String> policies = Arrays.asList(options.getOrDefault("policies", String.join(",", NAMES)).split(","));
+
+        GmkGame game = new GmkGame(size);
+        Random random = new Random(35L);
+        List<GmkState> positions = samplePositions(game, 32, 6, random);
+        System.out.println("Rollout policies on " + size + "x" + size + ": " + millis + "ms of rollouts each, " +
+                games + " games of " + iterations + " iterations per move against the heuristic policy");
+        for (String name : policies) {
+            RolloutPolicy<GmkGame> policy = forName(name);
+            rolloutsPerSecond(policy, positions, millis / 4, random); // warm up
+            double rate = rolloutsPerSecond(policy, positions, millis, random);
+            String result = String.format("%-10s %10.0f rollouts/s", name, rate);
+            if (games > 0 && !name.equals("heuristic")) {
+                GmkTournament.Engine engine = new GmkTournament.Engine(name, iterations, 0, GmkTournament.Engine.Options.DEFAULT.withRollout(name));
+                GmkTournament.Engine baseline = new GmkTournament.Engine("heuristic", iterations, 0, GmkTournament.Engine.Options.DEFAULT.withRollout("heuristic"));
+                GmkTournament.Summary summary = new GmkTournament(game, engine, baseline, threads).run(games, null, false);
+                double score = (summary.getWins() + 0.5 * summary.getDraws()) / games;
+                result += String.format("   score %.2f (+%d =%d -%d)", score, summary.getWins(), summary.getDraws(), summary.getLosses());
+            }
+            System.out.println(result);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shares a fixed set of search threads between the moves of many concurrent games, earliest deadline first.
+ * <p>
+ * Each move is searched in short slices (see GmkMCTS.beginSlices): a worker takes the move with the earliest deadline,
+ * searches it for one slice, and puts it back unless it is finished. A move is finished when it has run its engine's
+ * iterations, or when its deadline comes, whereupon it is answered with the best move so far.
+ * <p>
+ * Under overload (more moves in progress than threads), the iterations of each move are cut in proportion,
+ * so that moves finish early rather than late; a move which still finishes after its deadline counts as a deadline miss.
+ * NOTE: an engine must not have more than one move in progress at a time.
+ */
+public class GmkScheduler implements Closeable {
+    public static final long DEFAULT_SLICE_MILLIS = 5;
+    private static final long MARGIN_NANOS = 2_000_000;    // a move's search ends this long before its deadline, to leave time to reply
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition ready = lock.newCondition();
+    private final PriorityQueue<Job> queue = new PriorityQueue<>((a, b) -> Long.compare(a.deadline, b.deadline));
+    private final List<Thread> workers = new ArrayList<>();
+    private final long sliceMillis;
+    private final int capacity;
+    private int active;                 // moves submitted and not yet finished, queued or running (guarded by lock)
+    private boolean closed;             // guarded by lock
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong deadlineMisses = new AtomicLong();
+    private final AtomicLong cutBudgets = new AtomicLong();
+
+    /**
+     * @param threads     the number of search threads.
+     * @param sliceMillis the length of a slice.
+     * @param capacity    the most moves which may be in progress at once (beyond that, submit refuses).
+     */
+    public GmkScheduler(int threads, long sliceMillis, int capacity) {
+        this.sliceMillis = sliceMillis;
+        this.capacity = capacity;
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::work, "gomoku-scheduler-" + (i + 1));
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    public GmkScheduler() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_SLICE_MILLIS, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Search for a move.
+     *
+     * @param engine       the engine, whose iterations (and time limit, if any) bound the search.
+     * @param state        the position.
+     * @param budgetMillis the time allowed for the move, e.g. from the player's remaining clock.
+     * @return the future which completes with the move.
+     * @throws RejectedExecutionException if the scheduler is at capacity or closed.
+     */
+    public CompletableFuture<GmkMove> submit(GmkMCTS engine, GmkState state, long budgetMillis) {
+        if (engine.getTimeLimitMillis() > 0) budgetMillis = Math.min(budgetMillis, engine.getTimeLimitMillis());
+        Job job = new Job(engine, state, budgetMillis);
+        lock.lock();
+        try {
+            if (closed) throw new RejectedExecutionException("scheduler is closed");
+            if (active >= capacity) throw new RejectedExecutionException("scheduler is at capacity: " + capacity);
+            active++;
+            queue.add(job);
+            ready.signal();
+        } finally {
+            lock.unlock();
+        }
+        return job.result;
+    }
+
+    private void work() {
+        while (true) {
+            Job job;
+            int load;
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closed) ready.awaitUninterruptibly();
+                if (closed) return;
+                job = queue.poll();
+                load = active;
+            } finally {
+                lock.unlock();
+            }
+            if (runSlice(job, load)) finish(job);
+            else {
+                lock.lock();
+                try {
+                    if (closed) {
+                        job.result.cancel(false);
+                        return;
+                    }
+                    queue.add(job);
+                    ready.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    // Run one slice of a move: true if the move is finished
+    private boolean runSlice(Job job, int load) {
+        // Under overload, each move gets its share of the threads
+        int target = (int) Math.max(1, job.engine.getIterations() * Math.min(1.0, workers.size() / (double) load));
+        long end = job.deadline - MARGIN_NANOS;
+        long millis = Math.max(1, Math.min(sliceMillis, (end - System.nanoTime()) / 1_000_000));
+        try {
+            if (!job.begun) {
+                job.begun = true;
+                job.move = job.engine.beginSlices(job.state, job.budgetMillis);
+                if (job.move != null) return true;  // answered without searching
+            }
+            job.engine.searchSlice(target - job.iterations, millis);
+            job.iterations = job.engine.getLastIterations();
+            if (job.iterations >= target) {
+                if (job.iterations < job.engine.getIterations()) cutBudgets.incrementAndGet();
+            } else if (System.nanoTime() - end >= 0) {
+                cutBudgets.incrementAndGet();
+            } else {
+                return false;
+            }
+            job.move = job.engine.endSlices();
+        } catch (RuntimeException e) {
+            job.result.completeExceptionally(e);
+        }
+        return true;
+    }
+
+    private void finish(Job job) {
+        if (System.nanoTime() - job.deadline > 0) deadlineMisses.incrementAndGet();
+        completed.incrementAndGet();
+        lock.lock();
+        try {
+            active--;
+        } finally {
+            lock.unlock();
+        }
+        job.result.complete(job.move);
+    }
+
+    /**
+     * @return the number of moves waiting for a thread.
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of moves in progress (waiting or being searched).
+     */
+    public int getActive() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * @return the number of moves which were answered after their deadline.
+     */
+    public long getDeadlineMisses() {
+        return deadlineMisses.get();
+    }
+
+    /**
+     * @return the number of moves which were answered with fewer than their engine's iterations, because of load or the deadline.
+     */
+    public long getCutBudgets() {
+        return cutBudgets.get();
+    }
+
+    public int getThreads() {
+        return workers.size();
+    }
+
+    @Override
+    public String toString() {
+        return "GmkScheduler{threads=" + workers.size() + ", active=" + getActive() + ", queued=" + getQueueDepth() +
+                ", completed=" + completed + ", misses=" + deadlineMisses + ", cut=" + cutBudgets + "}";
+    }
+
+    /**
+     * Stop the threads; moves which have not finished are cancelled.
+     */
+    @Override
+    public void close() {
+        List<Job> abandoned;
+        lock.lock();
+        try {
+            closed = true;
+            abandoned = new ArrayList<>(queue);
+            queue.clear();
+            ready.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Job job : abandoned) job.result.cancel(false);
+    }
+
+    private static class Job {
+        final GmkMCTS engine;
+        final GmkState state;
+        final long budgetMillis;
+        final long deadline;    // System.nanoTime()
+        final CompletableFuture<GmkMove> result = new CompletableFuture<>();
+        boolean begun;          // true once the engine has begun the search (see GmkMCTS.beginSlices)
+        int iterations;         // run so far, over all slices
+        GmkMove move;           // the move, once it is finished
+
+        Job(GmkMCTS engine, GmkState state, long budgetMillis) {
+            this.engine = engine;
+            this.state = state;
+            this.budgetMillis = budgetMillis;
+            this.deadline = System.nanoTime() + budgetMillis * 1_000_000;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Handle on a search started by GmkMCTS.startSearch or GmkMCTS.startAnalysis.
+ * <p>
+ * The result completes with the chosen move when the budget is used up or the search is stopped.
+ * stop() ends the search early with the best move found so far; cancel() abandons it altogether.
+ */
+public class GmkSearch {
+    private final CompletableFuture<GmkMove> result = new CompletableFuture<>();
+    private volatile boolean stopRequested;
+    private volatile GmkMove bestMoveSoFar;
+    private volatile int iterations;
+    private final AtomicBoolean claimed = new AtomicBoolean(); // set by whichever of the search thread and abandonIfNotStarted() comes first
+
+    GmkSearch() {
+    }
+
+    /**
+     * @return the future which completes with the move chosen by this search.
+     */
+    public CompletableFuture<GmkMove> result() {
+        return result;
+    }
+
+    /**
+     * Ask the search to finish as soon as possible; the result then completes with the best move found so far.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Abandon the search: it stops at the end of the current iteration and the result is cancelled.
+     *
+     * @return true if the result was cancelled by this call.
+     */
+    public boolean cancel() {
+        stopRequested = true;
+        return result.cancel(false);
+    }
+
+    public boolean isStopRequested() {
+        return stopRequested;
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * @return the most recently published best move, or null if the search has not published one yet.
+     */
+    public GmkMove getBestMoveSoFar() {
+        return bestMoveSoFar;
+    }
+
+    /**
+     * @return the number of iterations completed when the best move so far was published.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    // Called by the search thread before it starts searching: false if the search was abandoned before it started
+    boolean begin() {
+        return claimed.compareAndSet(false, true) && !stopRequested;
+    }
+
+    // Abandon a search which has not started yet: true if it will now never start (and its result is cancelled)
+    boolean abandonIfNotStarted() {
+        stopRequested = true;
+        if (!claimed.compareAndSet(false, true)) return false;
+        result.cancel(false);
+        return true;
+    }
+
+    void publish(GmkMove move, int iterations) {
+        this.iterations = iterations;
+        this.bestMoveSoFar = move;
+    }
+}
@@ -0,0 +1,408 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Headless server for many concurrent human-vs-AI Gomoku games, over a line-oriented TCP protocol.
+ * <p>
+ * Each connection is served by its own thread (a virtual thread where the runtime has them), which blocks
+ * while the AI thinks; the searches themselves are time-sliced over a GmkScheduler, with one thread per CPU by default,
+ * so that each AI move is answered within the move time however many games are in progress.
+ * A session (a game and its engine, with the engine's search tree) outlives the connection which created it,
+ * and is evicted once it has been idle for longer than the idle timeout.
+ * <p>
+ * Commands and responses (one line each):
+ * <pre>
+ * NEW [size [black|white]]  -> OK id [row col]       (the human's colour, black by default; as white, the AI's first move follows)
+ * MOVE id row col           -> MOVE row col [OVER result] | OVER result   (result is black, white or draw)
+ * BOARD id                  -> BOARD row-col ...      (the moves so far)
+ * WATCH id                  -> OK                     (from now on, each AI move of the game is preceded by INFO lines of analysis)
+ * END id                    -> OK
+ * STATS                     -> STATS sessions=n evicted=n searches=n rejected=n queued=n misses=n cut=n
+ * </pre>
+ * An INFO line is "INFO " followed by GmkAnalysis.format(), e.g. "INFO playouts=1200 pv=7-7,6-8 top=7-7:420:0.561,6-8:300:0.532".
+ * Any error is answered by a line starting with ERR; "ERR busy" means that the scheduler was full and the move was not made,
+ * and "ERR search failed" that the search was abandoned (e.g. because the server is closing) and the move was not made.
+ */
+public class GmkServer implements Closeable {
+    public static final int DEFAULT_PORT = 7315;
+    public static final int DEFAULT_ITERATIONS = 1000;
+    public static final long DEFAULT_IDLE_MILLIS = 10 * 60 * 1000;
+    public static final long DEFAULT_MOVE_MILLIS = 2000;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;      // one thread per connection
+    private final GmkScheduler scheduler;           // the searches
+    private final ScheduledExecutorService evictor;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final int iterations;
+    private final long idleMillis;
+    private final long moveMillis;
+
+    /**
+     * @param port       the port to listen on (0 for any free port).
+     * @param iterations the MCTS iterations per AI move.
+     * @param threads    the number of threads for searches.
+     * @param queue      the number of searches which may wait for a thread (beyond that, moves are refused as busy).
+     * @param idleMillis the time after which an idle session is evicted.
+     * @param moveMillis the time allowed for each AI move (within which the iterations are cut if the server is overloaded).
+     */
+    public GmkServer(int port, int iterations, int threads, int queue, long idleMillis, long moveMillis) throws IOException {
+        this.serverSocket = new ServerSocket(port, 1024);
+        this.iterations = iterations;
+        this.idleMillis = idleMillis;
+        this.moveMillis = moveMillis;
+        this.connections = newThreadPerTaskExecutor("gomoku-session");
+        this.scheduler = new GmkScheduler(threads, GmkScheduler.DEFAULT_SLICE_MILLIS, threads + queue);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(daemonThreads("gomoku-evictor"));
+        long period = Math.max(1, idleMillis / 2);
+        evictor.scheduleAtFixedRate(() -> evictIdle(System.currentTimeMillis()), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public GmkServer(int port, int iterations, int threads, int queue, long idleMillis) throws IOException {
+        this(port, iterations, threads, queue, idleMillis, DEFAULT_MOVE_MILLIS);
+    }
+
+    public GmkServer(int port) throws IOException {
+        this(port, DEFAULT_ITERATIONS, Runtime.getRuntime().availableProcessors(), 1024, DEFAULT_IDLE_MILLIS);
+    }
+
+    /**
+     * A thread per task: virtual threads where the runtime has them (Java 21 and later), otherwise daemon platform threads.
+     */
+    static ExecutorService newThreadPerTaskExecutor(String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(daemonThreads(name));
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicLong count = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Start accepting connections (in the background).
+     */
+    public GmkServer start() {
+        connections.execute(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connections.execute(() -> serve(socket));
+                } catch (IOException e) {
+                    if (!serverSocket.isClosed()) System.err.println("GmkServer: accept failed: " + e.getMessage());
+                } catch (RejectedExecutionException e) {
+                    return; // closing
+                }
+            }
+        });
+        return this;
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                if (line.trim().equalsIgnoreCase("QUIT")) break;
+                out.println(process(line, out::println));
+            }
+        } catch (SocketException e) {
+            // The client went away
+        } catch (IOException e) {
+            System.err.println("GmkServer: connection failed: " + e.getMessage());
+        }
+    }
+
+    String process(String line) {
+        return process(line, null);
+    }
+
+    /**
+     * Handle one command line.
+     *
+     * @param line     the command.
+     * @param progress receives the INFO lines of a watched game while the AI thinks, before the response (may be null).
+     * @return the response line.
+     */
+    String process(String line, Consumer<String> progress) {
+        String[] words = line.trim().split("\\s+");
+        try {
+            return switch (words[0].toUpperCase()) {
+                case "NEW" -> newSession(words);
+                case "MOVE" -> move(words, progress);
+                case "WATCH" -> {
+                    session(words, 2).watch();
+                    yield "OK";
+                }
+                case "BOARD" -> board(session(words, 2));
+                case "END" -> {
+                    Session session = sessions.remove(session(words, 2).id);
+                    if (session != null) session.mcts.stopPondering();
+                    yield "OK";
+                }
+                case "STATS" -> "STATS sessions=" + sessions.size() + " evicted=" + evicted.get() +
+                        " searches=" + searches.get() + " rejected=" + rejected.get() + " queued=" + scheduler.getQueueDepth() +
+                        " misses=" + scheduler.getDeadlineMisses() + " cut=" + scheduler.getCutBudgets();
+                default -> "ERR unknown command: " + words[0];
+            };
+        } catch (NumberFormatException e) {
+            return "ERR bad number: " + e.getMessage();
+        } catch (IllegalArgumentException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    private String newSession(String[] words) {
+        int size = words.length > 1 ? Integer.parseInt(words[1]) : GmkGame.DEFAUTL_SIZE;
+        boolean humanWhite = words.length > 2 && words[2].equalsIgnoreCase("white");
+        if (words.length > 2 && !humanWhite && !words[2].equalsIgnoreCase("black"))
+            throw new IllegalArgumentException("colour must be black or white: " + words[2]);
+        GmkMCTS mcts = new GmkMCTS(iterations);
+        mcts.setVerbose(false);
+        Session session = new Session(Long.toString(nextId.incrementAndGet(), 36), new GmkGame(size), mcts);
+        sessions.put(session.id, session);
+        if (!humanWhite) return "OK " + session.id;
+        session.lock.lock();
+        try {
+            GmkMove reply = think(session);
+            if (reply == null) {
+                sessions.remove(session.id);
+                return "ERR busy";
+            }
+            return "OK " + session.id + " " + reply.getRow() + " " + reply.getCol();
+        } catch (CompletionException | CancellationException e) {
+            sessions.remove(session.id);
+            return "ERR search failed";
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    private String move(String[] words, Consumer<String> progress) {
+        Session session = session(words, 4);
+        int row = Integer.parseInt(words[2]);
+        int col = Integer.parseInt(words[3]);
+        session.lock.lock();
+        try {
+            GmkState state = session.state;
+            if (state.isTerminal()) return "ERR game is over";
+            GmkGame game = state.game();
+            if (row < 0 || row >= game.getRows() || col < 0 || col >= game.getCols()) return "ERR off the board: " + row + " " + col;
+            if (state.getBoard()[row][col] != 0) return "ERR occupied: " + row + " " + col;
+            session.state = (GmkState) state.next(new GmkMove(state.player(), row, col));
+            if (session.state.isTerminal()) return "OVER " + result(session.state);
+            GmkMove reply;
+            session.setProgress(progress);
+            try {
+                reply = think(session);
+            } catch (CompletionException | CancellationException e) {
+                session.state = state;  // the move is not made
+                return "ERR search failed";
+            } finally {
+                session.setProgress(null);
+            }
+            if (reply == null) {
+                session.state = state;  // the move is not made
+                return "ERR busy";
+            }
+            return "MOVE " + reply.getRow() + " " + reply.getCol() + (session.state.isTerminal() ? " OVER " + result(session.state) : "");
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    // Search for the AI's move on the scheduler and play it: null if the scheduler is full
+    // (the search throws CompletionException if it fails, CancellationException if the scheduler closes first)
+    private GmkMove think(Session session) {
+        CompletableFuture<GmkMove> search;
+        try {
+            search = scheduler.submit(session.mcts, session.state, moveMillis);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return null;
+        }
+        searches.incrementAndGet();
+        GmkMove move = search.join();
+        session.state = (GmkState) session.state.next(move);
+        session.touch();
+        return move;
+    }
+
+    private static String board(Session session) {
+        StringJoiner moves = new StringJoiner(" ", "BOARD ", "");
+        moves.setEmptyValue("BOARD");
+        for (GmkMove move : session.state.getMoveHistory()) moves.add(move.getRow() + "-" + move.getCol());
+        return moves.toString();
+    }
+
+    private static String result(GmkState state) {
+        return state.winner().map(winner -> winner == 0 ? "black" : "white").orElse("draw");
+    }
+
+    private Session session(String[] words, int length) {
+        if (words.length != length) throw new IllegalArgumentException("expected " + (length - 1) + " arguments to " + words[0]);
+        Session session = sessions.get(words[1]);
+        if (session == null) throw new IllegalArgumentException("unknown session: " + words[1]);
+        session.touch();
+        return session;
+    }
+
+    /**
+     * Evict the sessions which have been idle since before now - idleMillis, except those with a move in progress.
+     *
+     * @return the number of sessions evicted.
+     */
+    int evictIdle(long now) {
+        int count = 0;
+        for (Iterator<Session> iterator = sessions.values().iterator(); iterator.hasNext(); ) {
+            Session session = iterator.next();
+            // A session whose lock is held is in the middle of a move (which may take longer than the idle timeout)
+            if (now - session.lastActive > idleMillis && session.lock.tryLock()) {
+                try {
+                    iterator.remove();
+                    session.mcts.stopPondering();
+                    count++;
+                } finally {
+                    session.lock.unlock();
+                }
+            }
+        }
+        evicted.addAndGet(count);
+        return count;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        evictor.shutdownNow();
+        scheduler.close();
+        connections.shutdownNow();
+        sessions.clear();
+    }
+
+    private static class Session {
+        final String id;
+        final GmkMCTS mcts;                             // keeps its search tree between moves
+        final ReentrantLock lock = new ReentrantLock(); // a lock rather than synchronized, so that a waiting virtual thread does not pin its carrier
+        final ReentrantLock progressLock = new ReentrantLock();
+        volatile GmkState state;
+        volatile long lastActive = System.currentTimeMillis();
+        private Consumer<String> progress;      // where the analysis of the current move goes (guarded by progressLock)
+        private boolean watched;                // guarded by progressLock
+
+        Session(String id, GmkGame game, GmkMCTS mcts) {
+            this.id = id;
+            this.mcts = mcts;
+            this.state = game.start();
+        }
+
+        void touch() {
+            lastActive = System.currentTimeMillis();
+        }
+
+        // Send the analysis of this game's searches to the progress consumer, if any
+        void watch() {
+            progressLock.lock();
+            try {
+                if (watched) return;
+                watched = true;
+            } finally {
+                progressLock.unlock();
+            }
+            mcts.getAnalysisPublisher().subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(GmkAnalysis analysis) {
+                    progressLock.lock();
+                    try {
+                        if (progress != null) progress.accept("INFO " + analysis.format());
+                    } finally {
+                        progressLock.unlock();
+                    }
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+        }
+
+        // Once this returns null, no more INFO lines are sent for the current move, so the response follows them all
+        void setProgress(Consumer<String> progress) {
+            progressLock.lock();
+            try {
+                this.progress = progress;
+            } finally {
+                progressLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Run a server until the process is stopped.
+     * Usage: GmkServer [--port n] [--iterations n] [--threads n] [--queue n] [--idle seconds] [--move millis]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = DEFAULT_PORT;
+        int iterations = DEFAULT_ITERATIONS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = 1024;
+        long idleMillis = DEFAULT_IDLE_MILLIS;
+        long moveMillis = DEFAULT_MOVE_MILLIS;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--queue" -> queue = Integer.parseInt(args[++i]);
+                case "--idle" -> idleMillis = Long.parseLong(args[++i]) * 1000;
+                case "--move" -> moveMillis = Long.parseLong(args[++i]);
+                default -> throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+        GmkServer server = new GmkServer(port, iterations, threads, queue, idleMillis, moveMillis).start();
+        System.out.println("Gomoku server listening on port " + server.getPort() + " (" + threads + " search threads)");
+        Thread.currentThread().join();
+    }
+}
@@ -6,27 +6,43 @@ import java.util.*;
 
 public class GmkState implements State<GmkGame> {
     private final GmkGame game;
-    private final int[][] board;
+    private final int[] cells;      // the board, row by row, followed by the border sentinel (see GmkGeometry)
+    private volatile int[][] board; // the board as rows, built on demand from cells
     private final int lastMovePlayer;
     private final Random random;
     private final List<GmkMove> moveHistory;
+    private final long zobristKey;  // XOR of the Zobrist keys of all stones on the board
+    private final GmkLines lines;   // the board encoded as line masks, for fast pattern checks
 
     public GmkState(GmkGame game) {
+        this(game, new Random());
+    }
+
+    /**
+     * @param game   the game.
+     * @param random the generator returned by random(), e.g. seeded for reproducible runs.
+     */
+    public GmkState(GmkGame game, Random random) {
         this.game = game;
-        int size = game.getSize();
-        this.board = new int[size][size];
+        GmkGeometry geometry = game.getGeometry();
+        this.cells = new int[geometry.getCells() + 1];
+        this.cells[geometry.getSentinel()] = GmkGeometry.BORDER;
         this.lastMovePlayer = 1;    // the white player is the last turn to move
-        this.random = new Random();
+        this.random = random;
         this.moveHistory = new ArrayList<>();
+        this.zobristKey = 0L;
+        this.lines = new GmkLines(game.getGeometry());
     }
 
-    private GmkState(GmkGame game, int[][] board, int lastMovePlayer,
-                     Random random, List<GmkMove> moveHistory) {
+    private GmkState(GmkGame game, int[] cells, int lastMovePlayer,
+                     Random random, List<GmkMove> moveHistory, long zobristKey, GmkLines lines) {
         this.game = game;
-        this.board = board;
+        this.cells = cells;
         this.lastMovePlayer = lastMovePlayer;
         this.random = random;
         this.moveHistory = moveHistory;
+        this.zobristKey = zobristKey;
+        this.lines = lines;
     }
 
     @Override
@@ -38,12 +54,8 @@ public class GmkState implements State<GmkGame> {
     public boolean isTerminal() {
         if (winner().isPresent()) return true;
 
-        for (int i = 0; i < game.getSize(); i++) {
-            for (int j = 0; j < game.getSize(); j++) {
-                if (board[i][j] == 0) return false;
-            }
-        }
-        return true;
+        // Every move fills one cell, so the board is full when the history covers it
+        return moveHistory.size() == game.getRows() * game.getCols();
     }
 
     @Override
@@ -53,64 +65,8 @@ public class GmkState implements State<GmkGame> {
 
     @Override
     public Optional<Integer> winner() {
-        int size = game.getSize();
-
-        // Horizontal checks
-        for (int row = 0; row < size; row++) {
-            for (int col = 0; col <= size - 5; col++) {
-                int player = board[row][col];
-                if (player != 0 &&
-                        player == board[row][col+1] &&
-                        player == board[row][col+2] &&
-                        player == board[row][col+3] &&
-                        player == board[row][col+4]) {
-                    return Optional.of(player-1);
-                }
-            }
-        }
-
-        // Vertical checks
-        for (int row = 0; row <= size - 5; row++) {
-            for (int col = 0; col < size; col++) {
-                int player = board[row][col];
-                if (player != 0 &&
-                        player == board[row+1][col] &&
-                        player == board[row+2][col] &&
-                        player == board[row+3][col] &&
-                        player == board[row+4][col]) {
-                    return Optional.of(player - 1);
-                }
-            }
-        }
-
-        // Diagonal checks (top-left to bottom-right)
-        for (int row = 0; row <= size - 5; row++) {
-            for (int col = 0; col <= size - 5; col++) {
-                int player = board[row][col];
-                if (player != 0 &&
-                        player == board[row+1][col+1] &&
-                        player == board[row+2][col+2] &&
-                        player == board[row+3][col+3] &&
-                        player == board[row+4][col+4]) {
-                    return Optional.of(player - 1);
-                }
-            }
-        }
-
-        // Diagonal checks (top-right to bottom-left)
-        for (int row = 0; row <= size - 5; row++) {
-            for (int col = 4; col < size; col++) {
-                int player = board[row][col];
-                if (player != 0 &&
-                        player == board[row+1][col-1] &&
-                        player == board[row+2][col-2] &&
-                        player == board[row+3][col-3] &&
-                        player == board[row+4][col-4]) {
-                    return Optional.of(player - 1);
-                }
-            }
-        }
-        return Optional.empty();
+        int winner = lines.winner();
+        return winner < 0 ? Optional.empty() : Optional.of(winner);
     }
 
     @Override
@@ -122,14 +78,11 @@ public class GmkState implements State<GmkGame> {
     public Collection<Move<GmkGame>> moves(int player) {
         if (isTerminal()) return Collections.emptyList();
 
-        List<Move<GmkGame>> possibleMoves = new ArrayList<>();
-        int size = game.getSize();
-
-        for (int row = 0; row < size; row++) {
-            for (int col = 0; col < size; col++) {
-                if (board[row][col] == 0) {
-                    possibleMoves.add(new GmkMove(player, row, col));
-                }
+        List<Move<GmkGame>> possibleMoves = new ArrayList<>(cells.length - 1 - moveHistory.size());
+        int cols = game.getCols();
+        for (int cell = 0; cell < cells.length - 1; cell++) {
+            if (cells[cell] == 0) {
+                possibleMoves.add(new GmkMove(player, cell / cols, cell % cols));
             }
         }
         return possibleMoves;
@@ -146,38 +99,82 @@ public class GmkState implements State<GmkGame> {
         int player = gmkMove.player();
 
         // Check if the move is valid
-        if (row < 0 || row >= game.getSize() || col < 0 || col >= game.getSize()) {
+        if (row < 0 || row >= game.getRows() || col < 0 || col >= game.getCols()) {
             throw new IllegalArgumentException("Move is out of bounds");
         }
-        if (board[row][col] != 0) {
+        int cell = game.getGeometry().cell(row, col);
+        if (cells[cell] != 0) {
             throw new IllegalArgumentException("Cell is already occupied");
         }
         if (player != player()) {
             throw new IllegalArgumentException("It's not this player's turn");
         }
 
-        // Create a copy of the board
-        int[][] newBoard = new int[game.getSize()][game.getSize()];
-        for (int i = 0; i < game.getSize(); i++) {
-            System.arraycopy(board[i], 0, newBoard[i], 0, game.getSize());
-        }
-
-        // Apply the move to the new board
-        newBoard[row][col] = player + 1;  // Adjust for 1-indexed board values
+        // Create a copy of the board and apply the move to it
+        int[] newCells = cells.clone();
+        newCells[cell] = player + 1;  // Adjust for 1-indexed board values
 
         // Create a copy of the move history and add the new move
         List<GmkMove> newMoveHistory = new ArrayList<>(moveHistory);
         newMoveHistory.add(gmkMove);
 
         // Create a new state with the updated board
-        return new GmkState(game, newBoard, player, random, newMoveHistory);
+        return new GmkState(game, newCells, player, random, newMoveHistory,
+                zobristKey ^ game.zobrist(player, row, col), lines.with(player, row, col));
     }
 
+    /**
+     * @return the board as rows of cell values (0 empty, 1 black, 2 white).
+     */
     public int[][] getBoard() {
-        return board;
+        int[][] result = board;
+        if (result == null) {
+            int cols = game.getCols();
+            result = new int[game.getRows()][];
+            for (int row = 0; row < result.length; row++) result[row] = Arrays.copyOfRange(cells, row * cols, (row + 1) * cols);
+            board = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the cell values indexed as in GmkGeometry (row * cols + col), followed by the BORDER sentinel.
+     * NOTE: the array is shared and must not be modified.
+     */
+    public int[] getCells() {
+        return cells;
     }
 
     public List<GmkMove> getMoveHistory() {
         return new ArrayList<>(moveHistory);
     }
+
+    /**
+     * @return the number of stones on the board (without copying the move history).
+     */
+    public int getMoveCount() {
+        return moveHistory.size();
+    }
+
+    /**
+     * Under the swap2 opening, the player to move may choose a colour instead of playing:
+     * after the third stone (the other player) and, if they placed two more stones instead, after the fifth (the opener).
+     * Colours are not part of the state, so the choice is made by whoever runs the game (see GmkMCTS.chooseColour).
+     *
+     * @return true if a colour is to be chosen before the next stone is placed.
+     */
+    public boolean isColourChoice() {
+        return game.getOpening() == GmkGame.Opening.SWAP2 && (moveHistory.size() == 3 || moveHistory.size() == 5);
+    }
+
+    public GmkLines getLines() {
+        return lines;
+    }
+
+    /**
+     * @return a 64-bit hash of the stones on the board (independent of the order in which they were played).
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
 }
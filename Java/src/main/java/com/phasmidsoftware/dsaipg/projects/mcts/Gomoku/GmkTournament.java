@@ -0,0 +1,435 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.RandomState;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Headless AI-vs-AI tournament runner for tuning GmkMCTS by self-play.
+ * <p>
+ * Two engines play a match of many games (colours alternate from game to game), spread across a fixed
+ * pool of worker threads. Each finished game is streamed to the output as one CSV row or JSONL record,
+ * and a summary with the Elo difference of engine A over engine B (with a 95% confidence interval) is printed at the end.
+ * <p>
+ * Usage:
+ * <pre>
+ * GmkTournament --a name:iterations=1000 --b name:time=200 [--games 100] [--size 15]
+ *               [--rows R --cols C] [--k 5] [--rule freestyle|exact|renju-lite] [--opening standard|swap2]
+ *               [--threads N] [--seed S] [--out results.csv] [--format csv|jsonl]
+ * </pre>
+ * With a seed (and engines bounded by iterations rather than time), every game is the same in every run,
+ * whatever the number of threads: each game's engines are seeded from their own stream, derived from the seed in game order.
+ * <p>
+ * Under the swap2 opening, the engine which would have played black places the first three stones, and the other
+ * engine then chooses its colour (see GmkMCTS.chooseColour). This runner never takes the swap2 option of placing two
+ * more stones instead.
+ */
+public class GmkTournament {
+    private final GmkGame game;
+    private final Engine engineA;
+    private final Engine engineB;
+    private final int threads;
+    private Long seed;  // the seed of the per-game random streams, or null for unseeded engines
+
+    public GmkTournament(GmkGame game, Engine engineA, Engine engineB, int threads) {
+        this.game = game;
+        this.engineA = engineA;
+        this.engineB = engineB;
+        this.threads = threads;
+    }
+
+    /**
+     * Seed the engines of the games played by run (see GmkMCTS.setSeed).
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Configuration of an engine taking part in a tournament.
+     * A fresh GmkMCTS is created for every game so that no state is shared between worker threads.
+     */
+    public static class Engine {
+        private final String name;
+        private final int iterations;
+        private final long timeLimitMillis;
+        private final Options options;
+
+        /**
+         * The optional settings of an engine (see Options.DEFAULT for the defaults).
+         *
+         * @param rollout the name of the rollout policy (see GmkRollouts), or null for the default.
+         * @param cutoff  the plies after which rollouts stop and are evaluated statically, or 0 to play them out.
+         * @param priors  the move priors for PUCT selection, or null for UCT.
+         */
+        public record Options(String rollout, int cutoff, GmkPriors priors) {
+            public static final Options DEFAULT = new Options(null, 0, null);
+
+            public Options withRollout(String rollout) {
+                return new Options(rollout, cutoff, priors);
+            }
+
+            public Options withCutoff(int cutoff) {
+                return new Options(rollout, cutoff, priors);
+            }
+
+            public Options withPriors(GmkPriors priors) {
+                return new Options(rollout, cutoff, priors);
+            }
+        }
+
+        public Engine(String name, int iterations, long timeLimitMillis, Options options) {
+            this.name = name;
+            this.iterations = iterations;
+            this.timeLimitMillis = timeLimitMillis;
+            this.options = options;
+        }
+
+        /**
+         * Parse an engine specification of the form <code>name:key=value,key=value</code>,
+         * where the keys are <code>iterations</code>, <code>time</code> (milliseconds per move)
+         * <code>rollout</code> (a policy name from GmkRollouts) and <code>cutoff</code>
+         * (the number of plies after which rollouts are scored by GmkHeuristics.winProbability) and <code>priors</code>
+         * (a table file written by GmkPriors, which is loaded once and shared by all games).
+         * If only a time is given, the search is bounded by time alone.
+         */
+        public static Engine parse(String spec) {
+            int colon = spec.indexOf(':');
+            String name = colon < 0 ? spec : spec.substring(0, colon);
+            int iterations = 0;
+            long time = 0;
+            Options options = Options.DEFAULT;
+            if (colon >= 0) {
+                for (String option : spec.substring(colon + 1).split(",")) {
+                    String[] keyValue = option.split("=", 2);
+                    if (keyValue.length != 2) throw new IllegalArgumentException("bad engine option: " + option);
+                    switch (keyValue[0].trim()) {
+                        case "iterations" -> iterations = Integer.parseInt(keyValue[1].trim());
+                        case "time" -> time = Long.parseLong(keyValue[1].trim());
+                        case "rollout" -> options = options.withRollout(keyValue[1].trim());
+                        case "cutoff" -> options = options.withCutoff(Integer.parseInt(keyValue[1].trim()));
+                        case "priors" -> options = options.withPriors(loadPriors(keyValue[1].trim()));
+                        default -> throw new IllegalArgumentException("unknown engine option: " + keyValue[0]);
+                    }
+                }
+            }
+            if (iterations == 0) iterations = time > 0 ? Integer.MAX_VALUE : 1000;
+            if (options.rollout() != null) GmkRollouts.forName(options.rollout()); // fail now, rather than in every game, on an unknown policy
+            return new Engine(name, iterations, time, options);
+        }
+
+        private static GmkPriors loadPriors(String file) {
+            try {
+                return GmkPriors.load(Paths.get(file));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("cannot load priors: " + file, e);
+            }
+        }
+
+        public GmkMCTS create() {
+            GmkMCTS mcts = new GmkMCTS(iterations, timeLimitMillis);
+            mcts.setVerbose(false);
+            if (options.rollout() != null) mcts.setRolloutPolicy(GmkRollouts.forName(options.rollout()));
+            if (options.cutoff() > 0) mcts.setRolloutPolicy(new GmkCutoffRollout(mcts.getRolloutPolicy(), options.cutoff()));
+            mcts.setPriors(options.priors());
+            return mcts;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String toString() {
+            return name + "(iterations=" + (iterations == Integer.MAX_VALUE ? "-" : iterations) + ", time=" + timeLimitMillis + "ms" +
+                    (options.rollout() == null ? "" : ", rollout=" + options.rollout()) +
+                    (options.cutoff() == 0 ? "" : ", cutoff=" + options.cutoff()) + (options.priors() == null ? "" : ", priors") + ")";
+        }
+    }
+
+    /**
+     * The record of one finished game.
+     */
+    public static class GameResult {
+        final int gameId;
+        final String black;
+        final String white;
+        final int winner;   // 0 = black, 1 = white, -1 = draw
+        final boolean swapped;  // true if the colours were swapped by the choice of a swap2 opening
+        final List<GmkMove> moves;
+        final long[] moveMillis;
+        final int[] moveNodes;
+
+        GameResult(int gameId, String black, String white, int winner, boolean swapped, List<GmkMove> moves, long[] moveMillis,
+                   int[] moveNodes) {
+            this.gameId = gameId;
+            this.black = black;
+            this.white = white;
+            this.winner = winner;
+            this.swapped = swapped;
+            this.moves = moves;
+            this.moveMillis = moveMillis;
+            this.moveNodes = moveNodes;
+        }
+
+        public int getWinner() {
+            return winner;
+        }
+
+        public String getWinnerName() {
+            return winner == 0 ? black : winner == 1 ? white : null;
+        }
+
+        public int getMoveCount() {
+            return moves.size();
+        }
+
+        static String csvHeader() {
+            return "game,black,white,winner,moves,plies,millis,nodes";
+        }
+
+        String toCsv() {
+            StringJoiner moveList = new StringJoiner(" ");
+            for (GmkMove move : moves) moveList.add(move.getRow() + "-" + move.getCol());
+            StringJoiner millis = new StringJoiner(" ");
+            for (long t : moveMillis) millis.add(Long.toString(t));
+            StringJoiner nodes = new StringJoiner(" ");
+            for (int n : moveNodes) nodes.add(Integer.toString(n));
+            String winnerName = getWinnerName();
+            return gameId + "," + black + "," + white + "," + (winnerName == null ? "draw" : winnerName) + "," +
+                    moveList + "," + moves.size() + "," + millis + "," + nodes;
+        }
+
+        String toJson() {
+            StringJoiner moveList = new StringJoiner(",", "[", "]");
+            for (GmkMove move : moves) moveList.add("[" + move.getRow() + "," + move.getCol() + "]");
+            StringJoiner millis = new StringJoiner(",", "[", "]");
+            for (long t : moveMillis) millis.add(Long.toString(t));
+            StringJoiner nodes = new StringJoiner(",", "[", "]");
+            for (int n : moveNodes) nodes.add(Integer.toString(n));
+            String winnerName = getWinnerName();
+            return "{\"game\":" + gameId + ",\"black\":" + jsonString(black) + ",\"white\":" + jsonString(white) + ",\"winner\":" +
+                    (winnerName == null ? "null" : jsonString(winnerName)) + ",\"moves\":" + moveList +
+                    ",\"millis\":" + millis + ",\"nodes\":" + nodes + "}";
+        }
+
+        // A JSON string literal: the engine names are free text, so quotes, backslashes and control characters are escaped
+        private static String jsonString(String value) {
+            StringBuilder result = new StringBuilder("\"");
+            for (char c : value.toCharArray()) {
+                switch (c) {
+                    case '"' -> result.append("\\\"");
+                    case '\\' -> result.append("\\\\");
+                    case '\n' -> result.append("\\n");
+                    case '\r' -> result.append("\\r");
+                    case '\t' -> result.append("\\t");
+                    default -> {
+                        if (c < 0x20) result.append(String.format("\\u%04x", (int) c));
+                        else result.append(c);
+                    }
+                }
+            }
+            return result.append('"').toString();
+        }
+    }
+
+    /**
+     * Play one game. Engine A plays black in even-numbered games and white in odd-numbered games
+     * (except where the other engine takes black at a swap2 colour choice).
+     */
+    GameResult playGame(int gameId) {
+        return playGame(gameId, null);
+    }
+
+    /**
+     * Play one game, with engines seeded from the given stream (if it is not null).
+     */
+    GameResult playGame(int gameId, RandomState stream) {
+        Engine black = gameId % 2 == 0 ? engineA : engineB;
+        Engine white = gameId % 2 == 0 ? engineB : engineA;
+        GmkMCTS[] players = {black.create(), white.create()};
+        if (stream != null) for (GmkMCTS player : players) player.setSeed(stream.longValue());
+        GmkMCTS opener = players[0];
+
+        GmkState state = game.start();
+        boolean swapped = false;
+        List<Long> millis = new ArrayList<>();
+        List<Integer> nodes = new ArrayList<>();
+        while (!state.isTerminal()) {
+            if (state.isColourChoice() && state.getMoveCount() == 3 && players[1].chooseColour(state) == 0) {
+                // The other engine takes black
+                players = new GmkMCTS[]{players[1], players[0]};
+                Engine engine = black;
+                black = white;
+                white = engine;
+                swapped = true;
+            }
+            // Under swap2, the opener places the first three stones of both colours
+            boolean opening = game.getOpening() == GmkGame.Opening.SWAP2 && state.getMoveCount() < 3;
+            GmkMCTS ai = opening ? opener : players[state.player()];
+            long start = System.nanoTime();
+            GmkMove move = ai.findBestMove(state);
+            millis.add((System.nanoTime() - start) / 1_000_000);
+            nodes.add(ai.getLastNodes());
+            state = (GmkState) state.next(move);
+        }
+
+        long[] moveMillis = new long[millis.size()];
+        int[] moveNodes = new int[nodes.size()];
+        for (int i = 0; i < moveMillis.length; i++) {
+            moveMillis[i] = millis.get(i);
+            moveNodes[i] = nodes.get(i);
+        }
+        return new GameResult(gameId, black.getName(), white.getName(), state.winner().orElse(-1), swapped,
+                state.getMoveHistory(), moveMillis, moveNodes);
+    }
+
+    /**
+     * Play the given number of games in parallel, writing each result to the output as soon as it is available.
+     *
+     * @param games  the number of games.
+     * @param output the destination of the per-game records (may be null).
+     * @param jsonl  true for JSONL records, false for CSV rows.
+     * @return the summary of the match from the point of view of engine A.
+     */
+    public Summary run(int games, Writer output, boolean jsonl) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CompletionService<GameResult> completionService = new ExecutorCompletionService<>(executor);
+        Summary summary = new Summary(engineA.getName(), engineB.getName());
+        try {
+            if (output != null && !jsonl) output.write(GameResult.csvHeader() + "\n");
+            // The streams are derived here, in game order, so that they do not depend on the scheduling of the games
+            RandomState streams = seed == null ? null : new RandomState(1, seed);
+            for (int i = 0; i < games; i++) {
+                final int gameId = i;
+                final RandomState stream = streams == null ? null : streams.next();
+                completionService.submit(() -> playGame(gameId, stream));
+            }
+            for (int i = 0; i < games; i++) {
+                GameResult result;
+                try {
+                    result = completionService.take().get();
+                } catch (ExecutionException e) {
+                    System.err.println("Game failed: " + e.getCause());
+                    e.getCause().printStackTrace();
+                    continue;
+                }
+                summary.add(result);
+                if (output != null) {
+                    output.write((jsonl ? result.toJson() : result.toCsv()) + "\n");
+                    output.flush();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return summary;
+    }
+
+    /**
+     * Win/draw/loss totals of engine A against engine B, with the corresponding Elo estimate.
+     */
+    public static class Summary {
+        private final String nameA;
+        private final String nameB;
+        private int wins;
+        private int draws;
+        private int losses;
+
+        Summary(String nameA, String nameB) {
+            this.nameA = nameA;
+            this.nameB = nameB;
+        }
+
+        void add(GameResult result) {
+            int colourOfA = result.gameId % 2 ^ (result.swapped ? 1 : 0); // engine A plays black in even-numbered games, unless swapped
+            if (result.getWinner() < 0) draws++;
+            else if (result.getWinner() == colourOfA) wins++;
+            else losses++;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+
+        public int getDraws() {
+            return draws;
+        }
+
+        public int getLosses() {
+            return losses;
+        }
+
+        /**
+         * @return {elo, lower, upper}: the Elo difference of A over B and its 95% confidence interval.
+         */
+        public double[] elo() {
+            return GmkTournament.elo(wins, draws, losses);
+        }
+
+        public String toString() {
+            double[] elo = elo();
+            return String.format("%s vs %s: +%d =%d -%d  Elo %+.1f [%+.1f, %+.1f] (95%% CI)",
+                    nameA, nameB, wins, draws, losses, elo[0], elo[1], elo[2]);
+        }
+    }
+
+    /**
+     * Compute the Elo difference implied by a match score, with a 95% confidence interval
+     * derived from the standard error of the per-game score.
+     *
+     * @return {elo, lower, upper}
+     */
+    static double[] elo(int wins, int draws, int losses) {
+        int n = wins + draws + losses;
+        if (n == 0) return new double[]{0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double score = (wins + 0.5 * draws) / n;
+        double variance = (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2) + losses * Math.pow(score, 2)) / n;
+        double margin = 1.96 * Math.sqrt(variance / n);
+        return new double[]{eloOf(score), eloOf(score - margin), eloOf(score + margin)};
+    }
+
+    private static double eloOf(double score) {
+        if (score <= 0) return Double.NEGATIVE_INFINITY;
+        if (score >= 1) return Double.POSITIVE_INFINITY;
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("expected an option but got: " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+
+        Engine a = Engine.parse(options.getOrDefault("a", "A:iterations=1000"));
+        Engine b = Engine.parse(options.getOrDefault("b", "B:iterations=1000"));
+        int games = Integer.parseInt(options.getOrDefault("games", "100"));
+        int size = Integer.parseInt(options.getOrDefault("size", Integer.toString(GmkGame.DEFAUTL_SIZE)));
+        int rows = Integer.parseInt(options.getOrDefault("rows", Integer.toString(size)));
+        int cols = Integer.parseInt(options.getOrDefault("cols", Integer.toString(size)));
+        int k = Integer.parseInt(options.getOrDefault("k", Integer.toString(GmkGame.DEFAULT_WIN_LENGTH)));
+        GmkGame.Rule rule = GmkGame.Rule.valueOf(options.getOrDefault("rule", "freestyle").toUpperCase().replace('-', '_'));
+        GmkGame.Opening opening = GmkGame.Opening.valueOf(options.getOrDefault("opening", "standard").toUpperCase());
+        int threads = Integer.parseInt(options.getOrDefault("threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+        boolean jsonl = "jsonl".equalsIgnoreCase(options.getOrDefault("format", "csv"));
+        String out = options.get("out");
+        String seed = options.get("seed");
+
+        System.out.println("Tournament: " + a + " vs " + b + ", " + games + " games on " + rows + "x" + cols + " (" + k + " in a row, " + rule + ", " + opening + "), " + threads + " threads");
+        GmkTournament tournament = new GmkTournament(new GmkGame(rows, cols, k, rule, opening), a, b, threads);
+        if (seed != null) tournament.setSeed(Long.parseLong(seed));
+        long start = System.currentTimeMillis();
+        Summary summary;
+        if (out == null) summary = tournament.run(games, null, jsonl);
+        else try (Writer writer = Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+            summary = tournament.run(games, writer, jsonl);
+        }
+        System.out.println(summary);
+        System.out.println("Elapsed: " + (System.currentTimeMillis() - start) + "ms");
+    }
+}
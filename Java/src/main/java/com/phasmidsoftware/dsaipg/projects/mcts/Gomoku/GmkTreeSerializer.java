@@ -0,0 +1,263 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Streaming serializer and deserializer for GmkNode trees, so that long analyses can be checkpointed,
+ * resumed (see GmkMCTS.resume) and shipped to other machines without searching again.
+ * <p>
+ * All numbers are unsigned varints (7 bits per byte, high bit set on all but the last byte):
+ * <pre>
+ * header: magic, version, rows, columns, win length, rule (GmkGame.Rule ordinal), priors (1 if the tree has move priors, else 0),
+ *         number of moves to the root, the root moves (row * columns + col)
+ * node:   reward (in units of 1/GmkNode.REWARD_SCALE), playouts, (number of stored children &lt;&lt; 1 | expanded),
+ *         [if the tree has priors and the node is expanded: the prior of every child (in units of 1/PRIOR_SCALE), in order of expansion]
+ *         then each stored child as: move, node
+ * </pre>
+ * Children with fewer playouts than the minimum are pruned when writing.
+ * When reading, an expanded node gets fresh children for the pruned moves, so the restored tree can be searched as usual.
+ */
+public class GmkTreeSerializer {
+    private static final int MAGIC = 0x474D4B54;    // "GMKT"
+    private static final int VERSION = 4;
+    private static final int PRIOR_SCALE = 1 << 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Write the tree rooted at root to a file.
+     *
+     * @param root      the root of the tree.
+     * @param path      the file to write.
+     * @param minVisits the minimum playouts of a (non-root) node for it to be written.
+     * @return the number of nodes written.
+     */
+    public static int write(GmkNode root, Path path, int minVisits) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            return write(root, channel, minVisits);
+        }
+    }
+
+    /**
+     * Write the tree rooted at root to a channel.
+     *
+     * @return the number of nodes written.
+     */
+    public static int write(GmkNode root, WritableByteChannel channel, int minVisits) throws IOException {
+        Output out = new Output(channel);
+        GmkState state = (GmkState) root.state();
+        int cols = state.game().getCols();
+        out.writeVarint(MAGIC);
+        out.writeVarint(VERSION);
+        out.writeVarint(state.game().getRows());
+        out.writeVarint(cols);
+        out.writeVarint(state.game().getWinLength());
+        out.writeVarint(state.game().getRule().ordinal());
+        boolean priors = hasPriors(root);
+        out.writeVarint(priors ? 1 : 0);
+        List<GmkMove> history = state.getMoveHistory();
+        out.writeVarint(history.size());
+        for (GmkMove move : history) out.writeVarint(move.getRow() * cols + move.getCol());
+        int nodes = writeNode(out, root, cols, minVisits, priors);
+        out.flush();
+        return nodes;
+    }
+
+    // The priors are set on all the children of an expanded node or on none of them (see GmkMCTS.expand)
+    private static boolean hasPriors(GmkNode root) {
+        for (Node<GmkGame> child : root.children())
+            if (((GmkNode) child).getPrior() > 0) return true;
+        return false;
+    }
+
+    private static int writeNode(Output out, GmkNode node, int cols, int minVisits, boolean priors) throws IOException {
+        out.writeVarlong(node.getReward());
+        out.writeVarint(node.playouts());
+        List<GmkNode> kept = new ArrayList<>();
+        for (Node<GmkGame> child : node.children())
+            if (child.playouts() >= minVisits && child.playouts() > 0) kept.add((GmkNode) child);
+        out.writeVarint(kept.size() << 1 | (node.children().isEmpty() ? 0 : 1));
+        if (priors)
+            for (Node<GmkGame> child : node.children()) out.writeVarint(Math.round(((GmkNode) child).getPrior() * PRIOR_SCALE));
+        int nodes = 1;
+        for (GmkNode child : kept) {
+            GmkMove move = lastMove(child);
+            out.writeVarint(move.getRow() * cols + move.getCol());
+            nodes += writeNode(out, child, cols, minVisits, priors);
+        }
+        return nodes;
+    }
+
+    /**
+     * Read a tree from a file.
+     *
+     * @param game the game, whose board, win length and rule must match those recorded in the file.
+     * @param path the file to read.
+     * @return the root of the restored tree.
+     */
+    public static GmkNode read(GmkGame game, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(game, channel);
+        }
+    }
+
+    /**
+     * Read a tree from a channel.
+     */
+    public static GmkNode read(GmkGame game, ReadableByteChannel channel) throws IOException {
+        Input in = new Input(channel);
+        if (in.readVarint() != MAGIC) throw new IOException("not a Gomoku tree");
+        int version = in.readVarint();
+        if (version != VERSION) throw new IOException("unsupported tree version: " + version);
+        int rows = in.readVarint();
+        int cols = in.readVarint();
+        if (rows != game.getRows() || cols != game.getCols())
+            throw new IOException("tree is for a " + rows + "x" + cols + " board but the game is " + game.getRows() + "x" + game.getCols());
+        int winLength = in.readVarint();
+        int rule = in.readVarint();
+        if (rule >= GmkGame.Rule.values().length) throw new IOException("unknown rule: " + rule);
+        if (winLength != game.getWinLength() || GmkGame.Rule.values()[rule] != game.getRule())
+            throw new IOException("tree is for " + winLength + " in a row (" + GmkGame.Rule.values()[rule] + ") but the game is " +
+                    game.getWinLength() + " in a row (" + game.getRule() + ")");
+        boolean priors = in.readVarint() != 0;
+        GmkState state = game.start();
+        int moves = in.readVarint();
+        for (int i = 0; i < moves; i++) state = play(state, in.readVarint());
+        return readNode(in, state, priors);
+    }
+
+    private static GmkNode readNode(Input in, GmkState state, boolean priors) throws IOException {
+        long reward = in.readVarlong();
+        int playouts = in.readVarint();
+        GmkNode node = new GmkNode(state, reward, playouts);
+        int children = in.readVarint();
+        boolean expanded = (children & 1) != 0;
+        Collection<Move<GmkGame>> moves = expanded ? state.moves(state.player()) : List.of();
+        float[] childPriors = null;
+        if (priors && expanded) {
+            childPriors = new float[moves.size()];
+            for (int i = 0; i < childPriors.length; i++) childPriors[i] = (float) in.readVarint() / PRIOR_SCALE;
+        }
+        Map<Integer, GmkNode> kept = new HashMap<>();
+        for (int i = 0; i < children >>> 1; i++) {
+            int cell = in.readVarint();
+            kept.put(cell, readNode(in, play(state, cell), priors));
+        }
+        if (expanded) {
+            // Restore the children in the order in which GmkMCTS expands them, re-creating the pruned ones
+            int cols = state.game().getCols();
+            for (Move<GmkGame> move : moves) {
+                GmkMove gmkMove = (GmkMove) move;
+                GmkNode child = kept.get(gmkMove.getRow() * cols + gmkMove.getCol());
+                if (child != null) node.addChild(child);
+                else node.addChild(state.next(move));
+            }
+            if (childPriors != null) {
+                List<Node<GmkGame>> restored = node.children();
+                for (int i = 0; i < childPriors.length; i++) ((GmkNode) restored.get(i)).setPrior(childPriors[i]);
+            }
+        }
+        return node;
+    }
+
+    private static GmkState play(GmkState state, int cell) {
+        int cols = state.game().getCols();
+        return (GmkState) state.next(new GmkMove(state.player(), cell / cols, cell % cols));
+    }
+
+    private static GmkMove lastMove(GmkNode node) {
+        List<GmkMove> history = ((GmkState) node.state()).getMoveHistory();
+        return history.get(history.size() - 1);
+    }
+
+    // Buffered varint writer on top of a channel
+    private static class Output {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeVarint(int value) throws IOException {
+            if (buffer.remaining() < 5) drain();
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void writeVarlong(long value) throws IOException {
+            if (buffer.remaining() < 10) drain();
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    // Buffered varint reader on top of a channel
+    private static class Input {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Input(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.flip();
+        }
+
+        int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+            throw new IOException("malformed varint");
+        }
+
+        long readVarlong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+            throw new IOException("malformed varint");
+        }
+
+        private byte readByte() throws IOException {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                int n;
+                do n = channel.read(buffer); while (n == 0);
+                buffer.flip();
+                if (n < 0) throw new EOFException("unexpected end of tree");
+            }
+            return buffer.get();
+        }
+    }
+}
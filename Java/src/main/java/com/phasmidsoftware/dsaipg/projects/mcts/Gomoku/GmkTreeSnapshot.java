@@ -0,0 +1,65 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable copy of the top of a search tree, for display: the most visited children of each node, to a bounded depth.
+ * <p>
+ * Snapshots are taken by the search thread itself (see GmkMCTS.setSnapshotListener), so that the live tree is never read
+ * by any other thread; a snapshot of depth d and breadth k has at most 1 + k + ... + k^d nodes, however big the tree.
+ *
+ * @param move           the move which leads to this node (null for the root).
+ * @param playouts       the playouts of this node.
+ * @param meanReward     the mean reward of this node.
+ * @param hiddenChildren the number of children of this node which are not in the snapshot.
+ * @param children       the most visited children, most visited first.
+ */
+public record GmkTreeSnapshot(GmkMove move, int playouts, double meanReward, int hiddenChildren, List<GmkTreeSnapshot> children) {
+
+    /**
+     * Take a snapshot of a (sub)tree.
+     * NOTE: this must be called by the thread which searches the tree (or while no search is running).
+     *
+     * @param root    the root of the tree.
+     * @param depth   the number of levels below the root to include.
+     * @param breadth the most children of a node to include.
+     */
+    public static GmkTreeSnapshot of(GmkNode root, int depth, int breadth) {
+        return of(root, null, depth, breadth);
+    }
+
+    private static GmkTreeSnapshot of(GmkNode node, GmkMove move, int depth, int breadth) {
+        List<Node<GmkGame>> children = node.children();
+        if (depth == 0 || children.isEmpty())
+            return new GmkTreeSnapshot(move, node.playouts(), node.meanReward(), children.size(), List.of());
+        // Keep the top children by insertion into a short sorted list, rather than sorting them all
+        List<GmkNode> top = new ArrayList<>(breadth + 1);
+        for (Node<GmkGame> child : children) {
+            GmkNode candidate = (GmkNode) child;
+            if (top.size() == breadth && candidate.playouts() <= top.get(breadth - 1).playouts()) continue;
+            int index = top.size();
+            while (index > 0 && top.get(index - 1).playouts() < candidate.playouts()) index--;
+            top.add(index, candidate);
+            if (top.size() > breadth) top.remove(breadth);
+        }
+        int moveIndex = ((GmkState) node.state()).getMoveCount();
+        List<GmkTreeSnapshot> result = new ArrayList<>(top.size());
+        for (GmkNode child : top)
+            result.add(of(child, ((GmkState) child.state()).getMoveHistory().get(moveIndex), depth - 1, breadth));
+        return new GmkTreeSnapshot(move, node.playouts(), node.meanReward(), children.size() - top.size(),
+                Collections.unmodifiableList(result));
+    }
+
+    /**
+     * @return the number of nodes in this snapshot.
+     */
+    public int size() {
+        int result = 1;
+        for (GmkTreeSnapshot child : children) result += child.size();
+        return result;
+    }
+}
@@ -0,0 +1,39 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.RolloutPolicy;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+
+import java.util.Random;
+
+/**
+ * Rollout policy which plays uniformly random moves: the cheapest policy, and the weakest.
+ */
+public class GmkUniformRollout implements RolloutPolicy<GmkGame> {
+    private final int horizon;
+
+    /**
+     * @param horizon the maximum number of plies in a rollout.
+     */
+    public GmkUniformRollout(int horizon) {
+        this.horizon = horizon;
+    }
+
+    public GmkUniformRollout() {
+        this(GmkHeuristicRollout.DEFAULT_HORIZON);
+    }
+
+    @Override
+    public Move<GmkGame> choose(State<GmkGame> state, Random random) {
+        return GmkHeuristics.randomMove((GmkState) state, random);
+    }
+
+    @Override
+    public int horizon() {
+        return horizon;
+    }
+
+    public String toString() {
+        return "uniform(horizon=" + horizon + ")";
+    }
+}
@@ -0,0 +1,64 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.core;
+
+import java.util.Random;
+
+/**
+ * This interface defines a rollout (playout) policy for a game (G):
+ * how the moves of a simulated game are chosen, when the simulation stops, and how the final State is valued.
+ * <p>
+ * Implementations are expected to be cheap to call, since the choice of move is made once per ply of every rollout.
+ *
+ * @param <G> the type of game.
+ */
+public interface RolloutPolicy<G extends Game> {
+
+    /**
+     * Method to choose the next move of a rollout.
+     *
+     * @param state  the current State, which is not terminal.
+     * @param random the random source of this rollout.
+     * @return a move for state.player(), or null if there is none.
+     */
+    Move<G> choose(State<G> state, Random random);
+
+    /**
+     * Method to yield the maximum number of plies in a rollout.
+     * A rollout which reaches its horizon stops there, and the State it has reached is valued by evaluate.
+     *
+     * @return the horizon (by default, unlimited).
+     */
+    default int horizon() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Method to value the State at which a rollout stopped, from the point of view of the given player.
+     * By default, a win is worth 1, a loss 0, and a draw (or a game which is unfinished, so cannot be judged) 1/2.
+     *
+     * @param state  the final State of the rollout.
+     * @param player the player from whose point of view the State is valued.
+     * @return the estimated probability that player wins, between 0 and 1.
+     */
+    default double evaluate(State<G> state, int player) {
+        if (!state.isTerminal() || state.winner().isEmpty()) return 0.5;
+        return state.winner().get() == player ? 1 : 0;
+    }
+
+    /**
+     * Method to play out a game from the given State according to this policy.
+     *
+     * @param state  the State from which to play.
+     * @param player the player from whose point of view the result is valued.
+     * @param random the random source of this rollout.
+     * @return the value of the final State (see evaluate).
+     */
+    default double playout(State<G> state, int player, Random random) {
+        int horizon = horizon();
+        for (int ply = 0; ply < horizon && !state.isTerminal(); ply++) {
+            Move<G> move = choose(state, random);
+            if (move == null) break;
+            state = state.next(move);
+        }
+        return evaluate(state, player);
+    }
+}
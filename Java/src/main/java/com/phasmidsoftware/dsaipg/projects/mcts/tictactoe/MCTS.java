@@ -1,22 +1,222 @@
 package com.phasmidsoftware.dsaipg.projects.mcts.tictactoe;
 
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
 import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Class to represent a Monte Carlo Tree Search for TicTacToe.
+ * <p>
+ * Each iteration selects a path from the root by UCT, expands the node at its end (once that node has been visited),
+ * plays out a random game from there (see Position.playout), and records the result in every node of the path.
+ * <p>
+ * If a TicTacToeCache is given, the statistics of a node are those of its canonical position (see Position.canonicalCode),
+ * merged over all the symmetric positions which the search reaches, and each node gets one child per symmetry class of its moves.
  */
 public class MCTS {
 
+    /**
+     * Main program to play a game of TicTacToe between two MCTS players and report the search throughput,
+     * checking each move against the TicTacToeOracle.
+     *
+     * @param args the number of iterations per move (default 10000), optionally followed by "symmetric" to use a TicTacToeCache.
+     */
     public static void main(String[] args) {
-        MCTS mcts = new MCTS(new TicTacToeNode(new TicTacToe().new TicTacToeState()));
-        Node<TicTacToe> root = mcts.root;
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        TicTacToeCache cache = args.length > 1 && args[1].equals("symmetric") ? new TicTacToeCache() : null;
+        TicTacToeOracle oracle = TicTacToeOracle.getInstance();
+        State<TicTacToe> state = new TicTacToe().start();
+        while (!state.isTerminal()) {
+            MCTS mcts = new MCTS(new TicTacToeNode(state), iterations, 0, cache);
+            int value = oracle.value(position(state));
+            state = mcts.search();
+            System.out.println(position(state).render());
+            if (-oracle.value(position(state)) < value) System.out.println("MCTS blundered: the move loses value " + value);
+            System.out.printf("%d iterations in %.1fms (%.0f/s), %d nodes%n%n", mcts.getLastIterations(),
+                    mcts.getLastNanos() / 1e6, mcts.getLastIterations() * 1e9 / Math.max(1, mcts.getLastNanos()), mcts.getLastNodes());
+        }
+        if (state.winner().isPresent()) System.out.println("TicTacToe: winner is: " + state.winner().get());
+        else System.out.println("TicTacToe: draw");
+    }
 
-        // This is where you process the MCTS to try to win the game.
+    /**
+     * Method to run the search and choose a move.
+     *
+     * @return the State after the most visited move from the root.
+     */
+    public State<TicTacToe> search() {
+        if (root.state().isTerminal()) throw new RuntimeException("no move from a terminal state");
+        long start = System.nanoTime();
+        long deadline = timeLimitMillis > 0 ? start + timeLimitMillis * 1_000_000 : 0;
+        List<Node<TicTacToe>> path = new ArrayList<>();
+        lastIterations = 0;
+        while (lastIterations < iterations && (deadline == 0 || System.nanoTime() - deadline < 0)) {
+            path.clear();
+            Node<TicTacToe> node = select(path);
+            backPropagate(path, position(node.state()).playout(node.state().random()));
+            lastIterations++;
+        }
+        lastNanos = System.nanoTime() - start;
+        if (root.children().isEmpty()) expand(root);
+
+        Node<TicTacToe> best = null;
+        for (Node<TicTacToe> child : root.children())
+            if (best == null || child.playouts() > best.playouts()) best = child;
+        return best.state();
     }
 
-    public MCTS(Node<TicTacToe> root) {
+    /**
+     * Method to follow the UCT choices from the root as far as a node which has not been visited (or is terminal),
+     * expanding the visited nodes on the way which have no children.
+     *
+     * @param path the list to which the nodes of the path are added.
+     * @return the last node of the path.
+     */
+    private Node<TicTacToe> select(List<Node<TicTacToe>> path) {
+        Node<TicTacToe> node = root;
+        path.add(node);
+        while (!node.isLeaf()) {
+            if (node.children().isEmpty()) {
+                // Play out from a node the first time it is reached; expand it the second time
+                if (node != root && playouts(node) == 0) break;
+                expand(node);
+            }
+            node = bestChild(node);
+            path.add(node);
+        }
+        return node;
+    }
+
+    /**
+     * Method to add the children of a node: one for each move or, with a cache, one for each symmetry class of moves.
+     *
+     * @param node the node to expand.
+     */
+    private void expand(Node<TicTacToe> node) {
+        State<TicTacToe> state = node.state();
+        Set<Integer> codes = new HashSet<>();
+        for (Move<TicTacToe> move : state.moves(state.player())) {
+            State<TicTacToe> child = state.next(move);
+            if (cache == null || codes.add(position(child).canonicalCode())) {
+                node.addChild(child);
+                nodes++;
+            }
+        }
+    }
+
+    /**
+     * @param node a node which has children.
+     * @return the child with the greatest UCT value (or the first which has no playouts).
+     */
+    private Node<TicTacToe> bestChild(Node<TicTacToe> node) {
+        int total = 0;
+        for (Node<TicTacToe> child : node.children()) {
+            int n = playouts(child);
+            if (n == 0) return child;
+            total += n;
+        }
+        double logTotal = Math.log(total);
+        Node<TicTacToe> best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Node<TicTacToe> child : node.children()) {
+            int n = playouts(child);
+            double value = wins(child) / (2.0 * n) + explorationParameter * Math.sqrt(logTotal / n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Method to record the result of a playout in each node of the path,
+     * from the point of view of the player who plays to that node.
+     *
+     * @param path   the nodes from the root to the node from which the playout started.
+     * @param winner the winner of the playout, or -1 for a draw.
+     */
+    private void backPropagate(List<Node<TicTacToe>> path, int winner) {
+        for (Node<TicTacToe> node : path) {
+            int mover = 1 - node.state().player();
+            int points = winner == TicTacToe.blank ? 1 : winner == mover ? 2 : 0;
+            ((TicTacToeNode) node).update(points, 1);
+            if (cache != null) cache.update(position(node.state()), points, 1);
+        }
+    }
+
+    private int wins(Node<TicTacToe> node) {
+        return cache == null ? node.wins() : cache.wins(position(node.state()));
+    }
+
+    private int playouts(Node<TicTacToe> node) {
+        return cache == null ? node.playouts() : cache.playouts(position(node.state()));
+    }
+
+    private static Position position(State<TicTacToe> state) {
+        return ((TicTacToe.TicTacToeState) state).position();
+    }
+
+    /**
+     * @return the number of iterations of the last search.
+     */
+    public int getLastIterations() {
+        return lastIterations;
+    }
+
+    /**
+     * @return the duration of the last search in nanoseconds.
+     */
+    public long getLastNanos() {
+        return lastNanos;
+    }
+
+    /**
+     * @return the number of nodes added to the tree (so far).
+     */
+    public int getLastNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the root of the tree.
+     */
+    public Node<TicTacToe> getRoot() {
+        return root;
+    }
+
+    /**
+     * Primary constructor.
+     *
+     * @param root            the root of the tree, whose State is the position to search.
+     * @param iterations      the maximum number of iterations.
+     * @param timeLimitMillis the maximum time for a search in milliseconds, or 0 for no time limit.
+     * @param cache           the cache in which to share statistics between symmetric positions (may be null).
+     */
+    public MCTS(Node<TicTacToe> root, int iterations, long timeLimitMillis, TicTacToeCache cache) {
         this.root = root;
+        this.iterations = iterations;
+        this.timeLimitMillis = timeLimitMillis;
+        this.cache = cache;
     }
 
+    public MCTS(Node<TicTacToe> root) {
+        this(root, defaultIterations, 0, null);
+    }
+
+    private static final int defaultIterations = 10000;
+    private static final double explorationParameter = Math.sqrt(2);
+
     private final Node<TicTacToe> root;
-}
\ No newline at end of file
+    private final int iterations;
+    private final long timeLimitMillis;
+    private final TicTacToeCache cache;
+    private int lastIterations;
+    private long lastNanos;
+    private int nodes;
+}
@@ -1,13 +1,16 @@
 package com.phasmidsoftware.dsaipg.projects.mcts.tictactoe;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 
 /**
  * This class represents the board of the Tic-tac-toe game.
  * It is a 3x3 matrix of 0s, 1s, and -1s for O, X, and . respectively.
+ * <p>
+ * The board is held as two 9-bit masks packed into one int: bit k (for cell k = 3i + j) is an O at (i, j)
+ * and bit 9 + k is an X at (i, j). Wins, moves and symmetries are all bit operations or table lookups on these masks.
  */
 public class Position {
 
@@ -19,18 +22,16 @@ public class Position {
      * @return a Position.
      */
     static Position parsePosition(final String grid, final int last) {
-        int[][] matrix = new int[gridSize][gridSize];
-        int count = 0;
+        int board = 0;
         String[] rows = grid.split("\\n", gridSize);
         for (int i = 0; i < gridSize; i++) {
-            String[] cells = rows[i].split(" ", gridSize);
+            String[] row = rows[i].split(" ", gridSize);
             for (int j = 0; j < gridSize; j++) {
-                int cell = parseCell(cells[j].trim());
-                if (cell >= 0) count++;
-                matrix[i][j] = cell;
+                int cell = parseCell(row[j].trim());
+                if (cell >= 0) board |= 1 << (i * gridSize + j + cell * cells);
             }
         }
-        return new Position(matrix, count, last);
+        return new Position(board, last);
     }
 
     /**
@@ -58,14 +59,8 @@ public class Position {
     public Position move(int player, int x, int y) {
         if (full()) throw new RuntimeException("Position is full");
         if (player == last) throw new RuntimeException("consecutive moves by same player: " + player);
-        int[][] matrix = copyGrid();
-        if (matrix[x][y] < 0) {
-            // TO BE IMPLEMENTED
-
-            matrix[x][y] = player;
-            return new Position(matrix, count + 1, player);
-            // END SOLUTION
-        }
+        int k = x * gridSize + y;
+        if ((occupied() & 1 << k) == 0) return new Position(board | 1 << (k + player * cells), player);
         throw new RuntimeException("Position is occupied: " + x + ", " + y);
     }
 
@@ -77,51 +72,83 @@ public class Position {
     public List<int[]> moves(int player) {
         if (player == last) throw new RuntimeException("consecutive moves by same player: " + player);
         List<int[]> result = new ArrayList<>();
-        for (int i = 0; i < gridSize; i++)
-            for (int j = 0; j < gridSize; j++)
-                if (grid[i][j] < 0)
-                    // TO BE IMPLEMENTED
-                    result.add(new int[]{i, j});
-         ;
-        // END SOLUTION
+        for (int empty = ~occupied() & mask; empty != 0; empty &= empty - 1) {
+            int k = Integer.numberOfTrailingZeros(empty);
+            result.add(new int[]{k / gridSize, k % gridSize});
+        }
         return result;
     }
 
+    /**
+     * Method to play random moves from this Position to the end of the game, without creating any objects.
+     *
+     * @param random the random source.
+     * @return the winner (0: O, 1: X), or -1 for a draw.
+     */
+    public int playout(Random random) {
+        int o = board & mask;
+        int x = board >>> cells;
+        int player = last;
+        while (true) {
+            if (player >= 0 && wins[player == TicTacToe.X ? x : o]) return player;
+            int empty = ~(o | x) & mask;
+            if (empty == 0) return TicTacToe.blank;
+            player = player == TicTacToe.X ? TicTacToe.O : TicTacToe.X;
+            // Scale a random int to the number of empty cells, and look up the cell
+            int n = (int) ((random.nextInt() & 0xFFFFFFFFL) * Integer.bitCount(empty) >>> 32);
+            int bit = 1 << nthCell[empty * cells + n];
+            if (player == TicTacToe.X) x |= bit;
+            else o |= bit;
+        }
+    }
+
     /**
      * Method to yield a copy of this Position but reflected.
-     * <p>
-     * TESTME
      *
      * @param axis the axis about which to reflect.
      * @return a new Position.
      */
     public Position reflect(int axis) {
-        int[][] matrix = copyGrid();
-        switch (axis) {
-            case 0:
-                for (int j = 0; j < gridSize; j++) swap(matrix, 0, j, 2, j); // middle row
-                break;
-            case 1:
-                for (int i = 0; i < gridSize; i++) swap(matrix, i, 0, i, 2); // middle column
-                break;
-            default:
-                throw new RuntimeException("reflect not implemented for " + axis);
-        }
-        return new Position(matrix, count, last);
+        return switch (axis) {
+            case 0 -> transform(symmetries[reflectRows]);    // middle row
+            case 1 -> transform(symmetries[reflectColumns]); // middle column
+            default -> throw new RuntimeException("reflect not implemented for " + axis);
+        };
     }
 
     /**
      * Method to rotate this Position by 90 degrees clockwise.
-     * TESTME
      *
      * @return a new Position which is rotated from this.
      */
     public Position rotate() {
-        int[][] matrix = new int[gridSize][gridSize];
-        for (int i = 0; i < gridSize; i++)
-            for (int j = 0; j < gridSize; j++)
-                matrix[i][j] = grid[j][gridSize - i - 1];
-        return new Position(matrix, count, last);
+        return transform(symmetries[rotation]);
+    }
+
+    /**
+     * Method to encode this Position as a base-3 number, in which cell (i, j) is the digit of weight 3^(3i+j),
+     * with 0 for a blank, 1 for O and 2 for X.
+     * NOTE: the code does not include the last player, which (for a position reached by play) follows from the counts of X and O.
+     *
+     * @return an int between 0 and 19682.
+     */
+    public int code() {
+        return ternary[board & mask] + 2 * ternary[board >>> cells];
+    }
+
+    /**
+     * Method to yield the canonical form of this Position: the least code (see code()) among the eight Positions
+     * obtained from this one by rotations and reflections.
+     * Positions which are symmetric to one another have the same canonical form.
+     *
+     * @return an int between 0 and 19682.
+     */
+    public int canonicalCode() {
+        int o = board & mask;
+        int x = board >>> cells;
+        int result = Integer.MAX_VALUE;
+        for (char[] symmetry : symmetries) result = Math.min(result, ternary[symmetry[o]] + 2 * ternary[symmetry[x]]);
+        return result;
     }
 
     /**
@@ -130,35 +157,17 @@ public class Position {
      * @return an Optional Integer.
      */
     public Optional<Integer> winner() {
-        if (count > 4 && threeInARow()) return Optional.of(last);
+        if (count() > 4 && threeInARow()) return Optional.of(last);
         return Optional.empty();
     }
 
     /**
      * Method to determine if this Position has three in a row (i.e. a winning position).
-     * Don't forget to check for columns and diagonals as well.
-     * <p>
-     * NOTE: you may find the instance field xxx to be useful, as well as the projectRow, projectCol, etc. private methods.
      *
      * @return true if there are three cells in a line that are the same and equal to the last player.
      */
     boolean threeInARow() {
-        // TO BE IMPLEMENTED
-        // rows
-        for (int i = 0; i < gridSize; i++) {
-            if (Arrays.equals(projectRow(i), xxx)) {
-                return true;
-            }
-        }
-        // columns
-        for (int j = 0; j < gridSize; j++) {
-            if (Arrays.equals(projectCol(j), xxx)) {
-                return true;
-            }
-        }
-        // diagonals
-        return Arrays.equals(projectDiag(true), xxx) || Arrays.equals(projectDiag(false), xxx);
-        // END SOLUTION
+        return last >= 0 && wins[board >>> (last * cells) & mask];
     }
 
     /**
@@ -168,7 +177,10 @@ public class Position {
      * @return an array of three ints.
      */
     int[] projectRow(int i) {
-        return grid[i];
+        int[] result = new int[gridSize];
+        for (int j = 0; j < gridSize; j++)
+            result[j] = cell(i, j);
+        return result;
     }
 
     /**
@@ -180,7 +192,7 @@ public class Position {
     int[] projectCol(int j) {
         int[] result = new int[gridSize];
         for (int i = 0; i < gridSize; i++)
-            result[i] = grid[i][j];
+            result[i] = cell(i, j);
         return result;
     }
 
@@ -194,7 +206,7 @@ public class Position {
         int[] result = new int[gridSize];
         for (int j = 0; j < gridSize; j++) {
             int i = b ? j : gridSize - j - 1;
-            result[j] = grid[i][j];
+            result[j] = cell(i, j);
         }
         return result;
     }
@@ -203,7 +215,7 @@ public class Position {
      * @return true if this Position has 9 elements.
      */
     boolean full() {
-        return count == 9;
+        return occupied() == mask;
     }
 
     /**
@@ -215,7 +227,7 @@ public class Position {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < gridSize; i++) {
             for (int j = 0; j < gridSize; j++) {
-                sb.append(render(grid[i][j]));
+                sb.append(render(cell(i, j)));
                 if (j < gridSize - 1) sb.append(' ');
             }
             if (i < gridSize - 1) sb.append('\n');
@@ -228,7 +240,7 @@ public class Position {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < gridSize; i++) {
             for (int j = 0; j < gridSize; j++) {
-                sb.append(grid[i][j]);
+                sb.append(cell(i, j));
                 if (j < gridSize - 1) sb.append(',');
             }
             if (i < gridSize - 1) sb.append('\n');
@@ -240,26 +252,43 @@ public class Position {
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Position position)) return false;
-        return Arrays.deepEquals(grid, position.grid);
+        return board == position.board;
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(grid);
+        return Integer.hashCode(board);
     }
 
-    Position(int[][] grid, int count, int last) {
-        this.grid = grid;
-        this.count = count;
+    /**
+     * @param board the packed masks of O (bits 0..8) and X (bits 9..17).
+     * @param last  the last player.
+     */
+    Position(int board, int last) {
+        this.board = board;
         this.last = last;
-        xxx = new int[]{last, last, last};
     }
 
-    private int[][] copyGrid() {
-        int[][] result = new int[gridSize][gridSize];
-        for (int i = 0; i < gridSize; i++)
-            result[i] = Arrays.copyOf(grid[i], gridSize);
-        return result;
+    /**
+     * @return the value of cell (i, j): 0 for O, 1 for X, -1 for a blank.
+     */
+    private int cell(int i, int j) {
+        int k = i * gridSize + j;
+        if ((board & 1 << k) != 0) return TicTacToe.O;
+        if ((board & 1 << (k + cells)) != 0) return TicTacToe.X;
+        return TicTacToe.blank;
+    }
+
+    private int count() {
+        return Integer.bitCount(board);
+    }
+
+    private int occupied() {
+        return (board | board >>> cells) & mask;
+    }
+
+    private Position transform(char[] symmetry) {
+        return new Position(symmetry[board & mask] | symmetry[board >>> cells] << cells, last);
     }
 
     private char render(int x) {
@@ -271,23 +300,77 @@ public class Position {
     }
 
     /**
-     * TESTME
+     * The eight symmetries of the board (the dihedral group of the square), each as a table from a 9-bit mask
+     * to the transformed mask: the identity, the rotations by 90, 180 and 270 degrees (as rotate()),
+     * then those four followed by the reflection of reflect(0).
      *
-     * @param matrix the matrix to be operated on.
-     * @param i1     first row.
-     * @param j1     first column.
-     * @param i2     second row.
-     * @param j2     second column.
+     * @return an array of eight tables of 512 masks.
      */
-    private void swap(int[][] matrix, int i1, int j1, int i2, int j2) {
-        int temp = matrix[i1][j1];
-        matrix[i1][j1] = matrix[i2][j2];
-        matrix[i2][j2] = temp;
+    private static char[][] symmetries() {
+        int[] rotate = new int[cells];     // cell k of the rotated board is cell rotate[k] of the original
+        int[] reflect = new int[cells];    // likewise for reflect(0)
+        for (int i = 0; i < gridSize; i++)
+            for (int j = 0; j < gridSize; j++) {
+                rotate[i * gridSize + j] = j * gridSize + gridSize - i - 1;
+                reflect[i * gridSize + j] = (gridSize - i - 1) * gridSize + j;
+            }
+        int[][] permutations = new int[8][cells];
+        for (int k = 0; k < cells; k++) permutations[0][k] = k;
+        for (int s = 1; s < 4; s++)
+            for (int k = 0; k < cells; k++) permutations[s][k] = permutations[s - 1][rotate[k]];
+        for (int s = 4; s < 8; s++)
+            for (int k = 0; k < cells; k++) permutations[s][k] = permutations[s - 4][reflect[k]];
+
+        char[][] result = new char[8][mask + 1];
+        for (int s = 0; s < 8; s++)
+            for (int m = 0; m <= mask; m++)
+                for (int k = 0; k < cells; k++)
+                    if ((m & 1 << permutations[s][k]) != 0) result[s][m] = (char) (result[s][m] | 1 << k);
+        return result;
+    }
+
+    // For each 9-bit mask, whether it contains a line of three
+    private static boolean[] wins() {
+        // In octal, one digit per row: the rows, the columns and the two diagonals
+        int[] lines = {0007, 0070, 0700, 0111, 0222, 0444, 0421, 0124};
+        boolean[] result = new boolean[mask + 1];
+        for (int m = 0; m <= mask; m++)
+            for (int line : lines)
+                if ((m & line) == line) result[m] = true;
+        return result;
+    }
+
+    // For each 9-bit mask m and each n less than its number of cells, the n-th lowest cell of m, at index m * 9 + n
+    private static byte[] nthCell() {
+        byte[] result = new byte[(mask + 1) * cells];
+        for (int m = 0; m <= mask; m++) {
+            int n = 0;
+            for (int k = 0; k < cells; k++)
+                if ((m & 1 << k) != 0) result[m * cells + n++] = (byte) k;
+        }
+        return result;
+    }
+
+    // For each 9-bit mask, the base-3 number with a 1 for each of its cells
+    private static int[] ternary() {
+        int[] result = new int[mask + 1];
+        for (int m = 1; m <= mask; m++) {
+            int k = Integer.numberOfTrailingZeros(m);
+            result[m] = result[m & m - 1] + (int) Math.pow(3, k);
+        }
+        return result;
     }
 
-    private final int[][] grid;
+    private final int board;
     final int last;
-    private final int count;
     private final static int gridSize = 3;
-    private final int[] xxx;
-}
\ No newline at end of file
+    private final static int cells = gridSize * gridSize;
+    private final static int mask = (1 << cells) - 1;
+    private final static int rotation = 1;
+    private final static int reflectRows = 4;
+    private final static int reflectColumns = 6;
+    private final static char[][] symmetries = symmetries();
+    private final static boolean[] wins = wins();
+    private final static int[] ternary = ternary();
+    private final static byte[] nthCell = nthCell();
+}
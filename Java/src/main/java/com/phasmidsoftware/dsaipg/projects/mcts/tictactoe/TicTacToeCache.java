@@ -0,0 +1,109 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.tictactoe;
+
+import java.util.Arrays;
+
+/**
+ * This class is an evaluation cache for TicTacToe, keyed by the canonical form of a Position (see Position.canonicalCode),
+ * so that the eight symmetric variants of a position share one entry.
+ * <p>
+ * It holds two kinds of evaluation:
+ * the search statistics (wins and playouts) which MCTS accumulates for a position, merged over its symmetric variants;
+ * and the game-theoretic value of a position, which the solver (see value) computes once and remembers.
+ * <p>
+ * There are only 3^9 codes, so each kind of entry is a flat array indexed by the canonical code.
+ * NOTE: this class is not thread-safe.
+ */
+public class TicTacToeCache {
+
+    /**
+     * Method to yield the game-theoretic value of a Position for the player to move, assuming perfect play by both sides.
+     * The value is computed by negamax over the (canonical) positions which follow, each of which is solved only once.
+     *
+     * @param position the Position.
+     * @return 1 if the player to move wins, 0 for a draw, -1 if the player to move loses
+     * (in particular, -1 if the last player has just won).
+     */
+    public int value(Position position) {
+        int key = position.canonicalCode();
+        if (values[key] != unknown) return values[key];
+        int result;
+        if (position.winner().isPresent()) result = -1;
+        else if (position.full()) result = 0;
+        else {
+            int player = position.last == TicTacToe.X ? TicTacToe.O : TicTacToe.X;
+            result = -1;
+            // Every move is solved (without pruning), so that the cache covers all the positions which follow
+            for (int[] move : position.moves(player))
+                result = Math.max(result, -value(position.move(player, move[0], move[1])));
+        }
+        values[key] = (byte) result;
+        solved++;
+        return result;
+    }
+
+    /**
+     * Method to record the result of one or more playouts through a Position.
+     *
+     * @param position the Position.
+     * @param wins     the score of the playouts (as for Node.wins: a win is worth 2 points, a draw 1 point).
+     * @param playouts the number of playouts.
+     */
+    public void update(Position position, int wins, int playouts) {
+        int key = position.canonicalCode();
+        if (this.playouts[key] == 0 && playouts > 0) entries++;
+        this.wins[key] += wins;
+        this.playouts[key] += playouts;
+    }
+
+    /**
+     * @param position the Position.
+     * @return the score of the playouts recorded for this Position and its symmetric variants.
+     */
+    public int wins(Position position) {
+        return wins[position.canonicalCode()];
+    }
+
+    /**
+     * @param position the Position.
+     * @return the number of playouts recorded for this Position and its symmetric variants.
+     */
+    public int playouts(Position position) {
+        return playouts[position.canonicalCode()];
+    }
+
+    /**
+     * @return the number of (canonical) positions with recorded playouts.
+     */
+    public int entries() {
+        return entries;
+    }
+
+    /**
+     * @return the number of (canonical) positions which have been solved.
+     */
+    public int solved() {
+        return solved;
+    }
+
+    /**
+     * Method to forget all the search statistics (the solved values remain valid).
+     */
+    public void clearStatistics() {
+        Arrays.fill(wins, 0);
+        Arrays.fill(playouts, 0);
+        entries = 0;
+    }
+
+    public TicTacToeCache() {
+        Arrays.fill(values, unknown);
+    }
+
+    private static final int codes = 19683; // 3^9
+    private static final byte unknown = Byte.MIN_VALUE;
+
+    private final byte[] values = new byte[codes];
+    private final int[] wins = new int[codes];
+    private final int[] playouts = new int[codes];
+    private int entries;
+    private int solved;
+}
@@ -52,8 +52,10 @@ public class TicTacToeNode implements Node<TicTacToe> {
 
     /**
      * This method sets the number of wins and playouts according to the children states.
+     * A node without children (a leaf, or a node which has not yet been expanded) keeps its own statistics.
      */
     public void backPropagate() {
+        if (children.isEmpty()) return;
         playouts = 0;
         wins = 0;
         for (Node<TicTacToe> child : children) {
@@ -76,6 +78,18 @@ public class TicTacToeNode implements Node<TicTacToe> {
         return playouts;
     }
 
+    /**
+     * Method to record the result of one or more playouts through this Node.
+     *
+     * @param wins     the score of the playouts, from the point of view of the player who plays to this Node
+     *                 (a win is worth 2 points, a draw is worth 1 point).
+     * @param playouts the number of playouts.
+     */
+    public void update(int wins, int playouts) {
+        this.wins += wins;
+        this.playouts += playouts;
+    }
+
     public TicTacToeNode(State<TicTacToe> state) {
         this.state = state;
         children = new ArrayList<>();
@@ -0,0 +1,170 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.tictactoe;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+
+/**
+ * This class is the exhaustive solution of TicTacToe: the game-theoretic value and a best move of every Position
+ * which can arise in play (X moving first), held in a dense byte array indexed by Position.code().
+ * <p>
+ * The table is built by retrograde analysis: positions are solved in decreasing order of the number of stones,
+ * so that every position which follows a move has been solved before the position itself.
+ * It takes a few milliseconds, after which each lookup is O(1).
+ * <p>
+ * The oracle serves as a perfect player, and as a check on the choices made by MCTS.
+ */
+public class TicTacToeOracle {
+
+    /**
+     * @return the shared oracle, which is built the first time it is needed.
+     */
+    public static TicTacToeOracle getInstance() {
+        return Holder.instance;
+    }
+
+    /**
+     * Method to yield the value of a Position for the player to move, assuming perfect play by both sides.
+     *
+     * @param position a Position which can arise in play.
+     * @return 1 if the player to move wins, 0 for a draw, -1 if the player to move loses
+     * (in particular, -1 if the last player has just won).
+     */
+    public int value(Position position) {
+        return value(position.code());
+    }
+
+    /**
+     * @param code the code of a Position (see Position.code()).
+     * @return the value of that Position for the player to move (see value(Position)).
+     */
+    public int value(int code) {
+        byte entry = entry(code);
+        return (entry & 3) - 1;
+    }
+
+    /**
+     * Method to yield a best move for the player to move.
+     * Among the moves which achieve the value of the position, the first (in row-major order) is chosen.
+     *
+     * @param position a Position which can arise in play and is not terminal.
+     * @return the move as an array of two coordinates: row and column.
+     */
+    public int[] bestMove(Position position) {
+        int cell = entry(position.code()) >> 2;
+        if (cell == noMove) throw new RuntimeException("no move from a terminal position:\n" + position.render());
+        return new int[]{cell / 3, cell % 3};
+    }
+
+    /**
+     * Method to play a best move from the given State.
+     *
+     * @param state a State which is not terminal.
+     * @return the State which follows the best move.
+     */
+    public State<TicTacToe> play(State<TicTacToe> state) {
+        int[] move = bestMove(((TicTacToe.TicTacToeState) state).position());
+        return state.next(new TicTacToe.TicTacToeMove(state.player(), move[0], move[1]));
+    }
+
+    /**
+     * @param code the code of a Position (see Position.code()).
+     * @return true if that Position can arise in play.
+     */
+    public boolean reachable(int code) {
+        return table[code] != unreachable;
+    }
+
+    /**
+     * @return the number of Positions which can arise in play (including the empty board).
+     */
+    public int reachablePositions() {
+        int result = 0;
+        for (byte entry : table) if (entry != unreachable) result++;
+        return result;
+    }
+
+    /**
+     * Constructor which solves the game.
+     */
+    public TicTacToeOracle() {
+        table = new byte[codes];
+        int[] powers = new int[cells];
+        powers[0] = 1;
+        for (int k = 1; k < cells; k++) powers[k] = 3 * powers[k - 1];
+
+        // Decode the masks of O and X: adding 1 to a code is a base-3 increment
+        int[] os = new int[codes], xs = new int[codes];
+        for (int code = 1; code < codes; code++) {
+            int k = 0;
+            int o = os[code - 1], x = xs[code - 1];
+            while ((x & 1 << k) != 0) x &= ~(1 << k++);    // the digit 2 carries
+            if ((o & 1 << k) != 0) {
+                o &= ~(1 << k);
+                x |= 1 << k;
+            } else o |= 1 << k;
+            os[code] = o;
+            xs[code] = x;
+        }
+
+        for (int stones = cells; stones >= 0; stones--)
+            for (int code = 0; code < codes; code++)
+                if (Integer.bitCount(os[code] | xs[code]) == stones)
+                    table[code] = solve(code, os[code], xs[code], powers);
+    }
+
+    /**
+     * Method to solve one position, all of whose successors have been solved.
+     *
+     * @return the table entry: unreachable, or (value + 1) | (best cell << 2), with noMove as the cell of a terminal position.
+     */
+    private byte solve(int code, int o, int x, int[] powers) {
+        int nO = Integer.bitCount(o), nX = Integer.bitCount(x);
+        // X moves first, so X has as many stones as O, or one more
+        if (nX != nO && nX != nO + 1) return unreachable;
+        boolean oWins = isWin(o), xWins = isWin(x);
+        if (oWins && xWins || xWins && nX == nO || oWins && nX != nO) return unreachable;
+        if (oWins || xWins) return entry(-1, noMove);
+        int occupied = o | x;
+        if (occupied == (1 << cells) - 1) return entry(0, noMove);
+
+        // The player to move adds a digit 1 (O) or 2 (X)
+        int digit = nX == nO ? 2 : 1;
+        int best = -2, bestCell = noMove;
+        for (int k = 0; k < cells; k++) {
+            if ((occupied & 1 << k) != 0) continue;
+            int value = -value(code + digit * powers[k]);
+            if (value > best) {
+                best = value;
+                bestCell = k;
+            }
+        }
+        return entry(best, bestCell);
+    }
+
+    private static boolean isWin(int mask) {
+        for (int line : lines) if ((mask & line) == line) return true;
+        return false;
+    }
+
+    private static byte entry(int value, int cell) {
+        return (byte) (value + 1 | cell << 2);
+    }
+
+    private byte entry(int code) {
+        byte entry = table[code];
+        if (entry == unreachable) throw new RuntimeException("position cannot arise in play: " + code);
+        return entry;
+    }
+
+    // Holder idiom, so that the table is built once, on first use
+    private static class Holder {
+        private static final TicTacToeOracle instance = new TicTacToeOracle();
+    }
+
+    private static final int cells = 9;
+    private static final int codes = 19683; // 3^9
+    private static final int noMove = 15;
+    private static final byte unreachable = -1;
+    private static final int[] lines = {0007, 0070, 0700, 0111, 0222, 0444, 0421, 0124}; // in octal, one digit per row
+
+    private final byte[] table;
+}
@@ -0,0 +1,110 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for GmkAnalysis (and its publication by GmkMCTS).
+ */
+public class GmkAnalysisTest {
+
+    private static GmkState openingPosition() {
+        return (GmkState) new GmkGame(9).start().next(new GmkMove(0, 4, 4)).next(new GmkMove(1, 3, 4));
+    }
+
+    @Test
+    public void testOf() {
+        GmkNode root = new GmkNode(openingPosition());
+        for (int i = 0; i < 7; i++) {
+            root.addChild(root.state().next(new GmkMove(0, 0, i)));
+            for (int j = 0; j < i; j++) ((GmkNode) root.children().get(i)).update(true);
+        }
+        // Extend the most visited child (0, 6) by one visited reply
+        GmkNode best = (GmkNode) root.children().get(6);
+        best.addChild(best.state().next(new GmkMove(1, 8, 8)));
+        ((GmkNode) best.children().get(0)).update(false);
+
+        GmkAnalysis analysis = GmkAnalysis.of(root);
+        assertEquals(21, analysis.playouts());
+        assertEquals(6, analysis.visits(0, 6));
+        assertEquals(0, analysis.visits(0, 0));
+        assertEquals(0, analysis.visits(4, 4));
+        assertEquals(6, analysis.maxVisits());
+        assertEquals(GmkAnalysis.TOP, analysis.top().size());
+        assertEquals(6, analysis.top().get(0).playouts());
+        assertEquals(2, analysis.top().get(4).playouts());
+        assertEquals(6, analysis.bestMove().getCol());
+        List<GmkMove> pv = analysis.principalVariation();
+        assertEquals(2, pv.size());
+        assertEquals(8, pv.get(1).getRow());
+        assertEquals("playouts=21 pv=0-6,8-8 top=0-6:6:1.000,0-5:5:1.000,0-4:4:1.000,0-3:3:1.000,0-2:2:1.000", analysis.format());
+    }
+
+    @Test
+    public void testPublished() throws Exception {
+        GmkMCTS mcts = new GmkMCTS(2000);
+        mcts.setVerbose(false);
+        mcts.setAnalysisInterval(0);
+        List<GmkAnalysis> analyses = new CopyOnWriteArrayList<>();
+        mcts.getAnalysisPublisher().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(GmkAnalysis item) {
+                analyses.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        mcts.setSeed(47L);
+        GmkMove move = mcts.findBestMove(openingPosition());
+        // The last update is published at the end of the search
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((analyses.isEmpty() || analyses.get(analyses.size() - 1).playouts() < 2000) && System.nanoTime() < deadline)
+            Thread.sleep(10);
+        assertTrue(analyses.size() > 1);
+        int previous = 0;
+        for (GmkAnalysis analysis : analyses) {
+            assertEquals(81, analysis.visits().length);
+            assertTrue(analysis.playouts() >= previous);
+            previous = analysis.playouts();
+        }
+
+        GmkAnalysis last = analyses.get(analyses.size() - 1);
+        assertEquals(mcts.getLastIterations(), last.playouts());
+        int total = 0;
+        int least = Integer.MAX_VALUE;
+        for (int v : last.visits()) {
+            total += v;
+            if (v > 0) least = Math.min(least, v);
+        }
+        assertEquals(2000, total);
+        // The search is not spread evenly: the best moves have several times the visits of the worst
+        List<GmkAnalysis.Candidate> top = last.top();
+        assertEquals(GmkAnalysis.TOP, top.size());
+        for (int i = 1; i < top.size(); i++) assertTrue(top.get(i - 1).playouts() >= top.get(i).playouts());
+        assertTrue(top.get(0).playouts() + " vs " + least, top.get(0).playouts() >= 3 * least);
+        assertEquals(last.maxVisits(), top.get(0).playouts());
+        // The principal variation starts with the move chosen, and goes deeper than the root's children
+        assertEquals(move.getRow(), last.bestMove().getRow());
+        assertEquals(move.getCol(), last.bestMove().getCol());
+        assertEquals(move.getRow(), last.principalVariation().get(0).getRow());
+        assertEquals(move.getCol(), last.principalVariation().get(0).getCol());
+        assertTrue(last.principalVariation().size() > 1);
+    }
+}
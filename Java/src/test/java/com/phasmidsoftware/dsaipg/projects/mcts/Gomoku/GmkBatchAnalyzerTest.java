@@ -0,0 +1,136 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for GmkBatchAnalyzer.
+ */
+public class GmkBatchAnalyzerTest {
+
+    private static final String POSITIONS = String.join("\n",
+            "4-4 3-4",
+            "4-4 3-4 4-5 3-5",
+            "",
+            "4-4 4-4",
+            "2-2 6-6 2-3 6-5 4-4 0-0",
+            "4-4 x",
+            "3-3 5-5 3-4 5-4") + "\n";
+
+    private static GmkBatchAnalyzer analyzer(int threads) {
+        GmkBatchAnalyzer result = new GmkBatchAnalyzer(new GmkGame(9), GmkTournament.Engine.parse("batch:iterations=200"), threads);
+        result.setSeed(50L);
+        return result;
+    }
+
+    private static String analyze(int threads) throws Exception {
+        StringWriter writer = new StringWriter();
+        assertEquals(7, analyzer(threads).run(new BufferedReader(new StringReader(POSITIONS)), writer, 0));
+        return writer.toString();
+    }
+
+    @Test
+    public void testParse() {
+        GmkState state = GmkBatchAnalyzer.parse(new GmkGame(9), " 4-4  3-4 4-5 ");
+        assertEquals(3, state.getMoveCount());
+        assertEquals(1, state.player());
+        assertEquals(0, GmkBatchAnalyzer.parse(new GmkGame(9), "").getMoveCount());
+        try {
+            GmkBatchAnalyzer.parse(new GmkGame(9), "4-4 9-0");
+            fail("expected a move off the board to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Move is out of bounds: 9-0", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        String[] lines = analyze(2).split("\n");
+        assertEquals(7, lines.length);
+        for (int i = 0; i < lines.length; i++) assertTrue(lines[i], lines[i].startsWith(i + " "));
+        assertTrue(lines[0], lines[0].matches("0 \\d-\\d iterations=200 playouts=\\d+ pv=.* top=.*"));
+        assertEquals("2 4-4 iterations=0", lines[2]);
+        assertEquals("3 ERR Cell is already occupied: 4-4", lines[3]);
+        assertEquals("5 ERR bad move: x", lines[5]);
+    }
+
+    @Test
+    public void testFailedSearchDoesNotStopRun() throws Exception {
+        // An engine whose search fails on positions of four moves: positions 1 and 6
+        GmkTournament.Engine failing = new GmkTournament.Engine("failing", 200, 0, GmkTournament.Engine.Options.DEFAULT) {
+            @Override
+            public GmkMCTS create() {
+                GmkMCTS mcts = new GmkMCTS(200) {
+                    @Override
+                    public GmkMove findBestMove(GmkState state) {
+                        if (state.getMoveCount() == 4) throw new IllegalStateException("search failed");
+                        return super.findBestMove(state);
+                    }
+                };
+                mcts.setVerbose(false);
+                return mcts;
+            }
+        };
+        StringWriter writer = new StringWriter();
+        assertEquals(7, new GmkBatchAnalyzer(new GmkGame(9), failing, 2).run(new BufferedReader(new StringReader(POSITIONS)), writer, 0));
+        String[] lines = writer.toString().split("\n");
+        assertEquals(7, lines.length);
+        assertEquals("1 ERR search failed", lines[1]);
+        assertTrue(lines[0], lines[0].startsWith("0 "));
+        assertEquals("6 ERR search failed", lines[6]);
+        assertTrue(lines[4], lines[4].matches("4 \\d-\\d iterations=200 .*"));
+    }
+
+    @Test
+    public void testSeededRunIsReproducible() throws Exception {
+        String one = analyze(1);
+        assertEquals(one, analyze(1));
+        assertEquals(one, analyze(4));
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        Path input = Files.createTempFile("positions", ".txt");
+        Path output = Files.createTempFile("analysis", ".txt");
+        try {
+            Files.writeString(input, POSITIONS);
+            String expected = analyze(1);
+            // An interrupted run: three complete results and part of a fourth
+            String[] lines = expected.split("\n");
+            Files.writeString(output, lines[0] + "\n" + lines[1] + "\n" + lines[2] + "\n3 ER");
+            assertEquals(4, analyzer(2).run(input, output));
+            assertEquals(expected, Files.readString(output));
+            // Nothing is left to do
+            assertEquals(0, analyzer(2).run(input, output));
+            List<String> results = Files.readAllLines(output, StandardCharsets.UTF_8);
+            assertEquals(7, results.size());
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    @Test
+    public void testCompletedLines() throws Exception {
+        Path file = Files.createTempFile("analysis", ".txt");
+        try {
+            assertEquals(0, GmkBatchAnalyzer.completedLines(file));
+            Files.writeString(file, "a\nb\nc");
+            assertEquals(2, GmkBatchAnalyzer.completedLines(file));
+            assertEquals("a\nb\n", Files.readString(file));
+            Files.delete(file);
+            assertEquals(0, GmkBatchAnalyzer.completedLines(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for GmkEvents (as recorded by GmkMCTS).
+ */
+public class GmkEventsTest {
+
+    private static List<RecordedEvent> record(Runnable work) throws IOException {
+        Path file = Files.createTempFile("gomoku", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : new String[]{"Search", "Shortcut", "TreeGrowth", "Throughput"})
+                recording.enable("com.phasmidsoftware.gomoku." + name);
+            recording.start();
+            work.run();
+            recording.stop();
+            recording.dump(file);
+            List<RecordedEvent> result = new ArrayList<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file))
+                if (event.getEventType().getName().startsWith("com.phasmidsoftware.gomoku.")) result.add(event);
+            return result;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> result = new ArrayList<>();
+        for (RecordedEvent event : events)
+            if (event.getEventType().getName().equals("com.phasmidsoftware.gomoku." + name)) result.add(event);
+        return result;
+    }
+
+    @Test
+    public void testSearch() throws IOException {
+        GmkMCTS mcts = new GmkMCTS(2500);
+        mcts.setVerbose(false);
+        GmkState state = (GmkState) new GmkGame(9).start().next(new GmkMove(0, 4, 4)).next(new GmkMove(1, 3, 4));
+        List<RecordedEvent> events = record(() -> mcts.findBestMove(state));
+
+        List<RecordedEvent> shortcuts = named(events, "Shortcut");
+        assertEquals(1, shortcuts.size());
+        assertEquals("none", shortcuts.get(0).getString("kind"));
+
+        List<RecordedEvent> searches = named(events, "Search");
+        assertEquals(1, searches.size());
+        RecordedEvent search = searches.get(0);
+        assertEquals(3, search.getInt("moveNumber"));
+        assertEquals(9, search.getInt("boardSize"));
+        assertEquals(2500, search.getInt("iterations"));
+        assertEquals(mcts.getLastNodes(), search.getInt("nodes"));
+        assertEquals(mcts.getLastDepth(), search.getInt("depth"));
+        assertTrue(search.getInt("depth") > 0);
+        assertEquals(1.0, search.getDouble("budgetUsed"), 1E-9);
+        assertFalse(search.getBoolean("shortcut"));
+
+        List<RecordedEvent> growth = named(events, "TreeGrowth");
+        assertEquals(2, growth.size());
+        assertEquals(1000, growth.get(0).getInt("iterations"));
+        assertEquals(2000, growth.get(1).getInt("iterations"));
+        assertTrue(growth.get(1).getInt("nodes") >= growth.get(0).getInt("nodes"));
+        assertEquals(-1, growth.get(0).getInt("live"));
+
+        // The throughput samples account for every iteration
+        int sampled = 0;
+        for (RecordedEvent sample : named(events, "Throughput")) sampled += sample.getInt("iterations");
+        assertEquals(2500, sampled);
+    }
+
+    @Test
+    public void testSlicedSearch() throws Exception {
+        GmkMCTS mcts = new GmkMCTS(2500);
+        mcts.setVerbose(false);
+        GmkState state = (GmkState) new GmkGame(9).start().next(new GmkMove(0, 4, 4)).next(new GmkMove(1, 3, 4));
+        List<RecordedEvent> events = record(() -> {
+            try (GmkScheduler scheduler = new GmkScheduler(1, 1, 10)) {
+                scheduler.submit(mcts, state, 60_000).get(30, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        // One event for the move, however many slices it took
+        assertEquals(1, named(events, "Shortcut").size());
+        List<RecordedEvent> searches = named(events, "Search");
+        assertEquals(1, searches.size());
+        assertEquals(2500, searches.get(0).getInt("iterations"));
+        assertEquals(60_000, searches.get(0).getLong("maxMillis"));
+        assertEquals(mcts.getLastNodes(), searches.get(0).getInt("nodes"));
+        int sampled = 0;
+        for (RecordedEvent sample : named(events, "Throughput")) sampled += sample.getInt("iterations");
+        assertEquals(2500, sampled);
+    }
+
+    @Test
+    public void testShortcut() throws IOException {
+        GmkMCTS mcts = new GmkMCTS(2500);
+        mcts.setVerbose(false);
+        GmkState state = (GmkState) new GmkGame(9).start().next(new GmkMove(0, 0, 0));
+        List<RecordedEvent> events = record(() -> mcts.findBestMove(state));
+
+        List<RecordedEvent> shortcuts = named(events, "Shortcut");
+        assertEquals(1, shortcuts.size());
+        assertEquals("first", shortcuts.get(0).getString("kind"));
+        assertEquals("4,4", shortcuts.get(0).getString("move"));
+        RecordedEvent search = named(events, "Search").get(0);
+        assertTrue(search.getBoolean("shortcut"));
+        assertEquals(0, search.getInt("iterations"));
+        assertTrue(named(events, "TreeGrowth").isEmpty());
+    }
+}
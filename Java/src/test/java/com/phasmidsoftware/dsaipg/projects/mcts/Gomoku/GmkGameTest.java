@@ -23,4 +23,74 @@ public class GmkGameTest {
         assertFalse(state.moves(0).isEmpty());  // 0 = player one
     }
 
+    @Test
+    public void testRectangularBoard() {
+        GmkGame game = new GmkGame(6, 20, 5, GmkGame.Rule.FREESTYLE, GmkGame.Opening.STANDARD);
+        GmkState state = game.start();
+        assertEquals(120, state.moves(0).size());
+        assertEquals(6, state.getBoard().length);
+        assertEquals(20, state.getBoard()[0].length);
+        state = play(state, new int[][]{{5, 15}, {0, 0}, {5, 16}, {0, 1}, {5, 17}, {0, 2}, {5, 18}, {1, 0}, {5, 19}});
+        assertEquals(Integer.valueOf(0), state.winner().orElse(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBoardTooLarge() {
+        new GmkGame(33, 15, 5, GmkGame.Rule.FREESTYLE, GmkGame.Opening.STANDARD);
+    }
+
+    @Test
+    public void testWinLength() {
+        GmkGame game = new GmkGame(7, 7, 4, GmkGame.Rule.FREESTYLE, GmkGame.Opening.STANDARD);
+        GmkState state = play(game.start(), new int[][]{{3, 0}, {0, 0}, {3, 1}, {0, 2}, {3, 2}, {0, 4}});
+        assertFalse(state.isTerminal());
+        state = play(state, new int[][]{{3, 3}});
+        assertEquals(Integer.valueOf(0), state.winner().orElse(null));
+    }
+
+    @Test
+    public void testOverlines() {
+        // Black completes six in a row by filling the gap in X X _ X X X
+        int[][] moves = {{3, 0}, {0, 0}, {3, 1}, {0, 2}, {3, 3}, {0, 4}, {3, 4}, {6, 0}, {3, 5}, {6, 2}, {3, 2}};
+        GmkState freestyle = play(new GmkGame(9).start(), moves);
+        assertEquals(Integer.valueOf(0), freestyle.winner().orElse(null));
+        GmkState exact = play(new GmkGame(9, 9, 5, GmkGame.Rule.EXACT, GmkGame.Opening.STANDARD).start(), moves);
+        assertFalse(exact.winner().isPresent());
+        GmkState renju = play(new GmkGame(9, 9, 5, GmkGame.Rule.RENJU_LITE, GmkGame.Opening.STANDARD).start(), moves);
+        assertFalse(renju.winner().isPresent());
+    }
+
+    @Test
+    public void testRenjuLiteOverlineWinsForWhite() {
+        int[][] moves = {{0, 0}, {3, 0}, {0, 2}, {3, 1}, {0, 4}, {3, 3}, {6, 0}, {3, 4}, {6, 2}, {3, 5}, {6, 4}, {3, 2}};
+        GmkState renju = play(new GmkGame(9, 9, 5, GmkGame.Rule.RENJU_LITE, GmkGame.Opening.STANDARD).start(), moves);
+        assertEquals(Integer.valueOf(1), renju.winner().orElse(null));
+        GmkState exact = play(new GmkGame(9, 9, 5, GmkGame.Rule.EXACT, GmkGame.Opening.STANDARD).start(), moves);
+        assertFalse(exact.winner().isPresent());
+    }
+
+    @Test
+    public void testSwap2ColourChoice() {
+        GmkGame game = new GmkGame(9, 9, 5, GmkGame.Rule.FREESTYLE, GmkGame.Opening.SWAP2);
+        GmkState state = game.start();
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i == 3 || i == 5, state.isColourChoice());
+            state = play(state, new int[][]{{i, 4}});
+        }
+        assertFalse(play(new GmkGame(9).start(), new int[][]{{0, 0}, {1, 1}, {2, 2}}).isColourChoice());
+
+        GmkMCTS mcts = new GmkMCTS(200);
+        mcts.setVerbose(false);
+        mcts.setSeed(33L);
+        // Black has two connected stones in the centre, white one in the corner: take black
+        assertEquals(0, mcts.chooseColour(play(game.start(), new int[][]{{4, 3}, {0, 0}, {4, 4}})));
+        // White has an open four: take white
+        assertEquals(1, mcts.chooseColour(play(new GmkGame(9).start(),
+                new int[][]{{0, 0}, {4, 2}, {8, 8}, {4, 3}, {0, 8}, {4, 4}, {8, 0}, {4, 5}})));
+    }
+
+    private static GmkState play(GmkState state, int[][] moves) {
+        for (int[] move : moves) state = (GmkState) state.next(new GmkMove(state.player(), move[0], move[1]));
+        return state;
+    }
 }
@@ -0,0 +1,75 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the lookup tables of GmkGeometry.
+ */
+public class GmkGeometryTest {
+
+    @Test
+    public void testNeighbors() {
+        GmkGeometry geometry = new GmkGame(4, 6, 4, GmkGame.Rule.FREESTYLE, GmkGame.Opening.STANDARD).getGeometry();
+        int sentinel = geometry.getSentinel();
+        assertEquals(24, sentinel);
+        for (int direction = 0; direction < GmkGeometry.DIRECTIONS.length; direction++) {
+            int[] next = geometry.neighbors(direction);
+            assertEquals(sentinel, next[sentinel]);
+            for (int row = 0; row < 4; row++)
+                for (int col = 0; col < 6; col++) {
+                    int r = row + GmkGeometry.DIRECTIONS[direction][0];
+                    int c = col + GmkGeometry.DIRECTIONS[direction][1];
+                    int expected = r >= 0 && r < 4 && c >= 0 && c < 6 ? geometry.cell(r, c) : sentinel;
+                    assertEquals(expected, next[geometry.cell(row, col)]);
+                }
+        }
+    }
+
+    @Test
+    public void testOppositeDirections() {
+        GmkGeometry geometry = new GmkGame(7).getGeometry();
+        int center = geometry.cell(3, 3);
+        for (int direction = 0; direction < 4; direction++)
+            assertEquals(center, geometry.neighbors(direction + 4)[geometry.neighbors(direction)[center]]);
+    }
+
+    @Test
+    public void testLineTables() {
+        GmkGeometry geometry = new GmkGame(5, 8, 5, GmkGame.Rule.FREESTYLE, GmkGame.Opening.STANDARD).getGeometry();
+        assertEquals(3 * (5 + 8) - 2, geometry.getLineCount());
+        for (int direction = 0; direction < 4; direction++)
+            for (int cell = 0; cell < geometry.getCells(); cell++) {
+                long bit = 1L << geometry.bitOf(direction, cell);
+                assertTrue((geometry.valid(geometry.lineOf(direction, cell)) & bit) != 0);
+                // The next cell along the line is the next bit of the same line
+                int next = geometry.neighbors(direction)[cell];
+                if (next != geometry.getSentinel()) {
+                    assertEquals(geometry.lineOf(direction, cell), geometry.lineOf(direction, next));
+                    assertEquals(geometry.bitOf(direction, cell) + 1, geometry.bitOf(direction, next));
+                }
+            }
+    }
+
+    @Test
+    public void testPositionScore() {
+        GmkGeometry geometry = new GmkGame(15).getGeometry();
+        assertEquals(15, geometry.positionScore(geometry.cell(7, 7)));
+        assertEquals(-20, geometry.positionScore(geometry.cell(0, 0)));
+        assertEquals(-10, geometry.positionScore(geometry.cell(0, 1)));
+        assertEquals(-9, geometry.positionScore(geometry.cell(0, 7)));
+    }
+
+    @Test
+    public void testStateCells() {
+        GmkGame game = new GmkGame(5, 7, 5, GmkGame.Rule.FREESTYLE, GmkGame.Opening.STANDARD);
+        GmkState state = (GmkState) game.start().next(new GmkMove(0, 2, 6));
+        int[] cells = state.getCells();
+        assertEquals(36, cells.length);
+        assertEquals(GmkGeometry.BORDER, cells[game.getGeometry().getSentinel()]);
+        assertEquals(1, cells[game.getGeometry().cell(2, 6)]);
+        assertEquals(1, state.getBoard()[2][6]);
+        assertEquals(0, game.start().getCells()[game.getGeometry().cell(2, 6)]);
+    }
+}
@@ -0,0 +1,120 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for GmkGomocup (the Gomocup protocol).
+ */
+public class GmkGomocupTest {
+
+    private static List<String> send(GmkGomocup brain, String line) {
+        return brain.process(line, System.nanoTime());
+    }
+
+    // The last line of a reply to BEGIN, TURN or DONE is the move, as x,y
+    private static int[] move(List<String> reply) {
+        String[] xy = reply.get(reply.size() - 1).split(",");
+        return new int[]{Integer.parseInt(xy[0]), Integer.parseInt(xy[1])};
+    }
+
+    @Test
+    public void testGame() {
+        GmkGomocup brain = new GmkGomocup(50);
+        assertEquals(List.of("OK"), send(brain, "START 15"));
+        send(brain, "INFO timeout_turn 1000");
+        int[] first = move(send(brain, "BEGIN"));
+        assertEquals(1, brain.getState().getMoveCount());
+        List<String> reply = send(brain, "TURN " + (first[0] == 0 ? 1 : 0) + ",0");
+        assertTrue(reply.get(0), reply.get(0).startsWith("MESSAGE "));
+        int[] second = move(reply);
+        GmkState state = brain.getState();
+        assertEquals(3, state.getMoveCount());
+        assertEquals(1, state.getBoard()[first[1]][first[0]]);     // our stones are black
+        assertEquals(1, state.getBoard()[second[1]][second[0]]);
+        assertEquals(List.of("ERROR bad move: " + first[0] + "," + first[1]), send(brain, "TURN " + first[0] + "," + first[1]));
+    }
+
+    @Test
+    public void testBoard() {
+        GmkGomocup brain = new GmkGomocup(50);
+        send(brain, "START 15");
+        assertTrue(send(brain, "BOARD").isEmpty());
+        assertTrue(send(brain, "7,7,2").isEmpty());
+        assertTrue(send(brain, "8,7,1").isEmpty());
+        assertTrue(send(brain, "7,8,2").isEmpty());
+        int[] xy = move(send(brain, "DONE"));
+        GmkState state = brain.getState();
+        assertEquals(4, state.getMoveCount());
+        assertEquals(1, state.getBoard()[7][7]);    // the opponent has the extra stone, so is black
+        assertEquals(2, state.getBoard()[7][8]);
+        assertEquals(2, state.getBoard()[xy[1]][xy[0]]);
+    }
+
+    @Test
+    public void testTakeBackAndRestart() {
+        GmkGomocup brain = new GmkGomocup(20);
+        send(brain, "START 10");
+        int[] xy = move(send(brain, "BEGIN"));
+        assertEquals(List.of("OK"), send(brain, "TAKEBACK " + xy[0] + "," + xy[1]));
+        assertEquals(0, brain.getState().getMoveCount());
+        assertEquals("ERROR nothing to take back", send(brain, "TAKEBACK 0,0").get(0));
+        move(send(brain, "BEGIN"));
+        assertEquals(List.of("OK"), send(brain, "RESTART"));
+        assertEquals(0, brain.getState().getMoveCount());
+        assertEquals(List.of("OK"), send(brain, "RECTSTART 20,10"));
+        assertEquals(10, brain.getState().game().getRows());
+        assertEquals(20, brain.getState().game().getCols());
+    }
+
+    @Test
+    public void testOtherCommands() {
+        GmkGomocup brain = new GmkGomocup(20);
+        assertEquals("ERROR no game", send(brain, "BEGIN").get(0));
+        assertEquals("ERROR unsupported size: 40x40", send(brain, "START 40").get(0));
+        assertEquals("UNKNOWN FOO", send(brain, "FOO").get(0));
+        assertTrue(send(brain, "ABOUT").get(0).startsWith("name=\"GmkMCTS\""));
+        // As a manager sends them: the settings follow START, and apply to the game it started
+        send(brain, "START 15");
+        assertEquals(GmkGame.Rule.FREESTYLE, brain.getState().game().getRule());
+        assertTrue(send(brain, "INFO rule 1").isEmpty());
+        assertEquals(GmkGame.Rule.EXACT, brain.getState().game().getRule());
+        assertNull(brain.getEngine().getNodePool());
+        send(brain, "INFO max_memory 83886080");
+        assertNotNull(brain.getEngine().getNodePool());
+        move(send(brain, "BEGIN"));
+        assertEquals(GmkGame.Rule.EXACT, brain.getState().game().getRule());
+        // Once the game is under way, a new rule waits for the next game
+        send(brain, "INFO rule 0");
+        assertEquals(GmkGame.Rule.EXACT, brain.getState().game().getRule());
+        send(brain, "RESTART");
+        assertEquals(GmkGame.Rule.FREESTYLE, brain.getState().game().getRule());
+        assertNotNull(brain.getEngine().getNodePool());
+        assertTrue(send(brain, "INFO folder /tmp").isEmpty());
+        assertFalse(brain.isEnded());
+        assertTrue(send(brain, "END").isEmpty());
+        assertTrue(brain.isEnded());
+    }
+
+    @Test
+    public void testBudget() {
+        GmkGomocup brain = new GmkGomocup();
+        send(brain, "START 15");
+        assertEquals(GmkGomocup.DEFAULT_TIMEOUT_TURN * 19 / 20, brain.budgetMillis());
+        send(brain, "INFO timeout_turn 0");
+        assertEquals(GmkGomocup.MIN_BUDGET_MILLIS, brain.budgetMillis());
+        send(brain, "INFO timeout_turn 1000");
+        assertEquals(950, brain.budgetMillis());
+        // The match clock is spread over half the empty cells (112 of 225), so 20s gives 178ms a move
+        send(brain, "INFO timeout_match 20000");
+        assertEquals(178 - GmkGomocup.SAFETY_MILLIS, brain.budgetMillis());
+        // With little time left, the least budget
+        send(brain, "INFO time_left 1500");
+        assertEquals(GmkGomocup.MIN_BUDGET_MILLIS, brain.budgetMillis());
+        send(brain, "INFO time_left 15000");
+        assertEquals(133 - GmkGomocup.SAFETY_MILLIS, brain.budgetMillis());
+    }
+}
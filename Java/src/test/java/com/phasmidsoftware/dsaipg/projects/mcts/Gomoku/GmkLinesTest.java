@@ -0,0 +1,138 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for GmkLines, checked against straightforward scans of the board.
+ */
+public class GmkLinesTest {
+
+    private static GmkLines lines(int size) {
+        return new GmkLines(new GmkGame(size).getGeometry());
+    }
+
+    @Test
+    public void testWinnerInEachDirection() {
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        for (int[] d : directions) {
+            GmkLines lines = lines(9);
+            int row = 2, col = d[1] < 0 ? 6 : 2;
+            for (int i = 0; i < 4; i++) lines = lines.with(1, row + i * d[0], col + i * d[1]);
+            assertEquals(-1, lines.winner());
+            lines = lines.with(1, row + 4 * d[0], col + 4 * d[1]);
+            assertEquals(1, lines.winner());
+        }
+    }
+
+    @Test
+    public void testNoWinnerAcrossLineEnds() {
+        // Stones at the end of one row and the start of the next must not join up
+        GmkLines lines = lines(7);
+        lines = lines.with(0, 0, 4).with(0, 0, 5).with(0, 0, 6).with(0, 1, 0).with(0, 1, 1);
+        assertEquals(-1, lines.winner());
+        // Nor on a short diagonal
+        lines = lines(7);
+        lines = lines.with(0, 3, 0).with(0, 4, 1).with(0, 5, 2).with(0, 6, 3).with(0, 0, 4);
+        assertEquals(-1, lines.winner());
+    }
+
+    @Test
+    public void testExactWinnerFromLastStone() {
+        GmkLines lines = new GmkLines(new GmkGame(9, 9, 5, GmkGame.Rule.EXACT, GmkGame.Opening.STANDARD).getGeometry());
+        lines = lines.with(0, 4, 0).with(0, 4, 1).with(0, 4, 2).with(0, 4, 3).with(0, 4, 5);
+        // Filling the gap makes six in a row, which is not a win under the exact rule
+        assertEquals(-1, lines.with(0, 4, 4).winner());
+        // A stone elsewhere leaves the winner as it was
+        lines = lines.with(0, 4, 4).with(1, 0, 0);
+        assertEquals(-1, lines.winner());
+        for (int row = 4; row < 9; row++) lines = lines.with(1, row, 8);
+        assertEquals(1, lines.winner());
+        assertEquals(1, lines.with(0, 8, 0).winner());
+    }
+
+    @Test
+    public void testOpenFours() {
+        GmkLines lines = lines(9);
+        for (int col = 2; col < 6; col++) lines = lines.with(0, 4, col);
+        assertEquals(1, lines.openFours(0));
+        assertEquals(0, lines.openFours(1));
+        lines = lines.with(1, 4, 6);
+        assertEquals(0, lines.openFours(0));
+    }
+
+    @Test
+    public void testBlockingCell() {
+        GmkLines lines = lines(9);
+        lines = lines.with(1, 3, 3).with(1, 4, 3).with(1, 6, 3);
+        assertEquals(5 * 9 + 3, lines.blockingCell(1));
+        assertEquals(-1, lines.blockingCell(0));
+    }
+
+    @Test
+    public void testAgreesWithBoardScans() {
+        Random random = new Random(32L);
+        for (int game = 0; game < 300; game++) {
+            int rows = 5 + random.nextInt(11);
+            int cols = game % 2 == 0 ? rows : 5 + random.nextInt(28);
+            int k = game % 3 == 0 ? 3 + random.nextInt(4) : 5;
+            GmkState state = new GmkGame(rows, cols, k, GmkGame.Rule.FREESTYLE, GmkGame.Opening.STANDARD).start();
+            int moves = random.nextInt(rows * cols);
+            for (int i = 0; i < moves && !state.isTerminal(); i++) {
+                int row, col;
+                do {
+                    row = random.nextInt(rows);
+                    col = random.nextInt(cols);
+                } while (state.getBoard()[row][col] != 0);
+                state = (GmkState) state.next(new GmkMove(state.player(), row, col));
+
+                int[][] board = state.getBoard();
+                GmkLines lines = state.getLines();
+                assertEquals(winner(board, k), lines.winner());
+                for (int player = 0; player < 2; player++)
+                    assertEquals(blockingCell(board, player, k), lines.blockingCell(player));
+            }
+        }
+    }
+
+    // Reference: the first k in a row found by scanning the board
+    private static int winner(int[][] board, int k) {
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        for (int[] d : directions)
+            for (int row = 0; row < board.length; row++)
+                for (int col = 0; col < board[0].length; col++) {
+                    int player = board[row][col];
+                    if (player == 0) continue;
+                    int i = 1;
+                    while (i < k && inside(board, row + i * d[0], col + i * d[1]) && board[row + i * d[0]][col + i * d[1]] == player)
+                        i++;
+                    if (i == k) return player - 1;
+                }
+        return -1;
+    }
+
+    // Reference: the scan which GmkMCTS used to find a blocking move (windows of four with three stones, for k = 5)
+    private static int blockingCell(int[][] board, int player, int k) {
+        int cols = board[0].length;
+        int window = k - 1;
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        for (int[] d : directions)
+            for (int row = 0; row < board.length; row++)
+                for (int col = 0; col < board[0].length; col++) {
+                    if (!inside(board, row + (window - 1) * d[0], col + (window - 1) * d[1])) continue;
+                    int count = 0;
+                    for (int i = 0; i < window; i++) if (board[row + i * d[0]][col + i * d[1]] == player + 1) count++;
+                    if (count < window - 1) continue;
+                    for (int i = 0; i < window; i++)
+                        if (board[row + i * d[0]][col + i * d[1]] == 0) return (row + i * d[0]) * cols + col + i * d[1];
+                }
+        return -1;
+    }
+
+    private static boolean inside(int[][] board, int row, int col) {
+        return row >= 0 && row < board.length && col >= 0 && col < board[0].length;
+    }
+}
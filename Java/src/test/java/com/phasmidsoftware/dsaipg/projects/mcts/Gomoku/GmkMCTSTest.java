@@ -0,0 +1,58 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the search of GmkMCTS.
+ */
+public class GmkMCTSTest {
+
+    private static GmkState play(GmkGame game, int... rowCols) {
+        GmkState state = game.start();
+        for (int i = 0; i < rowCols.length; i += 2)
+            state = (GmkState) state.next(new GmkMove(state.player(), rowCols[i], rowCols[i + 1]));
+        return state;
+    }
+
+    @Test
+    public void testBackPropagation() {
+        GmkMCTS mcts = new GmkMCTS(5000);
+        mcts.setVerbose(false);
+        mcts.setSeed(37L);
+        mcts.findBestMove(play(new GmkGame(9), 4, 4, 3, 4));
+        GmkNode root = mcts.getCurrentRootNode();
+        assertEquals(5000, mcts.getLastIterations());
+        // Every iteration passes through the root and one of its children
+        assertEquals(5000, root.playouts());
+        int total = 0;
+        int most = 0;
+        for (Node<GmkGame> child : root.children()) {
+            total += child.playouts();
+            most = Math.max(most, child.playouts());
+        }
+        assertEquals(5000, total);
+        // ...and the search concentrates on the better moves
+        assertTrue("most visited: " + most, most > 1.5 * 5000 / root.children().size());
+        assertTrue(mcts.getLastDepth() > 1);
+    }
+
+    @Test
+    public void testFindsWin() {
+        GmkMCTS mcts = new GmkMCTS(2000);
+        mcts.setVerbose(false);
+        mcts.setSeed(37L);
+        // Black has four in a row, open at both ends, and white has nothing to block
+        GmkState state = play(new GmkGame(9), 4, 1, 0, 0, 4, 2, 0, 8, 4, 3, 8, 0, 4, 4, 8, 8);
+        GmkMove move = mcts.findBestMove(state);
+        assertEquals(4, move.getRow());
+        assertTrue(move.toString(), move.getCol() == 0 || move.getCol() == 5);
+        GmkNode root = mcts.getCurrentRootNode();
+        GmkNode best = null;
+        for (Node<GmkGame> child : root.children())
+            if (best == null || child.playouts() > best.playouts()) best = (GmkNode) child;
+        assertEquals(1.0, best.meanReward(), 1E-9);
+    }
+}
@@ -0,0 +1,68 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the GmkNodePool class.
+ */
+public class GmkNodePoolTest {
+
+    private static GmkState openingPosition() {
+        return (GmkState) new GmkGame(7).start().next(new GmkMove(0, 3, 3)).next(new GmkMove(1, 2, 3));
+    }
+
+    private static int count(Node<GmkGame> node) {
+        int result = 1;
+        for (Node<GmkGame> child : node.children()) result += count(child);
+        return result;
+    }
+
+    @Test
+    public void testTreeStaysWithinCapacity() {
+        GmkMCTS mcts = new GmkMCTS(600);
+        GmkNodePool pool = new GmkNodePool(300);
+        mcts.setNodePool(pool);
+        assertNotNull(mcts.findBestMove(openingPosition()));
+
+        int nodes = count(mcts.getCurrentRootNode());
+        assertEquals(nodes, pool.getLive());
+        assertTrue(pool.getPeak() <= pool.getCapacity());
+        assertTrue(pool.getEvictions() > 0);
+        assertTrue(pool.getRecycled() >= pool.getEvictions());
+    }
+
+    @Test
+    public void testUnboundedTreeIsLarger() {
+        GmkMCTS mcts = new GmkMCTS(600);
+        mcts.findBestMove(openingPosition());
+        assertNull(mcts.getNodePool());
+        assertTrue(count(mcts.getCurrentRootNode()) > 300);
+    }
+
+    @Test
+    public void testRootIsAlwaysExpanded() {
+        GmkMCTS mcts = new GmkMCTS(50);
+        GmkNodePool pool = new GmkNodePool(10);
+        mcts.setNodePool(pool);
+        assertNotNull(mcts.findBestMove(openingPosition()));
+        assertEquals(47, mcts.getCurrentRootNode().children().size());
+        assertTrue(pool.getRefused() > 0);
+    }
+
+    @Test
+    public void testForMemory() {
+        GmkNodePool small = GmkNodePool.forMemory(1 << 20, 15);
+        GmkNodePool large = GmkNodePool.forMemory(1 << 24, 15);
+        assertTrue(small.getCapacity() > 0);
+        assertEquals(16, large.getCapacity() / small.getCapacity(), 1);
+        assertTrue(GmkNodePool.bytesPerNode(19) > GmkNodePool.bytesPerNode(15));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityMustBePositive() {
+        new GmkNodePool(0);
+    }
+}
@@ -31,4 +31,36 @@ public class GmkNodeTest {
 
         assertEquals(1, parentNode.children().size());
     }
+
+    @Test
+    public void testFractionalRewards() {
+        GmkNode node = new GmkNode(new GmkGame().start());
+        node.update(true);
+        node.update(0.5);
+        node.update(false);
+        node.update(0.25);
+        assertEquals(4, node.playouts());
+        assertEquals(1.75 / 4, node.meanReward(), 1e-9);
+        // On the scale of Node.wins(): 2 for a win, 1 for a draw
+        assertEquals(3, node.wins());
+
+        node.update(3 * GmkNode.REWARD_SCALE, 4);
+        assertEquals(8, node.playouts());
+        assertEquals(4.75 / 8, node.meanReward(), 1e-9);
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        GmkNode node = new GmkNode(new GmkGame().start());
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) node.update(0.5);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals(40000, node.playouts());
+        assertEquals(20000 * GmkNode.REWARD_SCALE, node.getReward());
+    }
 }
@@ -0,0 +1,78 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the GmkOpeningBook class.
+ */
+public class GmkOpeningBookTest {
+
+    @Test
+    public void testZobristKeyIsOrderIndependent() {
+        GmkGame game = new GmkGame(7);
+        GmkState s1 = (GmkState) game.start().next(new GmkMove(0, 3, 3)).next(new GmkMove(1, 2, 2)).next(new GmkMove(0, 4, 4));
+        GmkState s2 = (GmkState) game.start().next(new GmkMove(0, 4, 4)).next(new GmkMove(1, 2, 2)).next(new GmkMove(0, 3, 3));
+        assertEquals(s1.getZobristKey(), s2.getZobristKey());
+        assertNotEquals(0L, s1.getZobristKey());
+        assertEquals(0L, game.start().getZobristKey());
+    }
+
+    @Test
+    public void testBuildAndLookup() throws Exception {
+        GmkGame game = new GmkGame(7);
+        Path path = Files.createTempFile("gomoku", ".book");
+        try {
+            int positions = GmkOpeningBook.build(game, 3, 2, 30, path);
+            assertTrue(positions >= 3);
+
+            GmkOpeningBook book = GmkOpeningBook.open(path);
+            assertEquals(7, book.getSize());
+            assertEquals(positions, book.getCount());
+
+            // The first move of the engine is the centre of the board
+            GmkMove first = book.lookup(game.start());
+            assertNotNull(first);
+            assertEquals(3, first.getRow());
+            assertEquals(3, first.getCol());
+
+            // A position far from the book is not found
+            GmkState unknown = (GmkState) game.start().next(new GmkMove(0, 0, 0)).next(new GmkMove(1, 6, 6));
+            assertNull(book.lookup(unknown));
+
+            // A board of a different size never matches
+            assertNull(book.lookup(new GmkGame(9).start()));
+
+            // Nor does the same board with another win length or rule
+            assertEquals(5, book.getWinLength());
+            assertEquals(GmkGame.Rule.FREESTYLE, book.getRule());
+            assertNull(book.lookup(new GmkGame(7, 7, 4, GmkGame.Rule.FREESTYLE, GmkGame.Opening.STANDARD).start()));
+            assertNull(book.lookup(new GmkGame(7, 7, 5, GmkGame.Rule.EXACT, GmkGame.Opening.STANDARD).start()));
+            assertNotNull(book.lookup(new GmkGame(7, 7, 5, GmkGame.Rule.FREESTYLE, GmkGame.Opening.STANDARD).start()));
+
+            // GmkMCTS answers book positions without searching
+            GmkMCTS mcts = new GmkMCTS(10);
+            mcts.setOpeningBook(book);
+            GmkMove move = mcts.findBestMove(game.start());
+            assertEquals(first.toString(), move.toString());
+            assertEquals(0, mcts.getLastIterations());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOpenRejectsOtherFiles() throws Exception {
+        Path path = Files.createTempFile("gomoku", ".book");
+        try {
+            Files.write(path, new byte[32]);
+            GmkOpeningBook.open(path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the learned move priors of GmkPriors and their use in GmkMCTS.
+ */
+public class GmkPriorsTest {
+
+    // Black builds a line along row 4 and white answers along row 0, always next to its own stones
+    private static final List<GmkMove> LINE_GAME = List.of(
+            new GmkMove(0, 4, 2), new GmkMove(1, 0, 0), new GmkMove(0, 4, 3), new GmkMove(1, 0, 1),
+            new GmkMove(0, 4, 4), new GmkMove(1, 0, 2), new GmkMove(0, 4, 5), new GmkMove(1, 0, 3),
+            new GmkMove(0, 4, 6));
+
+    @Test
+    public void testTrain() {
+        GmkGame game = new GmkGame(9);
+        GmkPriors priors = GmkPriors.train(game, List.of(LINE_GAME, LINE_GAME));
+        GmkState state = game.start();
+        for (GmkMove move : LINE_GAME.subList(0, 4)) state = (GmkState) state.next(move);
+        // Extending one's own line was played; an isolated cell never was
+        assertTrue(priors.prior(state, new GmkMove(0, 4, 4)) > priors.prior(state, new GmkMove(0, 8, 8)));
+        for (int code = 0; code < 1 << 16; code++) assertTrue(priors.prior(code) > 0);
+    }
+
+    @Test
+    public void testWriteAndLoad() throws Exception {
+        GmkPriors priors = GmkPriors.train(new GmkGame(9), List.of(LINE_GAME));
+        Path path = Files.createTempFile("gomoku", ".priors");
+        try {
+            priors.write(path);
+            assertEquals(12 + 4 * (1 << 16), Files.size(path));
+            GmkPriors loaded = GmkPriors.load(path);
+            for (int code = 0; code < 1 << 16; code++) assertEquals(priors.prior(code), loaded.prior(code), 0);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testParseTournamentRecords() {
+        GmkTournament.GameResult result = new GmkTournament.GameResult(3, "a", "b", 0, false, LINE_GAME,
+                new long[LINE_GAME.size()], new int[LINE_GAME.size()]);
+        for (String record : List.of(result.toCsv(), result.toJson())) {
+            List<GmkMove> moves = GmkPriors.parseGame(record);
+            assertNotNull(record, moves);
+            assertEquals(LINE_GAME.size(), moves.size());
+            for (int i = 0; i < moves.size(); i++) {
+                assertEquals(LINE_GAME.get(i).getRow(), moves.get(i).getRow());
+                assertEquals(LINE_GAME.get(i).getCol(), moves.get(i).getCol());
+            }
+        }
+        assertNull(GmkPriors.parseGame(GmkTournament.GameResult.csvHeader()));
+    }
+
+    @Test
+    public void testSearchWithPriors() {
+        GmkGame game = new GmkGame(9);
+        GmkMCTS mcts = new GmkMCTS(300);
+        mcts.setVerbose(false);
+        mcts.setPriors(GmkPriors.train(game, List.of(LINE_GAME)));
+        GmkState state = game.start();
+        for (GmkMove move : LINE_GAME.subList(0, 4)) state = (GmkState) state.next(move);
+        GmkMove move = mcts.findBestMove(state);
+        assertEquals(0, state.getBoard()[move.getRow()][move.getCol()]);
+
+        // The children's priors are normalized
+        double total = 0;
+        for (Node<GmkGame> child : mcts.getCurrentRootNode().children()) total += ((GmkNode) child).getPrior();
+        assertEquals(1, total, 1e-4);
+    }
+
+    @Test
+    public void testPriorsGuideSearch() {
+        GmkGame game = new GmkGame(9);
+        GmkPriors priors = GmkPriors.train(game, List.of(LINE_GAME));
+        GmkState state = game.start();
+        for (GmkMove move : LINE_GAME.subList(0, 2)) state = (GmkState) state.next(move);
+        GmkMove trained = LINE_GAME.get(2);
+        int withPriors = 0;
+        int withoutPriors = 0;
+        for (int seed = 0; seed < 10; seed++) {
+            if (chooses(state, trained, seed, priors)) withPriors++;
+            if (chooses(state, trained, seed, null)) withoutPriors++;
+        }
+        assertTrue(withPriors + " vs " + withoutPriors, withPriors > withoutPriors);
+        assertTrue(withPriors >= 8);
+    }
+
+    // True if a seeded search of the state (with the given priors, if any) chooses the given move
+    private static boolean chooses(GmkState state, GmkMove expected, long seed, GmkPriors priors) {
+        GmkMCTS mcts = new GmkMCTS(300);
+        mcts.setVerbose(false);
+        mcts.setSeed(seed);
+        mcts.setPriors(priors);
+        GmkMove move = mcts.findBestMove(state);
+        return move.getRow() == expected.getRow() && move.getCol() == expected.getCol();
+    }
+}
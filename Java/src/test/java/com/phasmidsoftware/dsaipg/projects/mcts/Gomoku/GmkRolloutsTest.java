@@ -0,0 +1,125 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Move;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.RolloutPolicy;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the Gomoku rollout policies and GmkRollouts.
+ */
+public class GmkRolloutsTest {
+
+    @Test
+    public void testPoliciesChooseEmptyCells() {
+        GmkGame game = new GmkGame(9);
+        Random random = new Random(35L);
+        for (String name : GmkRollouts.NAMES) {
+            RolloutPolicy<GmkGame> policy = GmkRollouts.forName(name);
+            GmkState state = game.start();
+            for (int ply = 0; ply < 30 && !state.isTerminal(); ply++) {
+                Move<GmkGame> move = policy.choose(state, random);
+                assertNotNull(name, move);
+                GmkMove gmkMove = (GmkMove) move;
+                assertEquals(name, 0, state.getBoard()[gmkMove.getRow()][gmkMove.getCol()]);
+                assertEquals(name, state.player(), move.player());
+                state = (GmkState) state.next(move);
+            }
+        }
+    }
+
+    @Test
+    public void testPlayoutValues() {
+        GmkGame game = new GmkGame(7);
+        Random random = new Random(36L);
+        for (String name : GmkRollouts.NAMES) {
+            RolloutPolicy<GmkGame> policy = GmkRollouts.forName(name);
+            for (int i = 0; i < 20; i++) {
+                double value = policy.playout(game.start(), 0, random);
+                assertTrue(name, value >= 0 && value <= 1);
+            }
+        }
+    }
+
+    @Test
+    public void testHorizon() {
+        // A policy which counts its moves stops at its horizon
+        int[] moves = new int[1];
+        RolloutPolicy<GmkGame> policy = new GmkCutoffRollout(new GmkUniformRollout(), 4) {
+            @Override
+            public Move<GmkGame> choose(State<GmkGame> state, Random random) {
+                moves[0]++;
+                return super.choose(state, random);
+            }
+        };
+        double value = policy.playout(new GmkGame(15).start(), 0, new Random(37L));
+        assertEquals(4, moves[0]);
+        assertTrue(value > 0 && value < 1);
+    }
+
+    @Test
+    public void testThreatEstimate() {
+        GmkState state = new GmkGame(9).start();
+        // Black has four in a row and is to move
+        int[][] moves = {{4, 0}, {0, 0}, {4, 1}, {0, 2}, {4, 2}, {0, 4}, {4, 3}, {0, 6}};
+        for (int[] move : moves) state = (GmkState) state.next(new GmkMove(state.player(), move[0], move[1]));
+        assertEquals(0, state.player());
+        assertTrue(GmkCutoffRollout.threatEstimate(state) > 0.9);
+        assertEquals(0.5, GmkCutoffRollout.threatEstimate(new GmkGame(9).start()), 1e-9);
+    }
+
+    @Test
+    public void testWinProbability() {
+        GmkState state = new GmkGame(9).start();
+        // Black has four in a row and is to move
+        int[][] moves = {{4, 0}, {0, 0}, {4, 1}, {0, 2}, {4, 2}, {0, 4}, {4, 3}, {0, 6}};
+        for (int[] move : moves) state = (GmkState) state.next(new GmkMove(state.player(), move[0], move[1]));
+        assertTrue(GmkHeuristics.winProbability(state) > 0.9);
+        // White to move cannot block both ends of black's open four
+        GmkState open = new GmkGame(9).start();
+        int[][] openMoves = {{4, 2}, {0, 0}, {4, 3}, {0, 2}, {4, 4}, {0, 4}, {4, 5}};
+        for (int[] move : openMoves) open = (GmkState) open.next(new GmkMove(open.player(), move[0], move[1]));
+        assertEquals(1, open.player());
+        assertTrue(GmkHeuristics.winProbability(open) < 0.1);
+        assertEquals(0.5, GmkHeuristics.winProbability(new GmkGame(9).start()), 1e-9);
+    }
+
+    @Test
+    public void testCutoffPlayout() {
+        RolloutPolicy<GmkGame> policy = new GmkCutoffRollout(new GmkHeuristicRollout(), 6);
+        Random random = new Random(36L);
+        for (int i = 0; i < 20; i++) {
+            double value = policy.playout(new GmkGame(15).start(), i % 2, random);
+            assertTrue(value >= 0 && value <= 1);
+        }
+    }
+
+    @Test
+    public void testPatternCode() {
+        GmkState state = (GmkState) new GmkGame(5).start().next(new GmkMove(0, 0, 1));
+        GmkGeometry geometry = state.game().getGeometry();
+        // From (0, 0): east is black's stone, north-ish directions are off the board
+        int code = GmkHeuristics.patternCode(state, geometry.cell(0, 0), 0);
+        assertEquals(1, code & 3);
+        assertEquals(3, code >>> 10 & 3);
+        assertEquals(2, GmkHeuristics.patternCode(state, geometry.cell(0, 0), 1) & 3);
+    }
+
+    @Test
+    public void testRolloutsPerSecond() {
+        GmkGame game = new GmkGame(9);
+        List<GmkState> positions = GmkRollouts.samplePositions(game, 4, 4, new Random(38L));
+        assertEquals(4, positions.size());
+        assertTrue(GmkRollouts.rolloutsPerSecond(new GmkPatternRollout(), positions, 50, new Random(39L)) > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownPolicy() {
+        GmkRollouts.forName("oracle");
+    }
+}
@@ -0,0 +1,116 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for GmkScheduler.
+ */
+public class GmkSchedulerTest {
+
+    private static GmkState openingPosition() {
+        return (GmkState) new GmkGame(9).start().next(new GmkMove(0, 4, 4)).next(new GmkMove(1, 3, 4));
+    }
+
+    private static GmkMCTS engine(int iterations) {
+        GmkMCTS mcts = new GmkMCTS(iterations);
+        mcts.setVerbose(false);
+        return mcts;
+    }
+
+    @Test
+    public void testIterationsComplete() throws Exception {
+        try (GmkScheduler scheduler = new GmkScheduler(1, 1, 10)) {
+            GmkMCTS mcts = engine(300);
+            GmkMove move = scheduler.submit(mcts, openingPosition(), 60_000).get(30, TimeUnit.SECONDS);
+            assertNotNull(move);
+            assertEquals(0, move.player());
+            // All the slices search on from the same root
+            assertEquals(2, ((GmkState) mcts.getCurrentRootNode().state()).getMoveCount());
+            assertEquals(300, mcts.getLastIterations());
+            assertEquals(1, scheduler.getCompleted());
+            assertEquals(0, scheduler.getCutBudgets());
+            assertEquals(0, scheduler.getDeadlineMisses());
+            assertEquals(0, scheduler.getActive());
+        }
+    }
+
+    @Test
+    public void testShortcut() throws Exception {
+        try (GmkScheduler scheduler = new GmkScheduler(1, 5, 10)) {
+            GmkMove move = scheduler.submit(engine(1_000_000), new GmkGame(9).start(), 60_000).get(30, TimeUnit.SECONDS);
+            assertEquals(4, move.getRow());
+            assertEquals(4, move.getCol());
+        }
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        try (GmkScheduler scheduler = new GmkScheduler(1, 5, 10)) {
+            long start = System.nanoTime();
+            GmkMove move = scheduler.submit(engine(Integer.MAX_VALUE), openingPosition(), 100).get(30, TimeUnit.SECONDS);
+            assertNotNull(move);
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            assertEquals(1, scheduler.getCutBudgets());
+        }
+    }
+
+    @Test
+    public void testEarliestDeadlineFirst() throws Exception {
+        try (GmkScheduler scheduler = new GmkScheduler(1, 5, 10)) {
+            CompletableFuture<GmkMove> late = scheduler.submit(engine(Integer.MAX_VALUE), openingPosition(), 500);
+            CompletableFuture<GmkMove> early = scheduler.submit(engine(Integer.MAX_VALUE), openingPosition(), 100);
+            assertNotNull(early.get(30, TimeUnit.SECONDS));
+            assertFalse(late.isDone());
+            assertNotNull(late.get(30, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testOverloadCutsBudgets() throws Exception {
+        try (GmkScheduler scheduler = new GmkScheduler(1, 5, 8)) {
+            List<CompletableFuture<GmkMove>> moves = new ArrayList<>();
+            for (int i = 0; i < 8; i++) moves.add(scheduler.submit(engine(1_000_000), openingPosition(), 200 + 10 * i));
+            assertEquals(8, scheduler.getActive());
+            try {
+                scheduler.submit(engine(10), openingPosition(), 1000);
+                fail("expected the scheduler to be at capacity");
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+            for (CompletableFuture<GmkMove> move : moves) assertNotNull(move.get(30, TimeUnit.SECONDS));
+            assertEquals(8, scheduler.getCompleted());
+            assertEquals(8, scheduler.getCutBudgets());
+            assertEquals(0, scheduler.getQueueDepth());
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        GmkScheduler scheduler = new GmkScheduler(1, 5, 10);
+        CompletableFuture<GmkMove> first = scheduler.submit(engine(Integer.MAX_VALUE), openingPosition(), 60_000);
+        CompletableFuture<GmkMove> second = scheduler.submit(engine(Integer.MAX_VALUE), openingPosition(), 60_000);
+        scheduler.close();
+        try {
+            first.get(30, TimeUnit.SECONDS);
+        } catch (CancellationException e) {
+            // expected
+        }
+        assertTrue(first.isCancelled());
+        assertTrue(second.isCancelled());
+        try {
+            scheduler.submit(engine(10), openingPosition(), 1000);
+            fail("expected the scheduler to be closed");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+}
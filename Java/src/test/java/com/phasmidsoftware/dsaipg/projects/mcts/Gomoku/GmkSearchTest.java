@@ -0,0 +1,150 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the asynchronous search API (GmkMCTS.startSearch and GmkSearch).
+ */
+public class GmkSearchTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static GmkState openingPosition() {
+        return (GmkState) new GmkGame(9).start().next(new GmkMove(0, 4, 4)).next(new GmkMove(1, 3, 4));
+    }
+
+    @Test
+    public void testSearchCompletes() throws Exception {
+        GmkMCTS mcts = new GmkMCTS(50);
+        GmkSearch search = mcts.startSearch(openingPosition(), executor, 0, null);
+        GmkMove move = search.result().get(30, TimeUnit.SECONDS);
+        assertNotNull(move);
+        assertEquals(0, move.player());
+        assertEquals(50, mcts.getLastIterations());
+    }
+
+    @Test
+    public void testShortcutCompletesImmediately() throws Exception {
+        GmkMCTS mcts = new GmkMCTS(1000);
+        GmkMove move = mcts.startSearch(new GmkGame(9).start(), executor, 0, null).result().get(5, TimeUnit.SECONDS);
+        assertEquals(4, move.getRow());
+        assertEquals(4, move.getCol());
+    }
+
+    @Test
+    public void testStopYieldsBestMoveSoFar() throws Exception {
+        GmkMCTS mcts = new GmkMCTS();
+        List<GmkMove> updates = new CopyOnWriteArrayList<>();
+        GmkSearch search = mcts.startAnalysis(openingPosition(), executor, 10, updates::add);
+        Thread.sleep(300);
+        assertFalse(search.isDone());
+        search.stop();
+        GmkMove move = search.result().get(30, TimeUnit.SECONDS);
+        assertNotNull(move);
+        assertFalse(updates.isEmpty());
+        assertNotNull(search.getBestMoveSoFar());
+        assertTrue(search.getIterations() > 0);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        GmkMCTS mcts = new GmkMCTS();
+        GmkSearch search = mcts.startAnalysis(openingPosition(), executor, 0, null);
+        Thread.sleep(100);
+        assertTrue(search.cancel());
+        assertTrue(search.result().isCancelled());
+        // The executor is free again once the cancelled search has wound down
+        assertNotNull(mcts.startSearch(openingPosition(), executor, 0, null).result().get(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPonderingReusesSubtreeOfReply() throws Exception {
+        GmkMCTS mcts = new GmkMCTS(20);
+        mcts.setPonderNodes(Integer.MAX_VALUE);
+        GmkState afterOurMove = (GmkState) openingPosition().next(new GmkMove(0, 5, 5));
+        mcts.startPondering(afterOurMove, executor);
+        Thread.sleep(300);
+        assertTrue(mcts.isPondering());
+        GmkNode ponderRoot = mcts.getCurrentRootNode();
+        assertEquals(afterOurMove.getZobristKey(), ((GmkState) ponderRoot.state()).getZobristKey());
+
+        // The opponent replies: the search continues from the pondered subtree of that reply
+        GmkState afterReply = (GmkState) afterOurMove.next(new GmkMove(1, 2, 2));
+        GmkNode replyNode = null;
+        for (Node<GmkGame> child : ponderRoot.children())
+            if (((GmkState) child.state()).getZobristKey() == afterReply.getZobristKey()) replyNode = (GmkNode) child;
+        assertNotNull(replyNode);
+        assertNotNull(mcts.findBestMove(afterReply));
+        assertFalse(mcts.isPondering());
+        assertSame(replyNode, mcts.getCurrentRootNode());
+    }
+
+    @Test
+    public void testPonderingStopsAtNodeLimit() throws Exception {
+        GmkMCTS mcts = new GmkMCTS(20);
+        mcts.setVerbose(false);
+        mcts.setPonderNodes(2000);
+        mcts.startPondering((GmkState) openingPosition().next(new GmkMove(0, 5, 5)), executor);
+        for (int i = 0; i < 3000 && mcts.isPondering(); i++) Thread.sleep(10);
+        // The search stopped by itself, with no more than one expansion beyond the limit
+        assertFalse(mcts.isPondering());
+        int nodes = count(mcts.getCurrentRootNode());
+        assertTrue("nodes: " + nodes, nodes >= 2000 && nodes <= 2000 + 81);
+    }
+
+    @Test
+    public void testPonderingIsBoundedByNodePool() throws Exception {
+        GmkMCTS mcts = new GmkMCTS(20);
+        mcts.setVerbose(false);
+        GmkNodePool pool = new GmkNodePool(1000);
+        mcts.setNodePool(pool);
+        mcts.startPondering((GmkState) openingPosition().next(new GmkMove(0, 5, 5)), executor);
+        Thread.sleep(1000);
+        // With a pool, pondering goes on for as long as the opponent thinks, recycling nodes to stay within it
+        assertTrue(mcts.isPondering());
+        mcts.stopPondering();
+        assertTrue(pool.toString(), pool.getEvictions() > 0);
+        assertTrue(pool.toString(), pool.getPeak() <= 1000);
+        assertTrue(count(mcts.getCurrentRootNode()) <= 1000);
+    }
+
+    private static int count(Node<GmkGame> node) {
+        int result = 1;
+        for (Node<GmkGame> child : node.children()) result += count(child);
+        return result;
+    }
+
+    @Test
+    public void testStopPonderingBeforeItStarts() {
+        ExecutorService busy = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            busy.execute(() -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+            GmkMCTS mcts = new GmkMCTS(20);
+            mcts.startPondering(openingPosition(), busy);
+            // Must not wait for a pondering search which has not even started
+            mcts.stopPondering();
+            assertFalse(mcts.isPondering());
+            latch.countDown();
+        } finally {
+            busy.shutdownNow();
+        }
+    }
+}
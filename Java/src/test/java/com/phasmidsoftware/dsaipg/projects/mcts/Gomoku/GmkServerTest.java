@@ -0,0 +1,139 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for GmkServer (and, over loopback, GmkLoadGenerator).
+ */
+public class GmkServerTest {
+
+    private GmkServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new GmkServer(0, 20, 2, 64, 60_000);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void testGame() {
+        String[] created = server.process("NEW 9").split(" ");
+        assertEquals("OK", created[0]);
+        String id = created[1];
+        String reply = server.process("MOVE " + id + " 4 4");
+        assertTrue(reply, reply.startsWith("MOVE "));
+        String[] words = reply.split(" ");
+        assertEquals("BOARD 4-4 " + words[1] + "-" + words[2], server.process("BOARD " + id));
+        assertEquals("ERR occupied: 4 4", server.process("MOVE " + id + " 4 4"));
+        assertEquals("ERR off the board: 9 0", server.process("MOVE " + id + " 9 0"));
+        assertEquals("OK", server.process("END " + id));
+        assertEquals("ERR unknown session: " + id, server.process("BOARD " + id));
+    }
+
+    @Test
+    public void testWatch() throws IOException {
+        try (GmkServer watched = new GmkServer(0, 5000, 1, 4, 60_000)) {
+            String id = watched.process("NEW 9").split(" ")[1];
+            watched.process("MOVE " + id + " 4 4");   // answered without searching
+            assertEquals("OK", watched.process("WATCH " + id));
+            List<String> progress = new ArrayList<>();
+            String reply = watched.process("MOVE " + id + " 0 0", progress::add);
+            assertTrue(reply, reply.startsWith("MOVE "));
+            assertFalse(progress.isEmpty());
+            for (String line : progress) assertTrue(line, line.startsWith("INFO playouts="));
+            // Nothing more arrives once the move has been answered
+            int lines = progress.size();
+            assertEquals("OK", watched.process("END " + id));
+            assertEquals(lines, progress.size());
+        }
+    }
+
+    @Test
+    public void testSearchFailed() throws Exception {
+        GmkServer closing = new GmkServer(0, 1_000_000, 1, 4, 60_000, 60_000);
+        try {
+            String id = closing.process("NEW 9").split(" ")[1];
+            closing.process("MOVE " + id + " 4 4");   // answered without searching
+            String[] reply = new String[1];
+            Thread human = new Thread(() -> reply[0] = closing.process("MOVE " + id + " 0 0"));
+            human.start();
+            while (!closing.process("STATS").contains("searches=2")) Thread.sleep(10);
+            // Closing the server abandons the search, which would otherwise run for a minute
+            closing.close();
+            human.join(10_000);
+            assertFalse(human.isAlive());
+            assertEquals("ERR search failed", reply[0]);
+        } finally {
+            closing.close();
+        }
+    }
+
+    @Test
+    public void testSearchOutlastingIdleTimeout() throws Exception {
+        try (GmkServer slow = new GmkServer(0, 1_000_000, 1, 4, 60_000, 1000)) {
+            String id = slow.process("NEW 9").split(" ")[1];
+            slow.process("MOVE " + id + " 4 4");   // answered without searching
+            String[] reply = new String[1];
+            Thread human = new Thread(() -> reply[0] = slow.process("MOVE " + id + " 0 0"));
+            human.start();
+            while (!slow.process("STATS").contains("searches=2")) Thread.sleep(10);
+            // The session is not evicted while its move is being searched, however long that takes
+            assertEquals(0, slow.evictIdle(System.currentTimeMillis() + 60_001));
+            human.join(10_000);
+            assertTrue(reply[0], reply[0].startsWith("MOVE "));
+            assertEquals(1, slow.evictIdle(System.currentTimeMillis() + 60_001));
+        }
+    }
+
+    @Test
+    public void testHumanWhite() {
+        String[] created = server.process("NEW 9 white").split(" ");
+        assertEquals(4, created.length);
+        assertEquals("OK", created[0]);
+        assertEquals("BOARD " + created[2] + "-" + created[3], server.process("BOARD " + created[1]));
+    }
+
+    @Test
+    public void testErrors() {
+        assertEquals("ERR unknown command: FOO", server.process("FOO"));
+        assertTrue(server.process("NEW x").startsWith("ERR bad number"));
+        assertEquals("ERR colour must be black or white: red", server.process("NEW 9 red"));
+        assertEquals("ERR expected 3 arguments to MOVE", server.process("MOVE 1 2"));
+        assertEquals("ERR unknown session: zz", server.process("MOVE zz 0 0"));
+    }
+
+    @Test
+    public void testEvictIdle() {
+        server.process("NEW 9");
+        server.process("NEW 9");
+        assertEquals(2, server.getSessionCount());
+        assertEquals(0, server.evictIdle(System.currentTimeMillis()));
+        assertEquals(2, server.evictIdle(System.currentTimeMillis() + 60_001));
+        assertEquals(0, server.getSessionCount());
+        assertTrue(server.process("STATS").contains("evicted=2"));
+    }
+
+    @Test
+    public void testLoadOverLoopback() throws InterruptedException {
+        server.start();
+        GmkLoadGenerator.Report report = GmkLoadGenerator.run(InetAddress.getLoopbackAddress().getHostAddress(), server.getPort(), 8, 1, 7, 1);
+        assertEquals(0, report.errors());
+        assertEquals(8, report.games());
+        assertEquals(report.moves(), report.latencies().length);
+        assertTrue(report.moves() >= 8 * 4);
+        assertEquals(8, server.getSessionCount());
+    }
+}
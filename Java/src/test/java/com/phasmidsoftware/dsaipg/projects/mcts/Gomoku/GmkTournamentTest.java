@@ -0,0 +1,155 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.RandomState;
+import com.phasmidsoftware.dsaipg.projects.mcts.core.RolloutPolicy;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the GmkTournament class.
+ * These tests use a small board and few iterations so that the games finish quickly.
+ */
+public class GmkTournamentTest {
+
+    @Test
+    public void testParseEngine() {
+        GmkTournament.Engine byIterations = GmkTournament.Engine.parse("fast:iterations=50");
+        assertEquals("fast", byIterations.getName());
+        assertEquals(50, byIterations.create().getIterations());
+        assertEquals(0, byIterations.create().getTimeLimitMillis());
+
+        GmkTournament.Engine byTime = GmkTournament.Engine.parse("timed:time=20");
+        assertEquals(20, byTime.create().getTimeLimitMillis());
+        assertEquals(Integer.MAX_VALUE, byTime.create().getIterations());
+    }
+
+    @Test
+    public void testParseEngineRollout() {
+        GmkTournament.Engine engine = GmkTournament.Engine.parse("quick:iterations=50,rollout=pattern");
+        assertTrue(engine.create().getRolloutPolicy() instanceof GmkPatternRollout);
+        assertTrue(GmkTournament.Engine.parse("default:iterations=50").create().getRolloutPolicy() instanceof GmkHeuristicRollout);
+    }
+
+    @Test
+    public void testParseEngineCutoff() {
+        GmkTournament.Engine engine = GmkTournament.Engine.parse("short:iterations=50,rollout=uniform,cutoff=8");
+        RolloutPolicy<GmkGame> policy = engine.create().getRolloutPolicy();
+        assertTrue(policy instanceof GmkCutoffRollout);
+        assertEquals(8, policy.horizon());
+        assertTrue(engine.toString().contains("cutoff=8"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseEngineUnknownRollout() {
+        GmkTournament.Engine.parse("bad:rollout=oracle");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseEngineUnknownOption() {
+        GmkTournament.Engine.parse("bad:depth=3");
+    }
+
+    @Test
+    public void testPlayGame() {
+        GmkTournament tournament = new GmkTournament(new GmkGame(7),
+                GmkTournament.Engine.parse("a:iterations=20"), GmkTournament.Engine.parse("b:iterations=20"), 1);
+        GmkTournament.GameResult result = tournament.playGame(0);
+        assertEquals("a", result.black);
+        assertEquals("b", result.white);
+        assertTrue(result.getMoveCount() > 0);
+        assertEquals(result.getMoveCount(), result.moveMillis.length);
+        assertEquals(result.getMoveCount(), result.moveNodes.length);
+    }
+
+    @Test
+    public void testRunStreamsCsv() throws Exception {
+        GmkTournament tournament = new GmkTournament(new GmkGame(7),
+                GmkTournament.Engine.parse("a:iterations=20"), GmkTournament.Engine.parse("b:iterations=20"), 2);
+        StringWriter writer = new StringWriter();
+        GmkTournament.Summary summary = tournament.run(4, writer, false);
+        assertEquals(4, summary.getWins() + summary.getDraws() + summary.getLosses());
+        String[] lines = writer.toString().split("\n");
+        assertEquals(5, lines.length);
+        assertTrue(lines[0].startsWith("game,black,white,winner"));
+    }
+
+    @Test
+    public void testRunStreamsJsonl() throws Exception {
+        GmkTournament tournament = new GmkTournament(new GmkGame(7),
+                GmkTournament.Engine.parse("a:iterations=20"), GmkTournament.Engine.parse("b:iterations=20"), 2);
+        StringWriter writer = new StringWriter();
+        tournament.run(2, writer, true);
+        String[] lines = writer.toString().split("\n");
+        assertEquals(2, lines.length);
+        for (String line : lines) assertTrue(line.startsWith("{\"game\":") && line.endsWith("}"));
+    }
+
+    @Test
+    public void testJsonEscapesNames() {
+        List<GmkMove> moves = List.of(new GmkMove(0, 3, 3), new GmkMove(1, 2, 2));
+        GmkTournament.GameResult result = new GmkTournament.GameResult(0, "say \"hi\"", "back\\slash\t", 0, false, moves,
+                new long[2], new int[2]);
+        String json = result.toJson();
+        assertTrue(json, json.startsWith("{\"game\":0,\"black\":\"say \\\"hi\\\"\",\"white\":\"back\\\\slash\\t\",\"winner\":\"say \\\"hi\\\"\","));
+        // The record still reads back
+        assertEquals(2, GmkPriors.parseGame(json).size());
+    }
+
+    @Test
+    public void testSeededRunIsReproducible() throws Exception {
+        String[] one = seededGames(1);
+        assertArrayEquals(one, seededGames(1));
+        // The games do not depend on the number of threads either
+        assertArrayEquals(one, seededGames(3));
+    }
+
+    // The JSONL records (in game order, without the times) of a seeded run of 6 games
+    private static String[] seededGames(int threads) throws Exception {
+        GmkTournament tournament = new GmkTournament(new GmkGame(7),
+                GmkTournament.Engine.parse("a:iterations=30"), GmkTournament.Engine.parse("b:iterations=30"), threads);
+        tournament.setSeed(49L);
+        StringWriter writer = new StringWriter();
+        tournament.run(6, writer, true);
+        String[] lines = writer.toString().replaceAll(",\"millis\":\\[[^\\]]*\\]", "").split("\n");
+        Arrays.sort(lines);
+        return lines;
+    }
+
+    @Test
+    public void testSwap2() {
+        GmkTournament tournament = new GmkTournament(new GmkGame(7, 7, 5, GmkGame.Rule.FREESTYLE, GmkGame.Opening.SWAP2),
+                GmkTournament.Engine.parse("a:iterations=30"), GmkTournament.Engine.parse("b:iterations=30"), 1);
+        int swaps = 0;
+        RandomState streams = new RandomState(1, 33L);
+        for (int gameId = 0; gameId < 4; gameId++) {
+            GmkTournament.GameResult result = tournament.playGame(gameId, streams.next());
+            String opener = gameId % 2 == 0 ? "a" : "b";
+            String other = gameId % 2 == 0 ? "b" : "a";
+            // The opener plays black unless the other engine took black at the colour choice
+            assertEquals(result.swapped ? other : opener, result.black);
+            assertEquals(result.swapped ? opener : other, result.white);
+            if (result.swapped) swaps++;
+        }
+        assertTrue(swaps > 0);
+
+        // A swapped game is credited to the engine which actually played the winning colour
+        GmkTournament.Summary summary = new GmkTournament.Summary("a", "b");
+        summary.add(new GmkTournament.GameResult(0, "b", "a", 0, true, List.of(), new long[0], new int[0]));
+        assertEquals(1, summary.getLosses());
+        summary.add(new GmkTournament.GameResult(1, "a", "b", 0, true, List.of(), new long[0], new int[0]));
+        assertEquals(1, summary.getWins());
+    }
+
+    @Test
+    public void testElo() {
+        assertEquals(0.0, GmkTournament.elo(5, 0, 5)[0], 1E-9);
+        assertEquals(190.85, GmkTournament.elo(3, 0, 1)[0], 0.01);
+        double[] elo = GmkTournament.elo(60, 10, 30);
+        assertTrue(elo[1] < elo[0] && elo[0] < elo[2]);
+    }
+}
@@ -0,0 +1,145 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.Node;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the GmkTreeSerializer class.
+ */
+public class GmkTreeSerializerTest {
+
+    private static GmkState openingPosition(GmkGame game) {
+        return (GmkState) game.start().next(new GmkMove(0, 3, 3)).next(new GmkMove(1, 2, 3));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        GmkGame game = new GmkGame(7);
+        GmkState state = openingPosition(game);
+        GmkMCTS mcts = new GmkMCTS(200);
+        mcts.findBestMove(state);
+        GmkNode root = mcts.getCurrentRootNode();
+
+        Path path = Files.createTempFile("gomoku", ".tree");
+        try {
+            int written = GmkTreeSerializer.write(root, path, 0);
+            assertTrue(written > root.children().size());
+
+            GmkNode restored = GmkTreeSerializer.read(game, path);
+            assertEquals(root.playouts(), restored.playouts());
+            assertEquals(root.getReward(), restored.getReward());
+            assertEquals(state.getZobristKey(), ((GmkState) restored.state()).getZobristKey());
+            assertEquals(root.children().size(), restored.children().size());
+            for (int i = 0; i < root.children().size(); i++) {
+                Node<GmkGame> original = root.children().get(i);
+                Node<GmkGame> copy = restored.children().get(i);
+                assertEquals(original.playouts(), copy.playouts());
+                assertEquals(((GmkNode) original).getReward(), ((GmkNode) copy).getReward());
+                assertEquals(((GmkState) original.state()).getZobristKey(), ((GmkState) copy.state()).getZobristKey());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testPruningKeepsTreeSearchable() throws Exception {
+        GmkGame game = new GmkGame(7);
+        GmkState state = openingPosition(game);
+        GmkMCTS mcts = new GmkMCTS(200);
+        mcts.findBestMove(state);
+        GmkNode root = mcts.getCurrentRootNode();
+
+        Path path = Files.createTempFile("gomoku", ".tree");
+        try {
+            int all = GmkTreeSerializer.write(root, path, 0);
+            int pruned = GmkTreeSerializer.write(root, path, 2);
+            assertTrue(pruned < all);
+
+            // Pruned children are re-created (without statistics) so the root remains fully expanded
+            GmkNode restored = GmkTreeSerializer.read(game, path);
+            assertEquals(root.children().size(), restored.children().size());
+            assertEquals(root.playouts(), restored.playouts());
+
+            // The restored tree can be resumed
+            GmkMCTS resumed = new GmkMCTS(50);
+            resumed.resume(restored);
+            assertNotNull(resumed.findBestMove(state));
+            assertSame(restored, resumed.getCurrentRootNode());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void testReadRejectsWrongBoardSize() throws Exception {
+        GmkGame game = new GmkGame(7);
+        GmkMCTS mcts = new GmkMCTS(20);
+        mcts.findBestMove(openingPosition(game));
+        Path path = Files.createTempFile("gomoku", ".tree");
+        try {
+            GmkTreeSerializer.write(mcts.getCurrentRootNode(), path, 0);
+            GmkTreeSerializer.read(new GmkGame(9), path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testReadRejectsOtherRules() throws Exception {
+        GmkGame game = new GmkGame(7);
+        GmkMCTS mcts = new GmkMCTS(20);
+        mcts.setVerbose(false);
+        mcts.findBestMove(openingPosition(game));
+        Path path = Files.createTempFile("gomoku", ".tree");
+        try {
+            GmkTreeSerializer.write(mcts.getCurrentRootNode(), path, 0);
+            for (GmkGame other : List.of(new GmkGame(7, 7, 4, GmkGame.Rule.FREESTYLE, GmkGame.Opening.STANDARD),
+                    new GmkGame(7, 7, 5, GmkGame.Rule.EXACT, GmkGame.Opening.STANDARD))) {
+                try {
+                    GmkTreeSerializer.read(other, path);
+                    fail("expected a tree for another game to be rejected: " + other.getWinLength() + " " + other.getRule());
+                } catch (java.io.IOException e) {
+                    assertTrue(e.getMessage(), e.getMessage().startsWith("tree is for 5 in a row"));
+                }
+            }
+            assertNotNull(GmkTreeSerializer.read(game, path));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testRoundTripKeepsPriors() throws Exception {
+        GmkGame game = new GmkGame(7);
+        GmkState state = openingPosition(game);
+        GmkMCTS mcts = new GmkMCTS(200);
+        mcts.setVerbose(false);
+        mcts.setPriors(GmkPriors.train(game, List.of(List.of(new GmkMove(0, 3, 3), new GmkMove(1, 2, 3), new GmkMove(0, 3, 4)))));
+        mcts.findBestMove(state);
+        GmkNode root = mcts.getCurrentRootNode();
+
+        Path path = Files.createTempFile("gomoku", ".tree");
+        try {
+            GmkTreeSerializer.write(root, path, 2);
+            GmkNode restored = GmkTreeSerializer.read(game, path);
+            assertEquals(root.children().size(), restored.children().size());
+            float total = 0;
+            for (int i = 0; i < root.children().size(); i++) {
+                float prior = ((GmkNode) root.children().get(i)).getPrior();
+                // Including the pruned children, which are re-created without statistics
+                assertEquals(prior, ((GmkNode) restored.children().get(i)).getPrior(), 1e-4);
+                total += prior;
+            }
+            assertEquals(1, total, 1e-4);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.Gomoku;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for GmkTreeSnapshot (and its publication by GmkMCTS).
+ */
+public class GmkTreeSnapshotTest {
+
+    private static GmkState openingPosition() {
+        return (GmkState) new GmkGame(9).start().next(new GmkMove(0, 4, 4)).next(new GmkMove(1, 3, 4));
+    }
+
+    @Test
+    public void testOf() {
+        GmkNode root = new GmkNode(openingPosition());
+        for (int i = 0; i < 8; i++) {
+            GmkState child = (GmkState) root.state().next(new GmkMove(0, 0, i));
+            root.addChild(child);
+            // The playouts of the children are 0, 1, ..., 7
+            for (int j = 0; j < i; j++) ((GmkNode) root.children().get(i)).update(j % 2 == 0);
+        }
+        GmkTreeSnapshot snapshot = GmkTreeSnapshot.of(root, 2, 3);
+        assertNull(snapshot.move());
+        assertEquals(3, snapshot.children().size());
+        assertEquals(5, snapshot.hiddenChildren());
+        assertEquals(4, snapshot.size());
+        int[] playouts = snapshot.children().stream().mapToInt(GmkTreeSnapshot::playouts).toArray();
+        assertArrayEquals(new int[]{7, 6, 5}, playouts);
+        GmkTreeSnapshot best = snapshot.children().get(0);
+        assertEquals(0, best.move().getRow());
+        assertEquals(7, best.move().getCol());
+        assertEquals(4.0 / 7, best.meanReward(), 1E-9);
+        assertTrue(best.children().isEmpty());
+        assertEquals(0, best.hiddenChildren());
+        try {
+            snapshot.children().clear();
+            fail("expected the snapshot to be immutable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        // A snapshot of depth 0 is the root alone
+        GmkTreeSnapshot top = GmkTreeSnapshot.of(root, 0, 3);
+        assertEquals(1, top.size());
+        assertEquals(8, top.hiddenChildren());
+    }
+
+    @Test
+    public void testPublishedBySearch() {
+        GmkMCTS mcts = new GmkMCTS(200);
+        mcts.setVerbose(false);
+        List<GmkTreeSnapshot> snapshots = new ArrayList<>();
+        mcts.setSnapshotListener(snapshots::add, 0);
+        mcts.findBestMove(openingPosition());
+        assertTrue(snapshots.size() > 1);
+        for (GmkTreeSnapshot snapshot : snapshots) {
+            assertTrue(snapshot.size() <= 1 + 5 + 25 + 125 + 625);
+            List<GmkTreeSnapshot> children = snapshot.children();
+            assertTrue(children.size() <= 5);
+            for (int i = 1; i < children.size(); i++) assertTrue(children.get(i - 1).playouts() >= children.get(i).playouts());
+        }
+        // The last snapshot is taken at the end of the search
+        GmkTreeSnapshot last = snapshots.get(snapshots.size() - 1);
+        assertEquals(mcts.getCurrentRootNode().children().size(), last.children().size() + last.hiddenChildren());
+        mcts.setSnapshotListener(null, 0);
+        int published = snapshots.size();
+        mcts.findBestMove(openingPosition());
+        assertEquals(published, snapshots.size());
+    }
+}
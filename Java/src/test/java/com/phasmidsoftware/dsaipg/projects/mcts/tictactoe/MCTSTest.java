@@ -1,5 +1,60 @@
 package com.phasmidsoftware.dsaipg.projects.mcts.tictactoe;
 
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
 public class MCTSTest {
 
-}
\ No newline at end of file
+    @Test
+    public void testWinningMove() {
+        // X to move completes the top row
+        State<TicTacToe> state = new TicTacToe(1L).new TicTacToeState(Position.parsePosition("X X .\nO O .\n. . .", 0));
+        State<TicTacToe> next = new MCTS(new TicTacToeNode(state), 2000, 0, null).search();
+        assertEquals(Optional.of(TicTacToe.X), next.winner());
+    }
+
+    @Test
+    public void testBlockingMove() {
+        // X to move must block O's middle row
+        State<TicTacToe> state = new TicTacToe(2L).new TicTacToeState(Position.parsePosition("X . .\nO O .\nX . .", 0));
+        Position next = ((TicTacToe.TicTacToeState) new MCTS(new TicTacToeNode(state), 5000, 0, null).search()).position();
+        assertEquals(Position.parsePosition("X . .\nO O X\nX . .", 1), next);
+    }
+
+    @Test
+    public void testSelfPlayIsDrawn() {
+        TicTacToeCache cache = new TicTacToeCache();
+        for (TicTacToeCache shared : new TicTacToeCache[]{null, cache}) {
+            State<TicTacToe> state = new TicTacToe(3L).start();
+            while (!state.isTerminal()) {
+                State<TicTacToe> next = new MCTS(new TicTacToeNode(state), 5000, 0, shared).search();
+                // Perfect play never turns a won or drawn position into a loss
+                assertEquals(cache.value(((TicTacToe.TicTacToeState) state).position()),
+                        -cache.value(((TicTacToe.TicTacToeState) next).position()));
+                state = next;
+            }
+            assertTrue(state.winner().isEmpty());
+        }
+    }
+
+    @Test
+    public void testSymmetricChildren() {
+        MCTS mcts = new MCTS(new TicTacToeNode(new TicTacToe(4L).start()), 100, 0, new TicTacToeCache());
+        mcts.search();
+        // A corner, an edge and the centre
+        assertEquals(3, mcts.getRoot().children().size());
+        assertEquals(100, mcts.getLastIterations());
+    }
+
+    @Test
+    public void testTimeLimit() {
+        MCTS mcts = new MCTS(new TicTacToeNode(new TicTacToe(5L).start()), Integer.MAX_VALUE, 20, null);
+        mcts.search();
+        assertTrue(mcts.getLastIterations() > 0);
+        assertTrue(mcts.getLastNanos() >= 20_000_000);
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.Test;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -55,10 +56,53 @@ public class PositionTest {
 
     @Test
     public void testReflect() {
+        Position target = Position.parsePosition("X O .\n. X .\n. . O", 0);
+        assertEquals(Position.parsePosition(". . O\n. X .\nX O .", 0), target.reflect(0));
+        assertEquals(Position.parsePosition(". O X\n. X .\nO . .", 0), target.reflect(1));
+        assertEquals(target, target.reflect(0).reflect(0));
     }
 
     @Test
     public void testRotate() {
+        Position target = Position.parsePosition("X O .\n. X .\n. . O", 0);
+        Position rotated = target.rotate();
+        assertEquals(Position.parsePosition(". . O\nO X .\nX . .", 0), rotated);
+        assertEquals(target, rotated.rotate().rotate().rotate());
+    }
+
+    @Test
+    public void testCode() {
+        assertEquals(0, Position.parsePosition(". . .\n. . .\n. . .", -1).code());
+        assertEquals(2, Position.parsePosition("X . .\n. . .\n. . .", 1).code());
+        assertEquals(2 * 6561 + 3, Position.parsePosition(". O .\n. . .\n. . X", 1).code());
+    }
+
+    @Test
+    public void testCanonicalCode() {
+        Position target = Position.parsePosition("X O .\n. X .\n. . O", 0);
+        int canonical = target.canonicalCode();
+        // All eight symmetric variants share the canonical form, which is the least of their codes
+        Position[] variants = {target, target.rotate(), target.rotate().rotate(), target.rotate().rotate().rotate(),
+                target.reflect(0), target.reflect(1), target.rotate().reflect(0), target.rotate().reflect(1)};
+        int least = Integer.MAX_VALUE;
+        for (Position variant : variants) {
+            assertEquals(canonical, variant.canonicalCode());
+            least = Math.min(least, variant.code());
+        }
+        assertEquals(least, canonical);
+        assertNotEquals(canonical, Position.parsePosition("X . O\n. X .\n. . O", 0).canonicalCode());
+    }
+
+    @Test
+    public void testPlayout() {
+        Random random = new Random(41L);
+        assertEquals(1, Position.parsePosition("X . 0\nX O .\nX . 0", 1).playout(random));
+        assertEquals(-1, Position.parsePosition("X O X\nX O O\nO X X", 1).playout(random));
+        // From the start, X (who moves first) wins random games more often than O
+        int[] results = new int[3];
+        for (int i = 0; i < 10000; i++) results[TicTacToe.startingPosition().playout(random) + 1]++;
+        assertTrue(results[2] > results[1]);
+        assertTrue(results[0] > 0);
     }
 
     @Test
@@ -0,0 +1,37 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.tictactoe;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TicTacToeCacheTest {
+
+    @Test
+    public void testValue() {
+        TicTacToeCache cache = new TicTacToeCache();
+        // Perfect play from the start is a draw
+        assertEquals(0, cache.value(TicTacToe.startingPosition()));
+        // 765 essentially different positions can be reached in play (including the empty board)
+        assertEquals(765, cache.solved());
+        // O has just won
+        assertEquals(-1, cache.value(Position.parsePosition("O O O\nX X .\nX . .", 0)));
+        // X to move wins by completing the top row
+        assertEquals(1, cache.value(Position.parsePosition("X X .\nO O .\n. . .", 0)));
+        // X to move must block, and can only draw
+        assertEquals(0, cache.value(Position.parsePosition("X . .\n. O .\n. . .", 0)));
+    }
+
+    @Test
+    public void testSymmetricStatisticsAreMerged() {
+        TicTacToeCache cache = new TicTacToeCache();
+        Position corner = Position.parsePosition("X . .\n. . .\n. . .", 1);
+        Position otherCorner = Position.parsePosition(". . .\n. . .\n. . X", 1);
+        cache.update(corner, 2, 1);
+        cache.update(otherCorner, 1, 1);
+        assertEquals(3, cache.wins(corner.rotate()));
+        assertEquals(2, cache.playouts(otherCorner));
+        assertEquals(1, cache.entries());
+        cache.clearStatistics();
+        assertEquals(0, cache.playouts(corner));
+    }
+}
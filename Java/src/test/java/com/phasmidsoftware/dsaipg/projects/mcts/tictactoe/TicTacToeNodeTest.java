@@ -42,6 +42,12 @@ public class TicTacToeNodeTest {
 
     @Test
     public void backPropagate() {
-        // no tests yet
+        TicTacToe.TicTacToeState state = new TicTacToe().new TicTacToeState();
+        TicTacToeNode node = new TicTacToeNode(state);
+        // A node which has not been expanded keeps its own statistics
+        node.update(3, 2);
+        node.backPropagate();
+        assertEquals(3, node.wins());
+        assertEquals(2, node.playouts());
     }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.phasmidsoftware.dsaipg.projects.mcts.tictactoe;
+
+import com.phasmidsoftware.dsaipg.projects.mcts.core.State;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TicTacToeOracleTest {
+
+    @Test
+    public void testReachablePositions() {
+        TicTacToeOracle oracle = TicTacToeOracle.getInstance();
+        assertEquals(5478, oracle.reachablePositions());
+        assertTrue(oracle.reachable(0));
+        // O cannot have moved first
+        assertFalse(oracle.reachable(Position.parsePosition("O . .\n. . .\n. . .", 0).code()));
+    }
+
+    @Test
+    public void testValues() {
+        TicTacToeOracle oracle = TicTacToeOracle.getInstance();
+        assertEquals(0, oracle.value(TicTacToe.startingPosition()));
+        assertEquals(-1, oracle.value(Position.parsePosition("O O O\nX X .\nX . .", 0)));
+        Position win = Position.parsePosition("X X .\nO O .\n. . .", 0);
+        assertEquals(1, oracle.value(win));
+        assertArrayEquals(new int[]{0, 2}, oracle.bestMove(win));
+        // X to move must block the middle row
+        assertArrayEquals(new int[]{1, 2}, oracle.bestMove(Position.parsePosition("X . .\nO O .\nX . .", 0)));
+    }
+
+    @Test
+    public void testAgreesWithCache() {
+        // The retrograde table and the memoized negamax of TicTacToeCache agree on every reachable position
+        TicTacToeOracle oracle = TicTacToeOracle.getInstance();
+        TicTacToeCache cache = new TicTacToeCache();
+        checkAll(TicTacToe.startingPosition(), oracle, cache);
+    }
+
+    private static void checkAll(Position position, TicTacToeOracle oracle, TicTacToeCache cache) {
+        assertEquals(position.render(), cache.value(position), oracle.value(position));
+        if (position.winner().isPresent() || position.full()) return;
+        int player = position.last == TicTacToe.X ? TicTacToe.O : TicTacToe.X;
+        for (int[] move : position.moves(player)) checkAll(position.move(player, move[0], move[1]), oracle, cache);
+    }
+
+    @Test
+    public void testPerfectPlayNeverLoses() {
+        TicTacToeOracle oracle = TicTacToeOracle.getInstance();
+        Random random = new Random(42L);
+        for (int game = 0; game < 200; game++) {
+            // The oracle plays X in even games and O in odd games, against random moves
+            State<TicTacToe> state = new TicTacToe(random.nextLong()).start();
+            int oracleSide = game % 2 == 0 ? TicTacToe.X : TicTacToe.O;
+            while (!state.isTerminal())
+                state = state.player() == oracleSide ? oracle.play(state) : state.next(state.chooseMove(state.player()));
+            assertTrue(state.winner().isEmpty() || state.winner().get() == oracleSide);
+        }
+    }
+
+    @Test
+    public void testMCTSMovesAreOptimal() {
+        // A regression check of the MCTS engine: from random positions, its moves never lose value
+        TicTacToeOracle oracle = TicTacToeOracle.getInstance();
+        Random random = new Random(7L);
+        for (int i = 0; i < 20; i++) {
+            State<TicTacToe> state = new TicTacToe(random.nextLong()).start();
+            for (int plies = random.nextInt(5); plies > 0 && !state.isTerminal(); plies--)
+                state = state.next(state.chooseMove(state.player()));
+            if (state.isTerminal()) continue;
+            int value = oracle.value(((TicTacToe.TicTacToeState) state).position());
+            State<TicTacToe> next = new MCTS(new TicTacToeNode(state), 20000, 0, null).search();
+            assertEquals(value, -oracle.value(((TicTacToe.TicTacToeState) next).position()));
+        }
+    }
+}